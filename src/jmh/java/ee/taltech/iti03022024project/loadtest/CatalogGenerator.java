@@ -0,0 +1,215 @@
+package ee.taltech.iti03022024project.loadtest;
+
+import ee.taltech.iti03022024project.Iti03022024ProjectApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Fills the database from docker-compose.yml with a production sized catalog for CatalogLoadTest: categories,
+ * users with a cart each, products, and placed orders with their items. The application is started once without
+ * serving traffic, so Liquibase brings the schema up to date and passwords are hashed with the configured encoder.
+ * All rows are generated inside PostgreSQL with generate_series, and popularity is skewed by raising a uniform
+ * random number to a power: low ranks win, so a few categories hold most products, a few sellers list most of them
+ * and a few products appear in most orders.
+ * Run with {@code ./gradlew seedCatalog -Pusers=200000 -Pproducts=2000000 -Porders=1000000}. Every generated user
+ * logs in as {@code loadtest-user-<n>@example.com} with {@link #PASSWORD}.
+ */
+public final class CatalogGenerator {
+
+    static final String EMAIL_PREFIX = "loadtest-user-";
+    static final String EMAIL_DOMAIN = "@example.com";
+    static final String PASSWORD = "loadtest-password";
+
+    static final String[] NOUNS = {"lamp", "chair", "desk", "kettle", "blender", "jacket", "sneakers", "backpack",
+            "headphones", "keyboard", "monitor", "blanket", "pillow", "mug", "knife", "tent", "bicycle", "helmet",
+            "watch", "camera", "speaker", "charger", "drill", "shelf", "mirror", "vase", "sofa", "rug", "toaster", "kettlebell"};
+    static final String[] ADJECTIVES = {"compact", "wireless", "vintage", "ergonomic", "waterproof", "portable",
+            "classic", "premium", "foldable", "smart", "wooden", "steel", "cotton", "leather", "lightweight", "heavy-duty"};
+    private static final String[] DEPARTMENTS = {"Home", "Kitchen", "Garden", "Electronics", "Computers", "Sports",
+            "Outdoors", "Fashion", "Shoes", "Toys", "Books", "Tools", "Automotive", "Beauty", "Health", "Office"};
+    private static final String[] FIRST_NAMES = {"Mari", "Jaan", "Anna", "Peeter", "Liis", "Martin", "Kadri",
+            "Andres", "Laura", "Marko", "Eva", "Tiit", "Olga", "Ivan", "Sofia", "Daniel"};
+    private static final String[] LAST_NAMES = {"Tamm", "Saar", "Sepp", "Mägi", "Kask", "Kukk", "Rebane", "Ilves",
+            "Pärn", "Koppel", "Ivanov", "Smirnov", "Petrov", "Lepik", "Oja", "Vaher"};
+    private static final String[] CITIES = {"Tallinn", "Tartu", "Narva", "Pärnu", "Kohtla-Järve", "Viljandi",
+            "Rakvere", "Maardu", "Kuressaare", "Sillamäe"};
+
+    private CatalogGenerator() {
+    }
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Iti03022024ProjectApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run(args)) {
+            Environment environment = context.getEnvironment();
+            Settings settings = new Settings(
+                    environment.getProperty("loadtest.categories", Integer.class, 200),
+                    environment.getProperty("loadtest.users", Integer.class, 200_000),
+                    environment.getProperty("loadtest.products", Integer.class, 2_000_000),
+                    environment.getProperty("loadtest.orders", Integer.class, 1_000_000));
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            // one transaction, so an interrupted run leaves an empty database instead of a partial catalog
+            TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+            Integer seeded = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM users WHERE email = ?", Integer.class, EMAIL_PREFIX + 1 + EMAIL_DOMAIN);
+            if (seeded != null && seeded > 0) {
+                System.out.println("The database is already seeded; remove ./postgres-data and restart the container to start over");
+                return;
+            }
+            System.out.printf("Seeding %s%n", settings);
+            long started = System.nanoTime();
+            transaction.executeWithoutResult(status -> new Seeder(jdbcTemplate, settings, passwordHash).run());
+            jdbcTemplate.execute("ANALYZE");
+            System.out.printf("Done in %d s%n", (System.nanoTime() - started) / 1_000_000_000);
+        }
+    }
+
+    record Settings(int categories, int users, int products, int orders) {
+    }
+
+    private record IdRange(long first, long last, long count) {
+
+        IdRange {
+            if (last - first + 1 != count) {
+                throw new IllegalStateException("Generated ids are not contiguous: %d..%d for %d rows".formatted(first, last, count));
+            }
+        }
+    }
+
+    private static final class Seeder {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final Settings settings;
+        private final String passwordHash;
+
+        Seeder(JdbcTemplate jdbcTemplate, Settings settings, String passwordHash) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.settings = settings;
+            this.passwordHash = passwordHash;
+        }
+
+        void run() {
+            seedStatuses();
+            IdRange categories = step("categories", this::seedCategories);
+            IdRange users = step("users", this::seedUsers);
+            IdRange products = step("products", () -> seedProducts(users, categories));
+            step("carts", () -> seedCarts(users));
+            IdRange orders = step("orders", () -> seedOrders(users));
+            step("order items", () -> seedOrderItems(orders, products));
+        }
+
+        private IdRange step(String name, Supplier<IdRange> step) {
+            long started = System.nanoTime();
+            IdRange range = step.get();
+            System.out.printf("  %-12s %,12d rows in %,6d ms%n", name, range.count(), (System.nanoTime() - started) / 1_000_000);
+            return range;
+        }
+
+        // the changelog creates CART (0) and PLACED (1); generated orders also move on to these two
+        private void seedStatuses() {
+            String[] names = {"SHIPPED", "DELIVERED"};
+            for (int i = 0; i < names.length; i++) {
+                jdbcTemplate.update("INSERT INTO statuses (status_id, status_name) SELECT ?, ? "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM statuses WHERE status_id = ?)", i + 2, names[i], i + 2);
+            }
+            jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('statuses', 'status_id'), "
+                    + "(SELECT max(status_id) FROM statuses))", Long.class);
+        }
+
+        private IdRange seedCategories() {
+            return insert("category_id", """
+                    INSERT INTO categories (category_name)
+                    SELECT (?::text[])[1 + g % ?] || ' ' || g
+                    FROM generate_series(1, ?) g
+                    RETURNING category_id
+                    """, DEPARTMENTS, DEPARTMENTS.length, settings.categories());
+        }
+
+        private IdRange seedUsers() {
+            return insert("user_id", """
+                    INSERT INTO users (first_name, last_name, email, password, phone, location, created_at, role_id)
+                    SELECT (?::text[])[1 + g % ?], (?::text[])[1 + (g / 7) % ?], ? || g || ?, ?,
+                           '+372' || (5000000 + g % 4000000), (?::text[])[1 + floor(? * random() ^ 2)::int],
+                           now() - random() * interval '730 days', 1
+                    FROM generate_series(1, ?) g
+                    RETURNING user_id
+                    """, FIRST_NAMES, FIRST_NAMES.length, LAST_NAMES, LAST_NAMES.length, EMAIL_PREFIX, EMAIL_DOMAIN,
+                    passwordHash, CITIES, CITIES.length, settings.users());
+        }
+
+        // a twentieth of the users sell; random() ^ 4 gives the first few of them most of the listings
+        private IdRange seedProducts(IdRange users, IdRange categories) {
+            long sellers = Math.max(1, users.count() / 20);
+            return insert("product_id", """
+                    INSERT INTO products (name, description, price, quantity_in_stock, seller_id, category_id, date_added)
+                    SELECT initcap(adjective) || ' ' || noun || ' ' || g,
+                           'A ' || adjective || ' ' || noun || ' from our ' || (?::text[])[1 + g % ?] || ' range, model ' || g,
+                           round((4.99 + random() ^ 3 * 995)::numeric, 2), 1000 + floor(random() * 9000)::int,
+                           ? + floor(? * random() ^ 4)::int, ? + floor(? * random() ^ 2.5)::int,
+                           now() - random() * interval '730 days'
+                    FROM (SELECT g, (?::text[])[1 + floor(? * random())::int] AS adjective,
+                                 (?::text[])[1 + floor(? * random())::int] AS noun
+                          FROM generate_series(1, ?) g) generated
+                    RETURNING product_id
+                    """, ADJECTIVES, ADJECTIVES.length,
+                    users.first(), sellers, categories.first(), categories.count(),
+                    ADJECTIVES, ADJECTIVES.length, NOUNS, NOUNS.length, settings.products());
+        }
+
+        private IdRange seedCarts(IdRange users) {
+            IdRange carts = insert("order_id", """
+                    INSERT INTO orders (user_id, status_id)
+                    SELECT user_id, 0 FROM users WHERE user_id BETWEEN ? AND ? ORDER BY user_id
+                    RETURNING order_id
+                    """, users.first(), users.last());
+            jdbcTemplate.update("""
+                    UPDATE users u SET unfinished_order = o.order_id
+                    FROM orders o
+                    WHERE o.user_id = u.user_id AND o.order_id BETWEEN ? AND ?
+                    """, carts.first(), carts.last());
+            return carts;
+        }
+
+        // placed, shipped or delivered; random() ^ 2 makes early customers the regulars
+        private IdRange seedOrders(IdRange users) {
+            return insert("order_id", """
+                    INSERT INTO orders (user_id, status_id)
+                    SELECT ? + floor(? * random() ^ 2)::int, 1 + floor(random() * 3)::int
+                    FROM generate_series(1, ?)
+                    RETURNING order_id
+                    """, users.first(), users.count(), settings.orders());
+        }
+
+        // one to five lines per order; ids are assigned here and the pooled sequence is moved past them afterwards
+        private IdRange seedOrderItems(IdRange orders, IdRange products) {
+            long base = jdbcTemplate.queryForObject("SELECT coalesce(max(order_item_id), 0) FROM order_items", Long.class);
+            IdRange items = insert("order_item_id", """
+                    INSERT INTO order_items (order_item_id, order_id, product_id, quantity, price_at_time_of_order)
+                    SELECT ? + row_number() OVER (), item.order_id, item.product_id, item.quantity, p.price
+                    FROM (SELECT o.order_id, ? + floor(? * random() ^ 3)::int AS product_id,
+                                 1 + floor(random() * 3)::int AS quantity
+                          FROM generate_series(?::int, ?::int) o(order_id),
+                               generate_series(1, 1 + o.order_id % 5)) item
+                    JOIN products p ON p.product_id = item.product_id
+                    RETURNING order_item_id
+                    """, base, products.first(), products.count(), orders.first(), orders.last());
+            jdbcTemplate.queryForObject("SELECT setval('order_items_order_item_id_seq', ?, false)", Long.class, items.last() + 1);
+            return items;
+        }
+
+        private IdRange insert(String idColumn, String insert, Object... args) {
+            return jdbcTemplate.queryForObject(
+                    "WITH inserted AS (" + insert + ") SELECT min(" + idColumn + "), max(" + idColumn + "), count(*) FROM inserted",
+                    (rs, rowNum) -> new IdRange(rs.getLong(1), rs.getLong(2), rs.getLong(3)), args);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package ee.taltech.iti03022024project.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shopper sessions against a running application on the catalog from CatalogGenerator. Each session logs in as a
+ * random generated user and then, until the time is up, browses product pages, searches, opens products, adds
+ * them to its cart and checks out, with the same popularity skew the generator used. Prints throughput and latency
+ * percentiles per endpoint. Start the application first ({@code ./gradlew bootRun}), then run
+ * {@code ./gradlew catalogLoadTest -PbaseUrl=http://localhost:8080 -Pconcurrency=200 -Pduration=60}.
+ * Client and server share the machine, so the numbers are for comparing builds, not for sizing production.
+ */
+public final class CatalogLoadTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final int PAGE_SIZE = 20;
+    private static final int BROWSE_PAGES = 50;
+
+    private CatalogLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI base = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            Catalog catalog = Catalog.discover(client, base);
+            System.out.printf("%,d products (ids %d..%d), %,d generated users%n",
+                    catalog.lastProductId() - catalog.firstProductId() + 1, catalog.firstProductId(), catalog.lastProductId(), catalog.users());
+
+            run(client, base, catalog, concurrency, WARMUP);
+            Map<String, Recorder> results = run(client, base, catalog, concurrency, duration);
+
+            System.out.printf("%nconcurrency %d, %d s%n", concurrency, duration.toSeconds());
+            System.out.printf("%-32s %10s %12s %9s %9s %9s %9s %7s%n",
+                    "endpoint", "requests", "requests/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+            results.forEach((endpoint, recorder) -> recorder.print(endpoint, duration));
+        }
+    }
+
+    private static Map<String, Recorder> run(HttpClient client, URI base, Catalog catalog, int concurrency, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Session>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(sessions.submit(() -> new Session(client, base, catalog).shop(deadline)));
+            }
+            Map<String, Recorder> merged = new TreeMap<>();
+            for (Future<Session> future : futures) {
+                future.get().recorders.forEach((endpoint, recorder) ->
+                        merged.computeIfAbsent(endpoint, e -> new Recorder()).addAll(recorder));
+            }
+            return merged;
+        }
+    }
+
+    // ranks are drawn as uniform ^ power, the same skew CatalogGenerator used for popularity
+    private static long skewed(long first, long count, double power) {
+        return first + (long) (count * Math.pow(ThreadLocalRandom.current().nextDouble(), power));
+    }
+
+    private record Catalog(long firstProductId, long lastProductId, int users) {
+
+        static Catalog discover(HttpClient client, URI base) throws IOException, InterruptedException {
+            long first = productId(client, base, "ASC");
+            long last = productId(client, base, "DESC");
+            JsonNode users = get(client, base.resolve("/api/users?search=" + CatalogGenerator.EMAIL_PREFIX + "&pageSize=1"));
+            int count = users.path("totalElements").asInt();
+            if (count == 0) {
+                throw new IllegalStateException("No generated users found, run ./gradlew seedCatalog first");
+            }
+            return new Catalog(first, last, count);
+        }
+
+        private static long productId(HttpClient client, URI base, String direction) throws IOException, InterruptedException {
+            JsonNode page = get(client, base.resolve("/api/products?pageSize=1&total=NONE&sortBy=productId&sortDirection=" + direction));
+            return page.path("content").path(0).path("id").asLong();
+        }
+
+        private static JsonNode get(HttpClient client, URI uri) throws IOException, InterruptedException {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET " + uri + " answered " + response.statusCode());
+            }
+            return JSON.readTree(response.body());
+        }
+
+        long product() {
+            return skewed(firstProductId, lastProductId - firstProductId + 1, 3);
+        }
+
+        String email() {
+            return CatalogGenerator.EMAIL_PREFIX + (1 + ThreadLocalRandom.current().nextInt(users)) + CatalogGenerator.EMAIL_DOMAIN;
+        }
+    }
+
+    private static final class Session {
+        private final HttpClient client;
+        private final URI base;
+        private final Catalog catalog;
+        private final Map<String, Recorder> recorders = new TreeMap<>();
+
+        private String token;
+        private long cartId;
+        private int cartItems;
+
+        Session(HttpClient client, URI base, Catalog catalog) {
+            this.client = client;
+            this.base = base;
+            this.catalog = catalog;
+        }
+
+        Session shop(long deadline) {
+            while (System.nanoTime() < deadline) {
+                if (token == null) {
+                    login();
+                    continue;
+                }
+                double action = ThreadLocalRandom.current().nextDouble();
+                if (action < 0.40) {
+                    browse();
+                } else if (action < 0.60) {
+                    search();
+                } else if (action < 0.85) {
+                    send("GET /api/products/{id}", get("/api/products/" + catalog.product()));
+                } else if (action < 0.96) {
+                    addToCart();
+                } else if (action < 0.99) {
+                    if (cartItems > 0) {
+                        checkout();
+                    } else {
+                        addToCart();
+                    }
+                } else {
+                    // next iteration logs in as another user
+                    token = null;
+                }
+            }
+            return this;
+        }
+
+        private void login() {
+            String body = "{\"email\":\"" + catalog.email() + "\",\"password\":\"" + CatalogGenerator.PASSWORD + "\"}";
+            HttpResponse<String> response = send("POST /api/public/login", post("/api/public/login", body, false));
+            JsonNode login = read(response);
+            if (login == null) {
+                return;
+            }
+            token = login.path("jwtToken").asText();
+            JsonNode profile = read(send("GET /api/users/profile", get("/api/users/profile")));
+            if (profile == null) {
+                token = null;
+                return;
+            }
+            cartId = profile.path("unfinishedOrderId").asLong();
+            cartItems = 0;
+        }
+
+        private void browse() {
+            int page = (int) skewed(0, BROWSE_PAGES, 2);
+            String sort = ThreadLocalRandom.current().nextBoolean() ? "&sortBy=price&sortDirection=ASC" : "";
+            send("GET /api/products", get("/api/products?pageNo=" + page + "&pageSize=" + PAGE_SIZE + "&total=NONE" + sort));
+        }
+
+        private void search() {
+            String[] words = ThreadLocalRandom.current().nextBoolean() ? CatalogGenerator.NOUNS : CatalogGenerator.ADJECTIVES;
+            String word = words[(int) skewed(0, words.length, 2)];
+            send("GET /api/products?q=", get("/api/products?q=" + word + "&pageSize=" + PAGE_SIZE));
+        }
+
+        private void addToCart() {
+            String body = "{\"orderId\":" + cartId + ",\"productId\":" + catalog.product() + ",\"quantity\":1}";
+            if (read(send("POST /api/order_items", post("/api/order_items", body, true))) != null) {
+                cartItems++;
+            }
+        }
+
+        // a checked out cart is replaced by a new one, the profile has its id
+        private void checkout() {
+            if (send("POST /api/orders/{id}/checkout", post("/api/orders/" + cartId + "/checkout", "", true)) == null) {
+                // e.g. a popular product sold out; this cart would keep failing, so continue as another user
+                token = null;
+                return;
+            }
+            JsonNode profile = read(send("GET /api/users/profile", get("/api/users/profile")));
+            if (profile != null) {
+                cartId = profile.path("unfinishedOrderId").asLong();
+                cartItems = 0;
+            }
+        }
+
+        private HttpRequest get(String path) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path)).GET();
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            return request.build();
+        }
+
+        private HttpRequest post(String path, String body, boolean authenticated) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            if (authenticated) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            return request.build();
+        }
+
+        private HttpResponse<String> send(String endpoint, HttpRequest request) {
+            Recorder recorder = recorders.computeIfAbsent(endpoint, e -> new Recorder());
+            long started = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() / 100 != 2) {
+                    recorder.errors++;
+                    if (response.statusCode() == 401) {
+                        // expired access token, the next iteration logs in again
+                        token = null;
+                    }
+                    return null;
+                }
+                recorder.record(System.nanoTime() - started);
+                return response;
+            } catch (IOException e) {
+                recorder.errors++;
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        private static JsonNode read(HttpResponse<String> response) {
+            if (response == null) {
+                return null;
+            }
+            try {
+                return JSON.readTree(response.body());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        void print(String endpoint, Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-32s %10d %12.1f %9.1f %9.1f %9.1f %9.1f %7d%n",
+                    endpoint, count, count / (double) duration.toSeconds(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1.0), errors);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted.length == 0 ? 0.0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
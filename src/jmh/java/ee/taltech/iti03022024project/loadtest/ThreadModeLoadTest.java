@@ -0,0 +1,176 @@
+package ee.taltech.iti03022024project.loadtest;
+
+import ee.taltech.iti03022024project.Iti03022024ProjectApplication;
+import ee.taltech.iti03022024project.monitoring.PinningStats;
+import ee.taltech.iti03022024project.monitoring.VirtualThreadPinningMonitor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs the same closed-loop load against GET /api/products and POST /api/public/login twice, once with Tomcat's
+ * platform thread pool and once with virtual threads, and prints throughput and latency percentiles side by side.
+ * Both runs share the database and the connection pool size, so only the threading model differs.
+ * Run with {@code ./gradlew loadTest -Pconcurrency=400 -Pduration=30} (needs Docker). Client and server share the
+ * machine, so compare the two modes with each other rather than reading the numbers as absolute capacity.
+ */
+public final class ThreadModeLoadTest {
+
+    private static final int PRODUCTS = 5_000;
+    private static final String EMAIL = "loadtest@example.com";
+    private static final String PASSWORD = "loadtest-password";
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private ThreadModeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+        int poolSize = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        List<Result> results = new ArrayList<>();
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres")) {
+            postgres.start();
+            boolean seeded = false;
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                try (ConfigurableApplicationContext context = start(postgres, virtualThreads, poolSize)) {
+                    if (!seeded) {
+                        seed(context);
+                        seeded = true;
+                    }
+                    String mode = virtualThreads ? "virtual" : "platform";
+                    URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+                    HttpRequest listing = HttpRequest.newBuilder(base.resolve("/api/products?pageSize=20&total=NONE")).GET().build();
+                    HttpRequest login = HttpRequest.newBuilder(base.resolve("/api/public/login"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}"))
+                            .build();
+
+                    results.add(run(mode, "GET /api/products", listing, concurrency, duration));
+                    results.add(run(mode, "POST /api/public/login", login, concurrency, duration));
+
+                    PinningStats pinning = context.getBean(VirtualThreadPinningMonitor.class).stats();
+                    if (virtualThreads) {
+                        System.out.printf("pinned virtual threads: %d (max %.1f ms) %s%n",
+                                pinning.pinnedCount(), pinning.maxPinnedMillis(), pinning.sites());
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%nconcurrency %d, %d s per run, connection pool %d%n", concurrency, duration.toSeconds(), poolSize);
+        System.out.printf("%-9s %-24s %10s %12s %9s %9s %9s %7s%n",
+                "mode", "endpoint", "requests", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        results.forEach(Result::print);
+    }
+
+    private static ConfigurableApplicationContext start(PostgreSQLContainer<?> postgres, boolean virtualThreads, int poolSize) {
+        return new SpringApplicationBuilder(Iti03022024ProjectApplication.class)
+                .properties(
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword())
+                .run();
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, created_at, role_id) "
+                + "VALUES ('Load', 'Test', ?, ?, now(), 1)", EMAIL, hash);
+        jdbcTemplate.update("INSERT INTO categories (category_name) VALUES ('Load test')");
+        jdbcTemplate.update("""
+                INSERT INTO products (name, description, price, quantity_in_stock, seller_id, category_id, date_added)
+                SELECT 'Product ' || g, 'Description of product ' || g, g % 500 + 0.99, g % 40,
+                       (SELECT max(user_id) FROM users WHERE email = ?), (SELECT max(category_id) FROM categories), now()
+                FROM generate_series(1, ?) g
+                """, EMAIL, PRODUCTS);
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    private static Result run(String mode, String endpoint, HttpRequest request, int concurrency, Duration duration) throws Exception {
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            load(client, request, concurrency, WARMUP);
+            List<Worker> workers = load(client, request, concurrency, duration);
+
+            long[] latencies = workers.stream().flatMapToLong(worker -> Arrays.stream(worker.latencies, 0, worker.count)).sorted().toArray();
+            long errors = workers.stream().mapToLong(worker -> worker.errors).sum();
+            return new Result(mode, endpoint, latencies, errors, duration);
+        }
+    }
+
+    // every client thread sends its next request as soon as the previous one is answered
+    private static List<Worker> load(HttpClient client, HttpRequest request, int concurrency, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> new Worker().drive(client, request, deadline)));
+            }
+            List<Worker> workers = new ArrayList<>();
+            for (Future<Worker> future : futures) {
+                workers.add(future.get());
+            }
+            return workers;
+        }
+    }
+
+    private static final class Worker {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Worker drive(HttpClient client, HttpRequest request, long deadline) {
+            while (System.nanoTime() < deadline) {
+                long started = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        errors++;
+                        continue;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - started;
+            }
+            return this;
+        }
+    }
+
+    private record Result(String mode, String endpoint, long[] latencies, long errors, Duration duration) {
+
+        void print() {
+            Function<Double, Double> percentile = p -> latencies.length == 0
+                    ? 0.0
+                    : latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)] / 1e6;
+            System.out.printf("%-9s %-24s %10d %12.1f %9.1f %9.1f %9.1f %7d%n",
+                    mode, endpoint, latencies.length, latencies.length / (double) duration.toSeconds(),
+                    percentile.apply(0.50), percentile.apply(0.99), percentile.apply(1.0), errors);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ee.taltech.iti03022024project.mapstruct;
+
+import ee.taltech.iti03022024project.domain.CategoryEntity;
+import ee.taltech.iti03022024project.domain.OrderEntity;
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import ee.taltech.iti03022024project.domain.StatusEntity;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import ee.taltech.iti03022024project.dto.OrderDto;
+import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.dto.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated MapStruct mappers, one entity or DTO per operation. A listing page maps pageSize of these, so a
+ * regression here shows up multiplied in every list endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final OrderMapper orderMapper = new OrderMapperImpl();
+    private final UserMapper userMapper = new UserMapperImpl();
+
+    private ProductEntity productEntity;
+    private ProductDto productDto;
+    private OrderEntity orderEntity;
+    private OrderDto orderDto;
+    private UserEntity userEntity;
+    private UserDto userDto;
+
+    @Setup
+    public void setUp() {
+        UserEntity seller = new UserEntity();
+        seller.setUserId(7);
+        CategoryEntity category = new CategoryEntity();
+        category.setCategoryId(3);
+        StatusEntity status = new StatusEntity();
+        status.setStatusId(1);
+
+        productEntity = new ProductEntity();
+        productEntity.setProductId(42);
+        productEntity.setName("Desk lamp");
+        productEntity.setDescription("Warm light, dimmable, with a weighted base");
+        productEntity.setPrice(24.99);
+        productEntity.setQuantityInStock(12);
+        productEntity.setSeller(seller);
+        productEntity.setCategory(category);
+        productEntity.setDateAdded(Instant.now());
+        productEntity.setImageUrl("https://example.com/images/desk-lamp.png");
+        productDto = productMapper.toDto(productEntity);
+
+        orderEntity = new OrderEntity();
+        orderEntity.setOrderId(11);
+        orderEntity.setUser(seller);
+        orderEntity.setStatus(status);
+        orderDto = orderMapper.toDto(orderEntity);
+
+        userEntity = new UserEntity();
+        userEntity.setUserId(7);
+        userEntity.setFirstName("Mari");
+        userEntity.setLastName("Maasikas");
+        userEntity.setEmail("mari@example.com");
+        userEntity.setPassword("$2a$12$abcdefghijklmnopqrstuv");
+        userEntity.setPhone("5551234");
+        userEntity.setLocation("Tallinn");
+        userEntity.setUnfinishedOrder(orderEntity);
+        userEntity.setCreatedAt(Instant.now());
+        userDto = userMapper.toDto(userEntity);
+    }
+
+    @Benchmark
+    public ProductDto productToDto() {
+        return productMapper.toDto(productEntity);
+    }
+
+    @Benchmark
+    public ProductEntity productToEntity() {
+        return productMapper.toEntity(productDto);
+    }
+
+    @Benchmark
+    public OrderDto orderToDto() {
+        return orderMapper.toDto(orderEntity);
+    }
+
+    @Benchmark
+    public OrderEntity orderToEntity() {
+        return orderMapper.toEntity(orderDto);
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return userMapper.toDto(userEntity);
+    }
+
+    @Benchmark
+    public UserEntity userToEntity() {
+        return userMapper.toEntity(userDto);
+    }
+}
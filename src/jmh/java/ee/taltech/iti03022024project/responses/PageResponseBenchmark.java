@@ -0,0 +1,67 @@
+package ee.taltech.iti03022024project.responses;
+
+import ee.taltech.iti03022024project.dto.ProductDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Wrapping one page of 50 products in a PageResponse, for each way a listing can report its total
+ * (see TotalCount), and paging the in-memory category and status lists with ofList.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PageResponseBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private final Pageable pageable = PageRequest.of(3, PAGE_SIZE);
+    private Page<ProductDto> page;
+    private Slice<ProductDto> slice;
+    private List<ProductDto> all;
+
+    @Setup
+    public void setUp() {
+        all = IntStream.range(0, 1_000)
+                .mapToObj(i -> ProductDto.builder().id(i).name("Product " + i).price(i + 0.99).build())
+                .toList();
+        List<ProductDto> content = all.subList(150, 150 + PAGE_SIZE);
+        page = new PageImpl<>(content, pageable, all.size());
+        slice = new SliceImpl<>(content, pageable, true);
+    }
+
+    @Benchmark
+    public PageResponse<ProductDto> exactTotal() {
+        return new PageResponse<>(page);
+    }
+
+    @Benchmark
+    public PageResponse<ProductDto> noTotal() {
+        return new PageResponse<>(slice);
+    }
+
+    @Benchmark
+    public PageResponse<ProductDto> estimatedTotal() {
+        return new PageResponse<>(slice, 980);
+    }
+
+    @Benchmark
+    public PageResponse<ProductDto> ofList() {
+        return PageResponse.ofList(all, pageable);
+    }
+}
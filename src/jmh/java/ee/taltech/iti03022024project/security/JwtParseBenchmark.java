@@ -0,0 +1,78 @@
+package ee.taltech.iti03022024project.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.core.Authentication;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token handling cost in JwtRequestFilter: verifying the bearer token and turning its claims into the
+ * Authentication. The parse benchmarks parse twice, as write requests to /api/products did when ProductService
+ * parsed the token again after the filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtParseBenchmark {
+
+    private SecretKey key;
+    private String token;
+    private JwtRequestFilter filter;
+    private Claims parsedClaims;
+
+    @Setup
+    public void setUp() {
+        key = Jwts.SIG.HS256.key().build();
+        token = Jwts.builder()
+                .header().keyId("benchmark").and()
+                .subject("userEmail1@gmail.com")
+                .claims(Map.of(
+                        "userId", 1,
+                        "roles", List.of(Map.of("authority", "ROLE_USER"))
+                ))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
+                .signWith(key)
+                .compact();
+        filter = new JwtRequestFilter(new JwtKeyRing("benchmark", Map.of("benchmark", key)));
+        parsedClaims = filter.parseToken(token);
+    }
+
+    // previous behaviour: a fresh parser and a full verification for each of the two parses
+    @Benchmark
+    public void perRequestParserTwice(Blackhole blackhole) {
+        for (int i = 0; i < 2; i++) {
+            Claims claims = Jwts.parser()
+                    .verifyWith(key)
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            blackhole.consume(claims);
+        }
+    }
+
+    // shared parser plus claims cache: after the first request both parses are cache hits
+    @Benchmark
+    public void sharedParserWithCacheTwice(Blackhole blackhole) {
+        blackhole.consume(filter.parseToken(token));
+        blackhole.consume(filter.parseToken(token));
+    }
+
+    @Benchmark
+    public Authentication buildAuthToken() {
+        return filter.buildAuthToken(parsedClaims);
+    }
+}
@@ -0,0 +1,53 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.domain.RoleEntity;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import ee.taltech.iti03022024project.security.JwtKeyRing;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing an access token, the part of login and refresh that is neither password hashing
+ * (see PasswordHashBenchmark) nor a database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoginTokenBenchmark {
+
+    private LoginService loginService;
+    private UserEntity user;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = new JwtKeyRing("benchmark", Map.of("benchmark", Jwts.SIG.HS256.key().build()));
+        loginService = new LoginService(keyRing, null, null, null, null, null, null);
+        Field accessTokenTtl = ReflectionUtils.findField(LoginService.class, "accessTokenTtl");
+        ReflectionUtils.makeAccessible(accessTokenTtl);
+        ReflectionUtils.setField(accessTokenTtl, loginService, Duration.ofMinutes(15));
+
+        RoleEntity role = new RoleEntity();
+        role.setRoleName("USER");
+        user = new UserEntity();
+        user.setUserId(1);
+        user.setEmail("userEmail1@gmail.com");
+        user.setRole(role);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return loginService.generateToken(user);
+    }
+}
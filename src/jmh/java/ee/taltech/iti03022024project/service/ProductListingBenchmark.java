@@ -0,0 +1,122 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.Iti03022024ProjectApplication;
+import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import ee.taltech.iti03022024project.mapstruct.ProductMapper;
+import ee.taltech.iti03022024project.repository.ProductRepository;
+import ee.taltech.iti03022024project.responses.TotalCount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of GET /api/products against a real database, below the web layer.
+ * Run with {@code ./gradlew jmh} (the gc profiler is on) to compare allocation per operation as well as latency:
+ * the entity benchmarks reproduce the previous read path, the service benchmark is the current one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductListingBenchmark {
+
+    private static final int PRODUCTS = 5_000;
+    private static final int PAGE_SIZE = 50;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+
+    private ProductService productService;
+    private ProductRepository productRepository;
+    private ProductMapper productMapper;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    private final ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
+    private final Pageable page = PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "productId"));
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres");
+        postgres.start();
+        context = new SpringApplicationBuilder(Iti03022024ProjectApplication.class)
+                .properties(
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword())
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        TransactionTemplate seed = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        seed.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, created_at, role_id) "
+                    + "VALUES ('Bench', 'Seller', 'bench@example.com', 'x', now(), 1)");
+            jdbcTemplate.update("INSERT INTO categories (category_name) VALUES ('Bench')");
+            jdbcTemplate.update("""
+                    INSERT INTO products (name, description, price, quantity_in_stock, seller_id, category_id, date_added)
+                    SELECT 'Product ' || g, 'Description of product ' || g, g % 500 + 0.99, g % 40,
+                           (SELECT max(user_id) FROM users), (SELECT max(category_id) FROM categories), now()
+                    FROM generate_series(1, ?) g
+                    """, PRODUCTS);
+        });
+        jdbcTemplate.execute("ANALYZE products");
+
+        productService = context.getBean(ProductService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        productMapper = context.getBean(ProductMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    // previous behaviour: managed entities in a read-write transaction, snapshotted and dirty-checked on commit
+    @Benchmark
+    public void entitiesReadWrite(Blackhole blackhole) {
+        blackhole.consume(readWrite.execute(status -> loadEntities()));
+    }
+
+    // the same entities, but Hibernate skips the snapshots and the flush
+    @Benchmark
+    public void entitiesReadOnly(Blackhole blackhole) {
+        blackhole.consume(readOnly.execute(status -> loadEntities()));
+    }
+
+    // current path: read-only transaction selecting straight into DTOs
+    @Benchmark
+    public void serviceListing(Blackhole blackhole) {
+        blackhole.consume(productService.getProducts(criteria, 0, PAGE_SIZE, TotalCount.NONE));
+    }
+
+    private Object loadEntities() {
+        Specification<ProductEntity> all = Specification.where(null);
+        return productRepository.findAllSliced(all, page).map(productMapper::toDto).getContent();
+    }
+}
@@ -0,0 +1,56 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
+import ee.taltech.iti03022024project.domain.CategoryEntity;
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the Specification for GET /api/products from its criteria, without and with every filter set.
+ * Only the composition is measured; turning it into a query needs an EntityManager, see ProductListingBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductQueryBenchmark {
+
+    private final ProductSearchCriteria noFilters = ProductSearchCriteria.builder().build();
+    private ProductSearchCriteria allFilters;
+
+    @Setup
+    public void setUp() {
+        UserEntity seller = new UserEntity();
+        seller.setUserId(7);
+        CategoryEntity category = new CategoryEntity();
+        category.setCategoryId(3);
+        allFilters = ProductSearchCriteria.builder()
+                .productId(42)
+                .name("lamp")
+                .description("dimmable")
+                .price(24.99)
+                .quantityInStock(1)
+                .seller(seller)
+                .category(category)
+                .build();
+    }
+
+    @Benchmark
+    public Specification<ProductEntity> specificationNoFilters() {
+        return ProductService.buildSpecification(noFilters);
+    }
+
+    @Benchmark
+    public Specification<ProductEntity> specificationAllFilters() {
+        return ProductService.buildSpecification(allFilters);
+    }
+}
@@ -0,0 +1,125 @@
+package ee.taltech.iti03022024project.service;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import ee.taltech.iti03022024project.dto.ProductDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost of one product update as seen by the request thread, with the file appender written synchronously
+ * and behind the AsyncAppender from logback-spring.xml. entityToString logs what updateProduct logged before (the
+ * request DTO and the updated entity at INFO, repeated by the controller), idsOnly logs what it logs now.
+ * The async appender drops events once its queue is full, so under this sustained load its numbers are the enqueue
+ * cost and not the disk's. Run with {@code ./gradlew jmh -Pbenchmarks=RequestLoggingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class RequestLoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n";
+
+    @Param({"sync", "async"})
+    private String appender;
+
+    private Path file;
+    private LoggerContext context;
+    private Logger log;
+
+    private ProductDto productDto;
+    private ProductEntity product;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("request-logging", ".log");
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> root = fileAppender;
+        if ("async".equals(appender)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(fileAppender);
+            async.start();
+            root = async;
+        }
+
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        rootLogger.addAppender(root);
+        log = context.getLogger(ProductService.class);
+
+        productDto = ProductDto.builder()
+                .name("Desk lamp")
+                .description("Warm light, dimmable, with a weighted base and a two metre cable")
+                .price(24.99)
+                .stockQuantity(12)
+                .categoryId(3)
+                .imageUrl("https://example.com/images/desk-lamp.png")
+                .build();
+        product = new ProductEntity();
+        product.setProductId(42);
+        product.setName(productDto.getName());
+        product.setDescription(productDto.getDescription());
+        product.setPrice(productDto.getPrice());
+        product.setQuantityInStock(productDto.getStockQuantity());
+        product.setImageUrl(productDto.getImageUrl());
+        product.setDateAdded(Instant.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void entityToString() {
+        log.info("Received request to update product with id {}, with data: {}", 42, productDto);
+        log.info("Attempting to update product with id {}, with data: {}", 42, productDto);
+        log.info("Product updated successfully: {}", product);
+        log.info("Product updated successfully: {}", productDto);
+    }
+
+    @Benchmark
+    public void idsOnly() {
+        log.debug("Received request to update product: productId={}", 42);
+        log.debug("Updating product: productId={}", 42);
+        log.info("Product updated: productId={}", 42);
+    }
+}
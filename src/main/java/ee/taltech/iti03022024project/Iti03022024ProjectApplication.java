@@ -1,9 +1,12 @@
 package ee.taltech.iti03022024project;
 
+import ee.taltech.iti03022024project.repository.SliceableJpaRepositoryImpl;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
+@EnableJpaRepositories(repositoryBaseClass = SliceableJpaRepositoryImpl.class)
 public class Iti03022024ProjectApplication {
 
     public static void main(String[] args) {
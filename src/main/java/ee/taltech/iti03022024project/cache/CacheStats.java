@@ -0,0 +1,16 @@
+package ee.taltech.iti03022024project.cache;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record CacheStats(
+        String name,
+        long size,
+        long hits,
+        long misses
+) {
+    @JsonProperty
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,47 @@
+package ee.taltech.iti03022024project.cache;
+
+import ee.taltech.iti03022024project.domain.CategoryEntity;
+import ee.taltech.iti03022024project.dto.CategoryDto;
+import ee.taltech.iti03022024project.mapstruct.CategoryMapper;
+import ee.taltech.iti03022024project.repository.CategoryRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class CategoryCache {
+
+    private final SnapshotCache<Integer, CategoryDto> cache;
+
+    public CategoryCache(CategoryRepository categoryRepository, CategoryMapper categoryMapper) {
+        this.cache = new SnapshotCache<>("categories",
+                () -> categoryRepository.findAll(Sort.by("categoryId")),
+                categoryMapper::toDto, CategoryEntity::getVersion, CategoryDto::getId);
+    }
+
+    public Optional<CategoryDto> findById(int id) {
+        return cache.get(id);
+    }
+
+    public List<CategoryDto> findAll() {
+        return cache.values();
+    }
+
+    public String tag() {
+        return cache.tag();
+    }
+
+    public void invalidate() {
+        cache.invalidate();
+    }
+
+    public void reload() {
+        cache.reload();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
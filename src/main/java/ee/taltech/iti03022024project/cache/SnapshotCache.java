@@ -0,0 +1,151 @@
+package ee.taltech.iti03022024project.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Whole-table cache for small, rarely changing tables. Reads are served from an immutable snapshot,
+ * which is loaded on first use and dropped after every change, so the next read loads it again.
+ * Every snapshot carries a tag, a digest of the key and version of each row, that callers can hand out as an ETag.
+ */
+public class SnapshotCache<K, V> {
+
+    private final String name;
+    private final Supplier<Snapshot<K, V>> loader;
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // bumped on every invalidation, so a load that raced with a change is not kept
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot<K, V> snapshot;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // without a version column the value's hashCode stands in for it
+    public SnapshotCache(String name, Supplier<List<V>> loader, Function<V, K> keyExtractor) {
+        this(name, loader, Function.identity(), Object::hashCode, keyExtractor);
+    }
+
+    /**
+     * Loads rows of type E, e.g. entities, and keeps them mapped to V. The version of each row goes into the tag,
+     * so any change that bumps a version, adds or removes a row gives the next snapshot a different tag.
+     */
+    public <E> SnapshotCache(String name, Supplier<List<E>> loader, Function<E, V> mapper,
+                             ToLongFunction<E> versionExtractor, Function<V, K> keyExtractor) {
+        this.name = name;
+        this.loader = () -> load(loader.get(), mapper, versionExtractor, keyExtractor);
+    }
+
+    public Optional<V> get(K key) {
+        return Optional.ofNullable(current().byKey().get(key));
+    }
+
+    // values in the order the loader returned them
+    public List<V> values() {
+        return current().values();
+    }
+
+    // hex encoded; stays the same until a row is added, removed or gets a new version
+    public String tag() {
+        return current().tag();
+    }
+
+    /**
+     * Drops the snapshot once the surrounding transaction commits, or right away outside of one.
+     * Dropping it before commit would let a concurrent read cache the old rows again.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    public void invalidateNow() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    public void reload() {
+        invalidateNow();
+        current();
+    }
+
+    public CacheStats stats() {
+        Snapshot<K, V> loaded = snapshot;
+        return new CacheStats(name, loaded == null ? 0 : loaded.values().size(), hits.sum(), misses.sum());
+    }
+
+    private Snapshot<K, V> current() {
+        Snapshot<K, V> loaded = snapshot;
+        if (loaded != null) {
+            hits.increment();
+            return loaded;
+        }
+        misses.increment();
+        loadLock.lock();
+        try {
+            loaded = snapshot;
+            if (loaded != null) {
+                return loaded;
+            }
+            long loadedGeneration = generation.get();
+            loaded = loader.get();
+            if (generation.get() == loadedGeneration) {
+                snapshot = loaded;
+            }
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static <E, K, V> Snapshot<K, V> load(List<E> rows, Function<E, V> mapper,
+                                                 ToLongFunction<E> versionExtractor, Function<V, K> keyExtractor) {
+        MessageDigest digest = sha256();
+        List<V> values = new ArrayList<>(rows.size());
+        Map<K, V> byKey = new LinkedHashMap<>();
+        for (E row : rows) {
+            V value = mapper.apply(row);
+            K key = keyExtractor.apply(value);
+            values.add(value);
+            byKey.put(key, value);
+            digest.update((key + ":" + versionExtractor.applyAsLong(row) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        String tag = HexFormat.of().formatHex(digest.digest(), 0, 16);
+        return new Snapshot<>(Map.copyOf(byKey), List.copyOf(values), tag);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Snapshot<K, V>(Map<K, V> byKey, List<V> values, String tag) {
+    }
+}
@@ -0,0 +1,51 @@
+package ee.taltech.iti03022024project.cache;
+
+import ee.taltech.iti03022024project.domain.StatusEntity;
+import ee.taltech.iti03022024project.dto.StatusDto;
+import ee.taltech.iti03022024project.mapstruct.StatusMapper;
+import ee.taltech.iti03022024project.repository.StatusRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class StatusCache {
+
+    private final SnapshotCache<Integer, StatusDto> cache;
+
+    public StatusCache(StatusRepository statusRepository, StatusMapper statusMapper) {
+        this.cache = new SnapshotCache<>("statuses",
+                () -> statusRepository.findAll(Sort.by("statusId")),
+                statusMapper::toDto, StatusEntity::getVersion, StatusDto::getId);
+    }
+
+    public Optional<StatusDto> findById(int id) {
+        return cache.get(id);
+    }
+
+    public boolean exists(int id) {
+        return cache.get(id).isPresent();
+    }
+
+    public List<StatusDto> findAll() {
+        return cache.values();
+    }
+
+    public String tag() {
+        return cache.tag();
+    }
+
+    public void invalidate() {
+        cache.invalidate();
+    }
+
+    public void reload() {
+        cache.reload();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,117 @@
+package ee.taltech.iti03022024project.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small in-process cache bounded by entry count, with least recently used entries evicted first
+ * and every entry expiring after its own deadline.
+ */
+public class TtlCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final Duration defaultTtl;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TtlCache(String name, int maxSize, Duration defaultTtl) {
+        this(name, maxSize, defaultTtl, Clock.systemUTC());
+    }
+
+    public TtlCache(String name, int maxSize, Duration defaultTtl, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlCache.this.maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        Instant now = clock.instant();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (!entry.expiresAt().isAfter(now)) {
+                entries.remove(key);
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, clock.instant().plus(defaultTtl));
+    }
+
+    public void put(K key, V value, Instant expiresAt) {
+        if (key == null || value == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, expiresAt));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        if (key == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(name, entries.size(), hits.sum(), misses.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry<V>(V value, Instant expiresAt) {
+    }
+}
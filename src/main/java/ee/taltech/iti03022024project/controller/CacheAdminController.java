@@ -0,0 +1,46 @@
+package ee.taltech.iti03022024project.controller;
+
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.service.CacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/admin/caches")
+@Tag(name = "Caches", description = "Inspection and reloading of in-memory caches (admin only)")
+public class CacheAdminController {
+
+    private final CacheService cacheService;
+
+    @Operation(summary = "Get cache statistics", description = "Returns size, hits, misses and hit rate of every in-memory cache.")
+    @ApiResponse(responseCode = "200", description = "Cache statistics returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CacheStats.class))))
+    @ApiResponse(responseCode = "403", description = "User is not an admin.", content = @Content())
+    @GetMapping
+    public ResponseEntity<List<CacheStats>> getCacheStats() {
+        return ResponseEntity.ok(cacheService.getStats());
+    }
+
+    @Operation(summary = "Reload reference data caches", description = "Reloads the category and status caches from the database and returns fresh statistics.")
+    @ApiResponse(responseCode = "200", description = "Caches reloaded successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CacheStats.class))))
+    @ApiResponse(responseCode = "403", description = "User is not an admin.", content = @Content())
+    @PostMapping("/reload")
+    public ResponseEntity<List<CacheStats>> reloadCaches() {
+        log.info("Received request to reload reference data caches");
+        return ResponseEntity.ok(cacheService.reloadReferenceData());
+    }
+}
@@ -14,6 +14,7 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.net.URI;
 
@@ -25,33 +26,40 @@ import java.net.URI;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final ConditionalGet conditionalGet;
 
     @Operation(summary = "Get all categories", description = "Returns a list of all categories recorded in the database. Supports filtration and pagination.")
     @ApiResponse(responseCode = "200", description = "Page of categories returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PageResponse.class))))
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match.", content = @Content())
     @GetMapping
     public ResponseEntity<PageResponse<CategoryDto>> getCategories(
             @RequestParam(defaultValue = "") String search,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "5") int pageSize
+            @RequestParam(defaultValue = "5") int pageSize,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(categoryService.getCategories(search, pageNo, pageSize));
+        return conditionalGet.referenceData(request, categoryService.getCategoriesTag(),
+                () -> categoryService.getCategories(search, pageNo, pageSize));
     }
 
     @Operation(summary = "Get category by id", description = "Returns a category with the specified id (non-negative integer).")
     @ApiResponse(responseCode = "200", description = "Category returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategoryDto.class)))
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match.", content = @Content())
     @ApiResponse(responseCode = "404", description = "Category not found.", content = @Content())
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryDto> getCategoryById(@PathVariable int id) {
-        return ResponseEntity.ok(categoryService.getCategoryById(id));
+    public ResponseEntity<CategoryDto> getCategoryById(@PathVariable int id, WebRequest request) {
+        String tag = categoryService.getCategoriesTag();
+        // a lookup in the cache, so an unknown id is still a 404 whatever If-None-Match says
+        CategoryDto category = categoryService.getCategoryById(id);
+        return conditionalGet.referenceData(request, tag, () -> category);
     }
 
     @Operation(summary = "Create category", description = "Creates a new category and returns it.")
     @ApiResponse(responseCode = "201", description = "Category created successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategoryDto.class)))
     @PostMapping
     public ResponseEntity<CategoryDto> createCategory(@Valid @RequestBody CategoryDto categoryDto) {
-        log.info("Received request to create category: {}", categoryDto);
+        log.debug("Received request to create category");
         CategoryDto createdCategory = categoryService.createCategory(categoryDto);
-        log.info("Category created successfully: {}", createdCategory);
         int id = createdCategory.getId();
         return ResponseEntity.created(URI.create(String.format("/api/categories/%s", id))).body(createdCategory);
     }
@@ -61,9 +69,8 @@ public class CategoryController {
     @ApiResponse(responseCode = "404", description = "Category not found.", content = @Content())
     @PatchMapping("/{id}")
     public ResponseEntity<CategoryDto> updateCategory(@PathVariable int id, @Valid @RequestBody CategoryDto categoryDto) {
-        log.info("Received request to update category with id {}, with data: {}", id, categoryDto);
+        log.debug("Received request to update category: categoryId={}", id);
         CategoryDto updatedCategory = categoryService.updateCategory(id, categoryDto);
-        log.info("Category updated successfully: {}", categoryDto);
         return ResponseEntity.ok(updatedCategory);
     }
 
@@ -72,9 +79,8 @@ public class CategoryController {
     @ApiResponse(responseCode = "404", description = "Category not found.")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCategory(@PathVariable int id) {
-        log.info("Received request to delete category with id {}", id);
+        log.debug("Received request to delete category: categoryId={}", id);
         categoryService.deleteCategory(id);
-        log.info("Category deleted successfully: {}", id);
         return ResponseEntity.noContent().build();
     }
 }
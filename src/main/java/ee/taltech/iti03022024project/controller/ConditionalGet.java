@@ -0,0 +1,44 @@
+package ee.taltech.iti03022024project.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET for resources whose ETag is cheaper to get than their body, e.g. a row version.
+ * If-None-Match is checked first and answered with 304 Not Modified, so the body is only loaded and
+ * serialized when the client's copy is stale. The ETag has to be read before the body: a body newer
+ * than its ETag only costs the client one more full response, the other way round it would keep a stale copy.
+ */
+@Component
+public class ConditionalGet {
+
+    private final CacheControl referenceData;
+
+    public ConditionalGet(@Value("${app.http.reference-data-max-age:PT1M}") Duration referenceDataMaxAge) {
+        this.referenceData = CacheControl.maxAge(referenceDataMaxAge).mustRevalidate();
+    }
+
+    // categories and statuses: clients reuse them for max-age without asking, then revalidate
+    public <T> ResponseEntity<T> referenceData(WebRequest request, String eTag, Supplier<T> body) {
+        return respond(request, eTag, referenceData, body);
+    }
+
+    // stock and prices change all the time, so every use is revalidated
+    public <T> ResponseEntity<T> alwaysRevalidate(WebRequest request, String eTag, Supplier<T> body) {
+        return respond(request, eTag, CacheControl.noCache(), body);
+    }
+
+    private static <T> ResponseEntity<T> respond(WebRequest request, String eTag, CacheControl cacheControl, Supplier<T> body) {
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(body.get());
+    }
+}
@@ -0,0 +1,68 @@
+package ee.taltech.iti03022024project.controller;
+
+import ee.taltech.iti03022024project.exception.ServiceOverloadedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many exports stream at the same time. An export keeps a read-only transaction, and with it a pooled
+ * connection, open until its last row is written, so a handful of slow downloads could otherwise take the whole
+ * connection pool away from ordinary requests. The permit is taken before the response starts, so a rejected
+ * export still gets a clean 503 with Retry-After. It is given back once, either when the body has been written or
+ * has failed, or when the async request ends without the body having run (timeout, rejected task, client gone).
+ */
+@Slf4j
+@Component
+public class ExportLimiter {
+
+    static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+    static final String INTERCEPTOR_KEY = ExportLimiter.class.getName();
+
+    private final Semaphore permits;
+
+    public ExportLimiter(@Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    public StreamingResponseBody limit(WebRequest request, StreamingResponseBody body) {
+        if (!permits.tryAcquire()) {
+            log.warn("Export rejected, all export slots are in use");
+            throw new ServiceOverloadedException("Too many exports are running, try again later", RETRY_AFTER);
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        // afterCompletion runs however the async request ends, including when the body never got to run
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(INTERCEPTOR_KEY, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                release.run();
+            }
+        });
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -2,15 +2,18 @@ package ee.taltech.iti03022024project.controller;
 
 import ee.taltech.iti03022024project.security.LoginRequestDto;
 import ee.taltech.iti03022024project.security.LoginResponseDto;
+import ee.taltech.iti03022024project.security.RefreshTokenRequestDto;
 import ee.taltech.iti03022024project.service.LoginService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,9 +29,29 @@ public class LoginController {
     @Operation(summary = "Login", description = "Logs in the user and returns a LoginResponseDTO with token.")
     @ApiResponse(responseCode = "200", description = "User logged in successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponseDto.class)))
     @ApiResponse(responseCode = "401", description = "User with this does not exist in database or password is invalid.", content = @Content())
+    @ApiResponse(responseCode = "429", description = "Too many failed logins for this email, or for this client if the per-address limit is on, see Retry-After.", content = @Content())
+    @ApiResponse(responseCode = "503", description = "Password verification is overloaded, see Retry-After.", content = @Content())
     @PostMapping("/api/public/login")
-    public LoginResponseDto login(@Valid @RequestBody LoginRequestDto request) {
-        log.info("Received login request: {}", request.getEmail());
-        return loginService.login(request);
+    public LoginResponseDto login(@Valid @RequestBody LoginRequestDto request, HttpServletRequest servletRequest) {
+        log.debug("Received login request");
+        return loginService.login(request, servletRequest.getRemoteAddr());
+    }
+
+    @Operation(summary = "Refresh tokens", description = "Exchanges a refresh token for a new access token and a new refresh token, without the password. The presented refresh token is used up; presenting it again revokes all refresh tokens of the user.")
+    @ApiResponse(responseCode = "200", description = "Tokens refreshed successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponseDto.class)))
+    @ApiResponse(responseCode = "400", description = "Refresh token is missing.", content = @Content())
+    @ApiResponse(responseCode = "401", description = "Refresh token is unknown, expired, revoked or already used.", content = @Content())
+    @PostMapping("/api/public/token/refresh")
+    public LoginResponseDto refresh(@Valid @RequestBody RefreshTokenRequestDto request) {
+        return loginService.refresh(request.refreshToken());
+    }
+
+    @Operation(summary = "Logout", description = "Revokes the refresh token. The access token stays valid until it expires.")
+    @ApiResponse(responseCode = "204", description = "Refresh token revoked, or it was not valid anyway.", content = @Content())
+    @ApiResponse(responseCode = "400", description = "Refresh token is missing.", content = @Content())
+    @PostMapping("/api/public/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequestDto request) {
+        loginService.logout(request.refreshToken());
+        return ResponseEntity.noContent().build();
     }
 }
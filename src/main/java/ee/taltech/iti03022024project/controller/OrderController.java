@@ -2,7 +2,9 @@ package ee.taltech.iti03022024project.controller;
 
 import ee.taltech.iti03022024project.criteria.OrderSearchCriteria;
 import ee.taltech.iti03022024project.dto.OrderDto;
+import ee.taltech.iti03022024project.responses.ExportFormat;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -13,8 +15,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 
@@ -26,16 +32,34 @@ import java.net.URI;
 public class OrderController {
 
     private final OrderService orderService;
+    private final ExportLimiter exportLimiter;
 
-    @Operation(summary = "Get all orders", description = "Returns a page of orders with the specified criteria, page number and page size.")
+    @Operation(summary = "Get all orders", description = "Returns a page of orders with the specified criteria, page number and page size. The total parameter controls counting: EXACT (default), NONE to skip the count query, ESTIMATE to use the database planner estimate for unfiltered listings.")
     @ApiResponse(responseCode = "200", description = "Page of order items returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PageResponse.class))))
     @GetMapping
     public ResponseEntity<PageResponse<OrderDto>> getOrders(
             @Valid @ModelAttribute OrderSearchCriteria criteria,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "5") int pageSize
+            @RequestParam(defaultValue = "5") int pageSize,
+            @RequestParam(defaultValue = "EXACT") TotalCount total
     ) {
-        return ResponseEntity.ok(orderService.getOrders(criteria, pageNo, pageSize));
+        return ResponseEntity.ok(orderService.getOrders(criteria, pageNo, pageSize, total));
+    }
+
+    @Operation(summary = "Export orders", description = "Streams every order matching the criteria, ordered by id, as NDJSON (default) or as CSV with a header line. Rows are read through a database cursor and written as they arrive, so there is no paging and no count query.")
+    @ApiResponse(responseCode = "200", description = "Orders streamed successfully.", content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    @ApiResponse(responseCode = "503", description = "Too many exports are already running, retry after the Retry-After delay.", content = @Content())
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @Valid @ModelAttribute OrderSearchCriteria criteria,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            WebRequest request) {
+        log.info("Received request to export orders: format={}", format);
+        StreamingResponseBody body = exportLimiter.limit(request, out -> orderService.exportOrders(criteria, format, out));
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("orders." + format.extension()).build().toString())
+                .body(body);
     }
 
     @Operation(summary = "Get order by id", description = "Returns an order with the specified id (non-negative integer).")
@@ -50,9 +74,8 @@ public class OrderController {
     @ApiResponse(responseCode = "201", description = "Order created successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDto.class)))
     @PostMapping
     public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody OrderDto orderDto) {
-        log.info("Received request to create order: {}", orderDto);
+        log.debug("Received request to create order");
         OrderDto createdOrder = orderService.createOrder(orderDto);
-        log.info("Order created successfully: {}", createdOrder);
         int id = createdOrder.getId();
         return ResponseEntity.created(URI.create(String.format("/api/orders/%s", id))).body(createdOrder);
     }
@@ -60,22 +83,32 @@ public class OrderController {
     @Operation(summary = "Update order", description = "Updates order with the specified id and returns it.")
     @ApiResponse(responseCode = "200", description = "Order updated successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDto.class)))
     @ApiResponse(responseCode = "404", description = "Order not found.", content = @Content())
+    @ApiResponse(responseCode = "409", description = "Only admins may move an order into or out of the cart and placed statuses, owners place orders through checkout.", content = @Content())
     @PatchMapping("/{id}")
     public ResponseEntity<OrderDto> updateOrderStatus(@PathVariable int id, @Valid @RequestBody OrderDto orderDto) {
-        log.info("Received request to update status of order with id {}, with data: {}", id, orderDto);
+        log.debug("Received request to update order status: orderId={}", id);
         OrderDto updatedOrder = orderService.updateOrder(id, orderDto);
-        log.info("Order updated successfully: {}", updatedOrder);
         return ResponseEntity.ok(updatedOrder);
     }
 
+    @Operation(summary = "Check out order", description = "Places the cart order with the specified id in a single transaction: reserves stock for all of its items, fixes their prices at the current product prices and gives the owner a new empty cart.")
+    @ApiResponse(responseCode = "200", description = "Order placed successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDto.class)))
+    @ApiResponse(responseCode = "404", description = "Order not found.", content = @Content())
+    @ApiResponse(responseCode = "409", description = "Order is not a cart, is empty or there is not enough stock.", content = @Content())
+    @PostMapping("/{id}/checkout")
+    public ResponseEntity<OrderDto> checkout(@PathVariable int id) {
+        log.debug("Received request to check out order: orderId={}", id);
+        OrderDto placedOrder = orderService.checkout(id);
+        return ResponseEntity.ok(placedOrder);
+    }
+
     @Operation(summary = "Delete order", description = "Deletes order with the specified id.")
     @ApiResponse(responseCode = "204", description = "Order deleted successfully.")
     @ApiResponse(responseCode = "404", description = "Order not found.")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable int id) {
-        log.info("Received request to delete order with id {}", id);
+        log.debug("Received request to delete order: orderId={}", id);
         orderService.deleteOrder(id);
-        log.info("Order deleted successfully: {}", id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -3,6 +3,7 @@ package ee.taltech.iti03022024project.controller;
 import ee.taltech.iti03022024project.criteria.OrderItemSearchCriteria;
 import ee.taltech.iti03022024project.dto.OrderItemDto;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.service.OrderItemService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -11,12 +12,15 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.List;
 
 @Slf4j
 @AllArgsConstructor
@@ -27,15 +31,16 @@ public class OrderItemController {
 
     private final OrderItemService orderItemService;
 
-    @Operation(summary = "Get all order items", description = "Returns a list of all order items recorded in the database. Supports filtration and pagination.")
+    @Operation(summary = "Get all order items", description = "Returns a list of all order items recorded in the database. Supports filtration and pagination. The total parameter controls counting: EXACT (default), NONE to skip the count query, ESTIMATE to use the database planner estimate for unfiltered listings.")
     @ApiResponse(responseCode = "200", description = "Page of order items returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PageResponse.class))))
     @GetMapping
     public ResponseEntity<PageResponse<OrderItemDto>> getOrderItems(
             @Valid @ModelAttribute OrderItemSearchCriteria criteria,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "5") int pageSize
+            @RequestParam(defaultValue = "5") int pageSize,
+            @RequestParam(defaultValue = "EXACT") TotalCount total
     ) {
-        return ResponseEntity.ok(orderItemService.getOrderItems(criteria, pageNo, pageSize));
+        return ResponseEntity.ok(orderItemService.getOrderItems(criteria, pageNo, pageSize, total));
     }
 
     @Operation(summary = "Get order item by id", description = "Returns an order item with the specified id (non-negative integer).")
@@ -46,17 +51,33 @@ public class OrderItemController {
         return orderItemService.getOrderItemById(id);
     }
 
-    @Operation(summary = "Create order item", description = "Creates a new order item and returns it.")
+    @Operation(summary = "Create order item", description = "Creates a new order item and returns it. The order has to be a cart of the caller (admins may use any cart).")
     @ApiResponse(responseCode = "201", description = "Order item created successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItemDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid order item, e.g. without orderId.", content = @Content())
+    @ApiResponse(responseCode = "403", description = "The order belongs to another user.", content = @Content())
+    @ApiResponse(responseCode = "404", description = "The order does not exist.", content = @Content())
+    @ApiResponse(responseCode = "409", description = "The order is no longer a cart.", content = @Content())
     @PostMapping
     public ResponseEntity<OrderItemDto> createOrderItem(@Valid @RequestBody OrderItemDto orderItemDto) {
-        log.info("Received request to create order: {}", orderItemDto);
+        log.debug("Received request to create order item: orderId={}", orderItemDto.getOrderId());
         OrderItemDto createdOrderItem = orderItemService.createOrderItem(orderItemDto);
-        log.info("OrderItem created successfully: {}", createdOrderItem);
         int id = createdOrderItem.getId();
         return ResponseEntity.created(URI.create(String.format("/api/order_items/%s", id))).body(createdOrderItem);
     }
 
+    @Operation(summary = "Create order items in bulk", description = "Creates up to 500 order items in one request and returns them in the same order. Every order has to be a cart of the caller (admins may use any cart). Either all of them are created or none.")
+    @ApiResponse(responseCode = "201", description = "Order items created successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = OrderItemDto.class))))
+    @ApiResponse(responseCode = "400", description = "Empty list, more than 500 items or an invalid item.", content = @Content())
+    @ApiResponse(responseCode = "403", description = "One of the orders belongs to another user.", content = @Content())
+    @ApiResponse(responseCode = "404", description = "One of the orders does not exist.", content = @Content())
+    @ApiResponse(responseCode = "409", description = "One of the orders is no longer a cart.", content = @Content())
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderItemDto>> createOrderItems(@RequestBody @Size(min = 1, max = 500) List<@Valid OrderItemDto> orderItemDtos) {
+        log.debug("Received request to create order items: count={}", orderItemDtos.size());
+        List<OrderItemDto> createdOrderItems = orderItemService.createOrderItems(orderItemDtos);
+        return ResponseEntity.status(HttpStatus.CREATED).body(createdOrderItems);
+    }
+
     // No need to implement updateOrderItem method for now
 
     @Operation(summary = "Delete order item", description = "Deletes order item with the specified id.")
@@ -64,9 +85,8 @@ public class OrderItemController {
     @ApiResponse(responseCode = "404", description = "Order item not found.")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrderItem(@PathVariable int id) {
-        log.info("Received request to delete order item with id {}", id);
+        log.debug("Received request to delete order item: orderItemId={}", id);
         orderItemService.deleteOrderItem(id);
-        log.info("OrderItem deleted successfully: {}", id);
         return ResponseEntity.noContent().build();
     }
 }
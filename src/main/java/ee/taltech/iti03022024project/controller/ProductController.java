@@ -2,9 +2,17 @@ package ee.taltech.iti03022024project.controller;
 
 import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
 import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.dto.ProductSearchHitDto;
+import ee.taltech.iti03022024project.responses.CursorPageResponse;
+import ee.taltech.iti03022024project.responses.ExportFormat;
+import ee.taltech.iti03022024project.responses.ImportReport;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
+import ee.taltech.iti03022024project.security.UserPrincipal;
+import ee.taltech.iti03022024project.service.ProductImportService;
 import ee.taltech.iti03022024project.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,9 +20,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.net.URI;
 
 @Slf4j
@@ -24,57 +39,121 @@ import java.net.URI;
 @Tag(name = "Products", description = "Operations related to product objects")
 public class ProductController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ConditionalGet conditionalGet;
+    private final ExportLimiter exportLimiter;
 
-    @Operation(summary = "Get all products", description = "Returns a page with list of some products recorded in the database (depending on pagination parameters).")
+    @Operation(summary = "Get all products", description = "Returns a page with list of some products recorded in the database (depending on pagination parameters). The total parameter controls counting: EXACT (default), NONE to skip the count query, ESTIMATE to use the database planner estimate for unfiltered listings.")
     @ApiResponse(responseCode = "200", description = "List of products returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PageResponse.class)))
     @GetMapping
     public ResponseEntity<PageResponse<ProductDto>> getProducts(
             @Valid @ModelAttribute ProductSearchCriteria criteria,
             @RequestParam(defaultValue = "0") int pageNo,
+            @RequestParam(defaultValue = "5") int pageSize,
+            @RequestParam(defaultValue = "EXACT") TotalCount total) {
+        return ResponseEntity.ok(productService.getProducts(criteria, pageNo, pageSize, total));
+    }
+
+    @Operation(summary = "Get products after cursor", description = "Returns the next page of products after the given cursor (keyset pagination). Pass an empty cursor for the first page and the returned nextCursor for the following ones; sorting is supported by productId, price and name.")
+    @ApiResponse(responseCode = "200", description = "Page of products returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Malformed cursor or cursor not matching the sort order.", content = @Content())
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPageResponse<ProductDto>> getProductsAfter(
+            @Valid @ModelAttribute ProductSearchCriteria criteria,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "5") int pageSize) {
+        return ResponseEntity.ok(productService.getProductsAfter(criteria, cursor, pageSize));
+    }
+
+    @Operation(summary = "Search products", description = "Full-text search over product names and descriptions. Every word of q is matched as a prefix, results are ordered by relevance (name matches weigh more than description matches) and come with highlighted name and description snippets. The response reports hasNext instead of totals.")
+    @ApiResponse(responseCode = "200", description = "Page of matching products returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PageResponse.class)))
+    @GetMapping(params = "q")
+    public ResponseEntity<PageResponse<ProductSearchHitDto>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int pageNo,
             @RequestParam(defaultValue = "5") int pageSize) {
-        return ResponseEntity.ok(productService.getProducts(criteria, pageNo, pageSize));
+        return ResponseEntity.ok(productService.searchProducts(q, pageNo, pageSize));
+    }
+
+    @Operation(summary = "Export products", description = "Streams every product matching the criteria, in the same order as the listing, as NDJSON (default) or as CSV with a header line. Rows are read through a database cursor and written as they arrive, so there is no paging and no count query.")
+    @ApiResponse(responseCode = "200", description = "Products streamed successfully.", content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    @ApiResponse(responseCode = "503", description = "Too many exports are already running, retry after the Retry-After delay.", content = @Content())
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @Valid @ModelAttribute ProductSearchCriteria criteria,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            WebRequest request) {
+        log.info("Received request to export products: format={}", format);
+        StreamingResponseBody body = exportLimiter.limit(request, out -> productService.exportProducts(criteria, format, out));
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("products." + format.extension()).build().toString())
+                .body(body);
     }
 
     @Operation(summary = "Get product by id", description = "Returns a product with the specified id (non-negative integer).")
     @ApiResponse(responseCode = "200", description = "Product returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductDto.class)))
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match.", content = @Content())
     @ApiResponse(responseCode = "404", description = "Product not found.", content = @Content())
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDto> getProductById(@PathVariable int id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<ProductDto> getProductById(@PathVariable int id, WebRequest request) {
+        // the version alone is read from the primary key index; the product is only loaded for a stale or missing copy
+        return conditionalGet.alwaysRevalidate(request, String.valueOf(productService.getProductVersion(id)),
+                () -> productService.getProductById(id));
     }
 
-    @Operation(summary = "Get products by user id", description = "Returns a page with list of some products recorded in the database (depending on pagination parameters) by user id.")
+    @Operation(summary = "Get products by user id", description = "Returns a page with list of some products recorded in the database (depending on pagination parameters) by user id. Use total=NONE to skip the count query.")
     @ApiResponse(responseCode = "200", description = "Page of products returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PageResponse.class)))
     @ApiResponse(responseCode = "500", description = "User not found.", content = @Content())
     @GetMapping("/user/{id}")
     public ResponseEntity<PageResponse<ProductDto>> getProductsByUserId(@PathVariable int id,
                                                                 @RequestParam(defaultValue = "0") int pageNo,
-                                                               @RequestParam(defaultValue = "5") int pageSize) {
-        return ResponseEntity.ok(productService.getProductsByUserId(id, pageNo, pageSize));
+                                                               @RequestParam(defaultValue = "5") int pageSize,
+                                                               @RequestParam(defaultValue = "EXACT") TotalCount total) {
+        return ResponseEntity.ok(productService.getProductsByUserId(id, pageNo, pageSize, total));
     }
 
     @Operation(summary = "Create product", description = "Creates a new product and returns it.")
     @ApiResponse(responseCode = "201", description = "Product created successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductDto.class)))
     @ApiResponse(responseCode = "403", description = "Bad token.", content = @Content())
     @PostMapping
-    public ResponseEntity<ProductDto> createProduct(@Valid @RequestBody ProductDto productDto, @RequestHeader("Authorization") String token) {
-        log.info("Received request to create product: {}", productDto);
-        ProductDto createdProduct = productService.createProduct(productDto, token);
-        log.info("Product created successfully: {}", createdProduct);
+    public ResponseEntity<ProductDto> createProduct(@Valid @RequestBody ProductDto productDto, @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal principal) {
+        log.debug("Received request to create product");
+        ProductDto createdProduct = productService.createProduct(productDto, principal);
         int id = createdProduct.getId();
         return ResponseEntity.created(URI.create(String.format("/api/products/%s", id))).body(createdProduct);
     }
 
+    @Operation(summary = "Import products from CSV", description = "Streams a CSV body with a header line (name, description, price, stockQuantity, categoryId, imageUrl and optionally sellerId) into the catalog. Rows without a sellerId belong to the caller, only admins may import for other sellers. Valid rows are stored in chunks as they are read, invalid rows are skipped and reported by their number counted from the line after the header.")
+    @ApiResponse(responseCode = "200", description = "Import finished, see the report for rejected rows.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReport.class)))
+    @ApiResponse(responseCode = "401", description = "Not authenticated.", content = @Content())
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<ImportReport> importProductsCsv(InputStream body) {
+        log.info("Received request to import products from CSV");
+        return ResponseEntity.ok(productImportService.importCsv(body));
+    }
+
+    @Operation(summary = "Import products from NDJSON", description = "Streams newline-delimited JSON, one product object per line, into the catalog. Rows without a sellerId belong to the caller, only admins may import for other sellers. Valid rows are stored in chunks as they are read, invalid rows, including lines longer than 65536 characters, are skipped and reported by line number.")
+    @ApiResponse(responseCode = "200", description = "Import finished, see the report for rejected rows.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReport.class)))
+    @ApiResponse(responseCode = "401", description = "Not authenticated.", content = @Content())
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportReport> importProductsNdjson(InputStream body) {
+        log.info("Received request to import products from NDJSON");
+        return ResponseEntity.ok(productImportService.importNdjson(body));
+    }
+
     @Operation(summary = "Update product", description = "Updates product with the specified id and returns it.")
     @ApiResponse(responseCode = "200", description = "Product updated successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductDto.class)))
     @ApiResponse(responseCode = "404", description = "Product not found.", content = @Content())
     @ApiResponse(responseCode = "403", description = "User's and seller's IDs do not match.", content = @Content())
+    @ApiResponse(responseCode = "409", description = "Product was changed by another request, e.g. a checkout, while it was being updated.", content = @Content())
     @PatchMapping("/{id}")
-    public ResponseEntity<ProductDto> updateProduct(@PathVariable int id, @Valid @RequestBody ProductDto productDto, @RequestHeader("Authorization") String token) {
-        log.info("Received request to update product with id {}, with data: {}", id, productDto);
-        ProductDto updatedProduct = productService.updateProduct(id, productDto, token);
-        log.info("Product updated successfully: {}", updatedProduct);
+    public ResponseEntity<ProductDto> updateProduct(@PathVariable int id, @Valid @RequestBody ProductDto productDto, @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal principal) {
+        log.debug("Received request to update product: productId={}", id);
+        ProductDto updatedProduct = productService.updateProduct(id, productDto, principal);
         return ResponseEntity.ok(updatedProduct);
     }
 
@@ -82,10 +161,9 @@ public class ProductController {
     @ApiResponse(responseCode = "204", description = "Product deleted successfully.")
     @ApiResponse(responseCode = "404", description = "Product not found.")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable int id, @RequestHeader("Authorization") String token) {
-        log.info("Received request to delete product with id {}", id);
-        productService.deleteProduct(id, token);
-        log.info("Product deleted successfully: {}", id);
+    public ResponseEntity<Void> deleteProduct(@PathVariable int id, @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal principal) {
+        log.debug("Received request to delete product: productId={}", id);
+        productService.deleteProduct(id, principal);
         return ResponseEntity.noContent().build();
     }
 
@@ -13,6 +13,7 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.net.URI;
 
@@ -23,33 +24,40 @@ import java.net.URI;
 public class StatusController {
 
     private final StatusService statusService;
+    private final ConditionalGet conditionalGet;
 
 
     @Operation(summary = "Get all statuses", description = "Returns a page of statuses with the specified search, page number and page size.")
     @ApiResponse(responseCode = "200", description = "Page of statuses returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PageResponse.class))))
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match.", content = @Content())
     @GetMapping
     public ResponseEntity<PageResponse<StatusDto>> getStatuses(
             @RequestParam(defaultValue = "") String search,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "5") int pageSize) {
-        return ResponseEntity.ok(statusService.getStatuses(search, pageNo, pageSize));
+            @RequestParam(defaultValue = "5") int pageSize,
+            WebRequest request) {
+        return conditionalGet.referenceData(request, statusService.getStatusesTag(),
+                () -> statusService.getStatuses(search, pageNo, pageSize));
     }
 
     @Operation(summary = "Get status by id", description = "Returns a status with the specified id (non-negative integer).")
     @ApiResponse(responseCode = "200", description = "Status returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = StatusDto.class)))
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match.", content = @Content())
     @ApiResponse(responseCode = "404", description = "Status not found.", content = @Content())
     @GetMapping("/{id}")
-    public ResponseEntity<StatusDto> getStatusById(@PathVariable int id) {
-        return ResponseEntity.ok(statusService.getStatusById(id));
+    public ResponseEntity<StatusDto> getStatusById(@PathVariable int id, WebRequest request) {
+        String tag = statusService.getStatusesTag();
+        // a lookup in the cache, so an unknown id is still a 404 whatever If-None-Match says
+        StatusDto status = statusService.getStatusById(id);
+        return conditionalGet.referenceData(request, tag, () -> status);
     }
 
     @Operation(summary = "Create status", description = "Creates a new status and returns it.")
     @ApiResponse(responseCode = "201", description = "Status created successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = StatusDto.class)))
     @PostMapping
     public ResponseEntity<StatusDto> createStatus(@Valid @RequestBody StatusDto statusDto) {
-        log.info("Received request to create status: {}", statusDto);
+        log.debug("Received request to create status");
         StatusDto createdStatus = statusService.createStatus(statusDto);
-        log.info("Status created successfully: {}", createdStatus);
         int id = createdStatus.getId();
         return ResponseEntity.created(URI.create(String.format("/api/statuses/%s", id))).body(createdStatus);
     }
@@ -59,9 +67,8 @@ public class StatusController {
     @ApiResponse(responseCode = "200", description = "Status updated successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = StatusDto.class)))
     @ApiResponse(responseCode = "404", description = "Status not found.", content = @Content())
     public ResponseEntity<StatusDto> updateStatus(@PathVariable int id, @Valid @RequestBody StatusDto statusDto) {
-        log.info("Received request to update status with id {}, with data: {}", id,  statusDto);
+        log.debug("Received request to update status: statusId={}", id);
         StatusDto updatedStatus = statusService.updateStatus(id, statusDto);
-        log.info("Status updated successfully: {}", updatedStatus);
         return ResponseEntity.ok(updatedStatus);
     }
 
@@ -70,9 +77,8 @@ public class StatusController {
     @ApiResponse(responseCode = "404", description = "Status not found.")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteStatus(@PathVariable int id) {
-        log.info("Received request to delete status with id {}", id);
+        log.debug("Received request to delete status: statusId={}", id);
         statusService.deleteStatus(id);
-        log.info("Status deleted successfully: {}", id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,42 @@
+package ee.taltech.iti03022024project.controller;
+
+import ee.taltech.iti03022024project.monitoring.PinningStats;
+import ee.taltech.iti03022024project.monitoring.VirtualThreadPinningMonitor;
+import ee.taltech.iti03022024project.security.PasswordHashingStats;
+import ee.taltech.iti03022024project.security.PasswordVerifier;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/admin/threads")
+@Tag(name = "Threads", description = "Inspection of request thread behaviour (admin only)")
+public class ThreadAdminController {
+
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final PasswordVerifier passwordVerifier;
+
+    @Operation(summary = "Get virtual thread pinning statistics", description = "Returns how often and for how long virtual threads were pinned to their carrier thread since startup, grouped by the application frame that blocked. Empty unless virtual threads are enabled.")
+    @ApiResponse(responseCode = "200", description = "Pinning statistics returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PinningStats.class)))
+    @ApiResponse(responseCode = "403", description = "User is not an admin.", content = @Content())
+    @GetMapping("/pinning")
+    public ResponseEntity<PinningStats> getPinningStats() {
+        return ResponseEntity.ok(pinningMonitor.stats());
+    }
+
+    @Operation(summary = "Get password hashing statistics", description = "Returns the size and current queue depth of the password hashing pool, how long hashes took and how many logins were turned away because the pool was full.")
+    @ApiResponse(responseCode = "200", description = "Password hashing statistics returned successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PasswordHashingStats.class)))
+    @ApiResponse(responseCode = "403", description = "User is not an admin.", content = @Content())
+    @GetMapping("/password-hashing")
+    public ResponseEntity<PasswordHashingStats> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordVerifier.stats());
+    }
+}
@@ -2,6 +2,7 @@ package ee.taltech.iti03022024project.controller;
 
 import ee.taltech.iti03022024project.dto.UserDto;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -26,14 +27,15 @@ public class UserController {
 
     private final UserService userService;
 
-    @Operation(summary = "Get all users", description = "Returns a page of users with the specified search, page number and page size.")
+    @Operation(summary = "Get all users", description = "Returns a page of users with the specified search, page number and page size. The total parameter controls counting: EXACT (default), NONE to skip the count query, ESTIMATE to use the database planner estimate for unfiltered listings.")
     @ApiResponse(responseCode = "200", description = "Page of users returned successfully.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PageResponse.class))))
     @GetMapping
     public ResponseEntity<PageResponse<UserDto>> getUsers(
             @RequestParam(defaultValue = "") String search,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "5") int pageSize) {
-        return ResponseEntity.ok(userService.getUsers(search, pageNo, pageSize));
+            @RequestParam(defaultValue = "5") int pageSize,
+            @RequestParam(defaultValue = "EXACT") TotalCount total) {
+        return ResponseEntity.ok(userService.getUsers(search, pageNo, pageSize, total));
     }
 
     @Operation(summary = "Get user by id", description = "Returns a user with the specified id (non-negative integer).")
@@ -55,9 +57,8 @@ public class UserController {
     @ApiResponse(responseCode = "200", description = "User updated successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDto.class)))
     @PatchMapping("/profile")
     public ResponseEntity<UserDto> patchAuthorizedUser(@Valid @RequestBody UserDto userDto) {
-        log.info("Received request to update authorized user with data: {}", userDto);
+        log.debug("Received request to update authorized user");
         UserDto updatedUser = userService.patchAuthorizedUser(userDto);
-        log.info("Authorized user updated successfully: {}", updatedUser);
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -65,9 +66,8 @@ public class UserController {
     @ApiResponse(responseCode = "200", description = "User updated successfully.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDto.class)))
     @PatchMapping("/{id}")
     public ResponseEntity<UserDto> patchUserById(@PathVariable int id, @Valid @RequestBody UserDto userDto) {
-        log.info("Received request by admin to update user with data: {}", userDto);
+        log.debug("Received request by admin to update user: userId={}", id);
         UserDto updatedUser = userService.patchUserById(id, userDto);
-        log.info("User updated successfully: {}", updatedUser);
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -77,9 +77,8 @@ public class UserController {
     @PostMapping
 
     public ResponseEntity<UserDto> createUser(@Valid @RequestBody UserDto userDto) {
-        log.info("Received request to create user: {}", userDto);
+        log.debug("Received request to create user");
         UserDto createdUser = userService.createUser(userDto);
-        log.info("User created successfully: {}", createdUser);
         int userId = createdUser.getId();
         return ResponseEntity.created(URI.create(String.format("/api/users/%s", userId))).body(createdUser);
     }
@@ -89,9 +88,8 @@ public class UserController {
     @ApiResponse(responseCode = "404", description = "User not found.", content = @Content())
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@Valid @PathVariable int id) {
-        log.info("Received request to delete user with id {}", id);
+        log.debug("Received request to delete user: userId={}", id);
         userService.deleteUser(id);
-        log.info("User deleted successfully: {}", id);
         return ResponseEntity.noContent().build();
     }
 
@@ -0,0 +1,55 @@
+package ee.taltech.iti03022024project.criteria;
+
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import ee.taltech.iti03022024project.exception.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in a keyset-paginated product listing: the sort key of the last returned product
+ * plus its id as a tie-breaker. Clients only see the opaque encoded form.
+ */
+public record ProductCursor(
+        String sortBy,
+        Sort.Direction direction,
+        int productId,
+        String value
+) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ProductCursor after(ProductEntity last, String sortBy, Sort.Direction direction) {
+        String value = switch (sortBy) {
+            case "price" -> Double.toString(last.getPrice());
+            case "name" -> Objects.requireNonNullElse(last.getName(), "");
+            default -> Integer.toString(last.getProductId());
+        };
+        return new ProductCursor(sortBy, direction, last.getProductId(), value);
+    }
+
+    public String encode() {
+        // value goes last, so a separator inside a product name does not break decoding
+        String raw = String.join(SEPARATOR, sortBy, direction.name(), Integer.toString(productId), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+            ProductCursor decoded = new ProductCursor(parts[0], Sort.Direction.valueOf(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+            if ("price".equals(decoded.sortBy())) {
+                Double.parseDouble(decoded.value());
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+}
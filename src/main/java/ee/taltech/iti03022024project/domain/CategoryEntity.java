@@ -6,6 +6,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -20,4 +21,7 @@ public class CategoryEntity {
     @Column(name = "category_id")
     private int categoryId;
     private String categoryName;
+
+    @Version
+    private long version;
 }
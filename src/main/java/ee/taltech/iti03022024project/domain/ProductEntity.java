@@ -3,11 +3,13 @@ package ee.taltech.iti03022024project.domain;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -29,11 +31,13 @@ public class ProductEntity {
     private String description;
     private double price;
     private int quantityInStock;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinColumn(name = "seller_id", referencedColumnName = "user_id")
     private UserEntity seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinColumn(name = "category_id", referencedColumnName = "category_id")
     private CategoryEntity category;
 
@@ -42,5 +46,7 @@ public class ProductEntity {
 
     private String imageUrl;
 
-
+    // bumped by Hibernate on every update and by OrderRepository.reserveStock; the product's ETag is built from it
+    @Version
+    private long version;
 }
@@ -0,0 +1,38 @@
+package ee.taltech.iti03022024project.domain;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+// only the SHA-256 of the token is stored, the token itself is known to the client alone
+@Schema(hidden = true)
+@ToString
+@Getter @Setter
+@Entity(name = "refresh_tokens")
+public class RefreshTokenEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "refresh_token_id")
+    private long refreshTokenId;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "user_id")
+    @ToString.Exclude
+    private UserEntity user;
+    @ToString.Exclude
+    private String tokenHash;
+    private Instant createdAt;
+    private Instant expiresAt;
+    private Instant revokedAt;
+}
@@ -3,6 +3,7 @@ package ee.taltech.iti03022024project.domain;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -33,16 +34,19 @@ public class UserEntity implements UserDetails {
     private String firstName;
     private String lastName;
     private String email;
+    @ToString.Exclude
     private String password;
     private String phone;
     private String location;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinColumn(name = "role_id", referencedColumnName = "role_id")
     @SuppressWarnings("java:S1948")
     private RoleEntity role;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinColumn(name = "unfinished_order", referencedColumnName = "order_id")
     @SuppressWarnings("java:S1948")
     private OrderEntity unfinishedOrder;
@@ -1,6 +1,7 @@
 package ee.taltech.iti03022024project.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.AllArgsConstructor;
@@ -18,6 +19,7 @@ public class OrderItemDto {
     private Integer id;
 
     @Schema(description = "Unique identifier of the corresponding order (foreign key).", example = "1")
+    @NotNull
     @PositiveOrZero
     private Integer orderId;
 
@@ -0,0 +1,25 @@
+package ee.taltech.iti03022024project.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Schema(name = "ProductSearchHit", description = "DTO for a product found by full-text search")
+@Data
+@Builder
+@AllArgsConstructor
+public class ProductSearchHitDto {
+
+    @Schema(description = "The matching product.")
+    private ProductDto product;
+
+    @Schema(description = "Relevance of the product to the query, higher is better.", example = "0.6079271")
+    private Double rank;
+
+    @Schema(description = "HTML-escaped product name with matched words wrapped in <mark> tags.", example = "Gaming <mark>laptop</mark>")
+    private String nameHighlight;
+
+    @Schema(description = "HTML-escaped fragments of the description with matched words wrapped in <mark> tags.", example = "A <mark>laptop</mark> for work.")
+    private String descriptionSnippet;
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.ToString;
 
 @Schema(name = "User", description = "DTO for information about user")
 @Data
@@ -31,6 +32,7 @@ public class UserDto {
 
     @Schema(description = "Password of the user.", example = "password")
     @Size(max = 255)
+    @ToString.Exclude
     private String password;
 
     @Schema(description = "Phone number of the user.", example = "12345678")
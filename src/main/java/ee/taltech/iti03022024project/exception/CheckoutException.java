@@ -0,0 +1,7 @@
+package ee.taltech.iti03022024project.exception;
+
+public class CheckoutException extends ApplicationException {
+    public CheckoutException(String message) {
+        super(message);
+    }
+}
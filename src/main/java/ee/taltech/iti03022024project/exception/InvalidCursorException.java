@@ -0,0 +1,7 @@
+package ee.taltech.iti03022024project.exception;
+
+public class InvalidCursorException extends ApplicationException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ee.taltech.iti03022024project.exception;
+
+public class OrderStateException extends ApplicationException {
+    public OrderStateException(String message) {
+        super(message);
+    }
+}
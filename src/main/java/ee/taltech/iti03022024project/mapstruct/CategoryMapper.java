@@ -14,6 +14,7 @@ public interface CategoryMapper {
 
     @Mapping(source = "id", target = "categoryId", ignore = true)
     @Mapping(source = "name", target = "categoryName")
+    @Mapping(target = "version", ignore = true)
     CategoryEntity toEntity(CategoryDto categoryDto);
 
 }
\ No newline at end of file
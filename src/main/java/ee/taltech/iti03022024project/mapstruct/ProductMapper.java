@@ -4,6 +4,9 @@ import ee.taltech.iti03022024project.domain.CategoryEntity;
 import ee.taltech.iti03022024project.domain.ProductEntity;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.dto.ProductSearchHitDto;
+import ee.taltech.iti03022024project.repository.ProductSearchRow;
+import ee.taltech.iti03022024project.repository.SearchHighlight;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -20,12 +23,23 @@ public interface ProductMapper {
     ProductDto toDto(ProductEntity productEntity);
 
 
+    @Mapping(source = "productId", target = "id")
+    @Mapping(source = "quantityInStock", target = "stockQuantity")
+    ProductDto toDto(ProductSearchRow row);
+
+    default ProductSearchHitDto toSearchHitDto(ProductSearchRow row) {
+        return new ProductSearchHitDto(toDto(row), row.getRank(),
+                SearchHighlight.toHtml(row.getNameHighlight()), SearchHighlight.toHtml(row.getDescriptionSnippet()));
+    }
+
+
     @Mapping(source = "id", target = "productId", ignore = true)
     @Mapping(source = "stockQuantity", target = "quantityInStock")
     @Mapping(source = "sellerId", target = "seller")
     @Mapping(source = "categoryId", target = "category")
     @Mapping(source = "dateAdded", target = "dateAdded", ignore = true)
     @Mapping(source = "imageUrl", target = "imageUrl")
+    @Mapping(target = "version", ignore = true)
     ProductEntity toEntity(ProductDto productDto);
 
 
@@ -14,6 +14,7 @@ public interface StatusMapper {
 
     @Mapping(source = "id", target = "statusId", ignore = true)
     @Mapping(source = "name", target = "statusName")
+    @Mapping(target = "version", ignore = true)
     StatusEntity toEntity(StatusDto statusDto);
 
 }
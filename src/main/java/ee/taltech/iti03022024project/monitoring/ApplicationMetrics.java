@@ -0,0 +1,76 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.security.PasswordHashingStats;
+import ee.taltech.iti03022024project.security.PasswordVerifier;
+import ee.taltech.iti03022024project.service.CacheService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the counters behind the /api/admin endpoints as meters, so they end up next to the service and
+ * repository timers in Prometheus. Every meter reads the current stats when scraped, nothing is recorded twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApplicationMetrics implements MeterBinder {
+
+    private final CacheService cacheService;
+    private final PasswordVerifier passwordVerifier;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (CacheStats cache : cacheService.getStats()) {
+            String name = cache.name();
+            Gauge.builder("app.cache.size", this, metrics -> metrics.cacheStat(name, CacheStats::size))
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder("app.cache.hits", this, metrics -> metrics.cacheStat(name, CacheStats::hits))
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder("app.cache.misses", this, metrics -> metrics.cacheStat(name, CacheStats::misses))
+                    .tag("cache", name)
+                    .register(registry);
+        }
+
+        FunctionTimer.builder("app.login.hash", passwordVerifier,
+                        verifier -> verifier.stats().hashes(),
+                        verifier -> {
+                            PasswordHashingStats stats = verifier.stats();
+                            return stats.hashes() * stats.averageHashMillis();
+                        },
+                        TimeUnit.MILLISECONDS)
+                .description("Password hashes computed on the login hashing pool")
+                .register(registry);
+        Gauge.builder("app.login.hash.queue", passwordVerifier, verifier -> verifier.stats().queueDepth())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        FunctionCounter.builder("app.login.hash.rejected", passwordVerifier, verifier -> verifier.stats().rejected())
+                .description("Logins answered with 503 because the hashing queue was full")
+                .register(registry);
+
+        FunctionTimer.builder("app.threads.pinned", pinningMonitor,
+                        monitor -> monitor.stats().pinnedCount(),
+                        monitor -> monitor.stats().totalPinnedMillis(),
+                        TimeUnit.MILLISECONDS)
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .register(registry);
+    }
+
+    private double cacheStat(String name, ToLongFunction<CacheStats> stat) {
+        return cacheService.getStats().stream()
+                .filter(cache -> cache.name().equals(name))
+                .mapToLong(stat)
+                .findFirst()
+                .orElse(0);
+    }
+}
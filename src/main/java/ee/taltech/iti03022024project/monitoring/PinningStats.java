@@ -0,0 +1,16 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import java.util.Map;
+
+/**
+ * Virtual thread pinning seen since startup. Sites are the first application frames of the pinned stacks,
+ * with the number of times each was seen.
+ */
+public record PinningStats(
+        boolean virtualThreads,
+        long pinnedCount,
+        double totalPinnedMillis,
+        double maxPinnedMillis,
+        Map<String, Long> sites
+) {
+}
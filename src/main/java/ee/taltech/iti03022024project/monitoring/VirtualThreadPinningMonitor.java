@@ -0,0 +1,115 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts virtual threads pinned to their carrier, as reported by the JFR jdk.VirtualThreadPinned event.
+ * A virtual thread pins when it blocks inside a synchronized block or a native frame, and then holds on to
+ * one of the few carrier threads for as long as it waits, e.g. for a JDBC round trip. Only runs when
+ * spring.threads.virtual.enabled is set.
+ */
+@Slf4j
+@Component
+public class VirtualThreadPinningMonitor {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_SITES = 100;
+    private static final String UNKNOWN_SITE = "unknown";
+
+    private final boolean virtualThreads;
+    private final Duration threshold;
+
+    private final LongAdder pinnedCount = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final AtomicLong maxPinnedNanos = new AtomicLong();
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(Environment environment,
+                                       @Value("${app.threads.pinning-threshold:PT0.02S}") Duration threshold) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!virtualThreads) {
+            return;
+        }
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, event -> record(event.getDuration(), site(event)));
+        recording.startAsync();
+        log.info("Watching for virtual threads pinned longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    void record(Duration duration, String site) {
+        long nanos = duration.toNanos();
+        pinnedCount.increment();
+        pinnedNanos.add(nanos);
+        maxPinnedNanos.accumulateAndGet(nanos, Math::max);
+
+        String key = sites.containsKey(site) || sites.size() < MAX_SITES ? site : UNKNOWN_SITE;
+        LongAdder seen = sites.get(key);
+        if (seen == null) {
+            LongAdder created = new LongAdder();
+            seen = sites.putIfAbsent(key, created);
+            if (seen == null) {
+                seen = created;
+                // every site is logged once, the counts are in the stats
+                log.warn("Virtual thread pinned for {} ms at {}", duration.toMillis(), site);
+            }
+        }
+        seen.increment();
+    }
+
+    public PinningStats stats() {
+        Map<String, Long> counts = new TreeMap<>();
+        sites.forEach((site, count) -> counts.put(site, count.sum()));
+        return new PinningStats(virtualThreads, pinnedCount.sum(), pinnedNanos.sum() / 1e6,
+                maxPinnedNanos.get() / 1e6, counts);
+    }
+
+    // the first frame outside the JDK is the code that blocked while pinned
+    private static String site(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return UNKNOWN_SITE;
+        }
+        return stackTrace.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .filter(frame -> !isJdkFrame(frame.getMethod().getType().getName()))
+                .findFirst()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .orElse(UNKNOWN_SITE);
+    }
+
+    private static boolean isJdkFrame(String className) {
+        return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.");
+    }
+}
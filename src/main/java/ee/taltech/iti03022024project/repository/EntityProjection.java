@@ -0,0 +1,34 @@
+package ee.taltech.iti03022024project.repository;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.List;
+
+/**
+ * Selects attribute paths of an entity straight into a DTO constructor, in the order of its parameters.
+ * Paths into a many-to-one id, such as "seller.userId", are read from the foreign key column without a join.
+ */
+public record EntityProjection<T, D>(Class<D> type, List<String> paths) {
+
+    public static <T, D> EntityProjection<T, D> of(Class<D> type, String... paths) {
+        return new EntityProjection<>(type, List.of(paths));
+    }
+
+    Selection<D> toSelection(Root<T> root, CriteriaBuilder criteriaBuilder) {
+        Selection<?>[] arguments = paths.stream()
+                .map(path -> resolve(root, path))
+                .toArray(Selection<?>[]::new);
+        return criteriaBuilder.construct(type, arguments);
+    }
+
+    private static Path<?> resolve(Root<?> root, String path) {
+        Path<?> current = root;
+        for (String attribute : path.split("\\.")) {
+            current = current.get(attribute);
+        }
+        return current;
+    }
+}
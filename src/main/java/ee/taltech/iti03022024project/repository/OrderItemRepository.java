@@ -1,8 +1,9 @@
 package ee.taltech.iti03022024project.repository;
 
 import ee.taltech.iti03022024project.domain.OrderItemEntity;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import ee.taltech.iti03022024project.dto.OrderItemDto;
 
-public interface OrderItemRepository extends JpaRepository<OrderItemEntity, Integer>, JpaSpecificationExecutor<OrderItemEntity> {
+public interface OrderItemRepository extends SliceableJpaRepository<OrderItemEntity, Integer> {
+    EntityProjection<OrderItemEntity, OrderItemDto> DTO_PROJECTION = EntityProjection.of(OrderItemDto.class,
+            "orderItemId", "order.orderId", "product.productId", "quantity", "priceAtTimeOfOrder");
 }
@@ -1,8 +1,54 @@
 package ee.taltech.iti03022024project.repository;
 
 import ee.taltech.iti03022024project.domain.OrderEntity;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import ee.taltech.iti03022024project.dto.OrderDto;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface OrderRepository extends JpaRepository<OrderEntity, Integer>, JpaSpecificationExecutor<OrderEntity> {
+import java.util.Optional;
+
+public interface OrderRepository extends SliceableJpaRepository<OrderEntity, Integer> {
+    EntityProjection<OrderEntity, OrderDto> DTO_PROJECTION = EntityProjection.of(OrderDto.class,
+            "orderId", "user.userId", "status.statusId");
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<OrderEntity> findWithLockByOrderId(int orderId);
+
+    // Locks the order's products in id order, so concurrent checkouts cannot deadlock, then decrements the stock
+    // of every product that has enough and copies the current prices onto the order items, all in one statement.
+    // The caller rolls back when reserved < requested.
+    @Query(value = """
+            WITH demand AS (
+                SELECT product_id, sum(quantity) AS quantity
+                FROM order_items
+                WHERE order_id = :orderId
+                GROUP BY product_id
+            ), locked AS (
+                SELECT p.product_id, p.price
+                FROM products p
+                WHERE p.product_id IN (SELECT product_id FROM demand)
+                ORDER BY p.product_id
+                FOR UPDATE
+            ), reserved AS (
+                UPDATE products p
+                SET quantity_in_stock = p.quantity_in_stock - d.quantity,
+                    version = p.version + 1
+                FROM demand d, locked l
+                WHERE p.product_id = d.product_id
+                  AND l.product_id = d.product_id
+                  AND p.quantity_in_stock >= d.quantity
+                RETURNING p.product_id
+            ), priced AS (
+                UPDATE order_items oi
+                SET price_at_time_of_order = l.price
+                FROM locked l
+                WHERE oi.order_id = :orderId
+                  AND oi.product_id = l.product_id
+            )
+            SELECT (SELECT count(*) FROM demand) AS "requested",
+                   (SELECT count(*) FROM reserved) AS "reserved"
+            """, nativeQuery = true)
+    StockReservation reserveStock(@Param("orderId") int orderId);
 }
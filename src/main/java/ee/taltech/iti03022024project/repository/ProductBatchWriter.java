@@ -0,0 +1,34 @@
+package ee.taltech.iti03022024project.repository;
+
+import ee.taltech.iti03022024project.dto.ProductDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ProductBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // plain JDBC batch: no entities to track and no generated keys to read back, so the driver can send
+    // the whole batch at once (and rewrite it into multi-row inserts with reWriteBatchedInserts)
+    private static final String INSERT_SQL = """
+            INSERT INTO products (name, description, price, quantity_in_stock, seller_id, category_id, image_url, date_added)
+            VALUES (?, ?, ?, ?, ?, ?, ?, now())
+            """;
+
+    public void insert(List<ProductDto> products) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, products, products.size(), (statement, product) -> {
+            statement.setString(1, product.getName());
+            statement.setString(2, product.getDescription());
+            statement.setDouble(3, product.getPrice());
+            statement.setInt(4, product.getStockQuantity() == null ? 0 : product.getStockQuantity());
+            statement.setInt(5, product.getSellerId());
+            statement.setInt(6, product.getCategoryId());
+            statement.setString(7, product.getImageUrl());
+        });
+    }
+}
@@ -1,11 +1,41 @@
 package ee.taltech.iti03022024project.repository;
 
 import ee.taltech.iti03022024project.domain.ProductEntity;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import ee.taltech.iti03022024project.dto.ProductDto;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<ProductEntity, Integer>, JpaSpecificationExecutor<ProductEntity> {
-    Page<ProductEntity> findAllBySeller_UserId(int id, Pageable pageable);
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepository extends SliceableJpaRepository<ProductEntity, Integer> {
+    EntityProjection<ProductEntity, ProductDto> DTO_PROJECTION = EntityProjection.of(ProductDto.class,
+            "productId", "name", "description", "price", "quantityInStock",
+            "seller.userId", "category.categoryId", "dateAdded", "imageUrl");
+
+    // ranks in the inner query so ts_headline only runs for the rows actually returned. Matches are marked with the
+    // private use characters U+E000/U+E001 (stripped from the text first), SearchHighlight turns them into <mark>
+    @Query(value = """
+            SELECT ranked.product_id AS "productId", ranked.name AS "name", ranked.description AS "description",
+                   ranked.price AS "price", ranked.quantity_in_stock AS "quantityInStock",
+                   ranked.seller_id AS "sellerId", ranked.category_id AS "categoryId",
+                   ranked.date_added AS "dateAdded", ranked.image_url AS "imageUrl", ranked.rank AS "rank",
+                   ts_headline('simple', translate(ranked.name, '\uE000\uE001', ''), to_tsquery('simple', :query),
+                               'HighlightAll=true, StartSel=\uE000, StopSel=\uE001') AS "nameHighlight",
+                   ts_headline('simple', translate(coalesce(ranked.description, ''), '\uE000\uE001', ''), to_tsquery('simple', :query),
+                               'MaxFragments=2, MaxWords=20, MinWords=5, StartSel=\uE000, StopSel=\uE001') AS "descriptionSnippet"
+            FROM (
+                SELECT p.*, CAST(ts_rank(p.search_vector, to_tsquery('simple', :query)) AS float8) AS rank
+                FROM products p
+                WHERE p.search_vector @@ to_tsquery('simple', :query)
+                ORDER BY rank DESC, p.product_id DESC
+                LIMIT :limit OFFSET :offset
+            ) ranked
+            ORDER BY ranked.rank DESC, ranked.product_id DESC
+            """, nativeQuery = true)
+    List<ProductSearchRow> searchByText(@Param("query") String query, @Param("limit") int limit, @Param("offset") long offset);
+
+    // answers conditional GETs from the primary key index without loading the entity
+    @Query("select p.version from products p where p.productId = :id")
+    Optional<Long> findVersionById(@Param("id") int id);
 }
@@ -0,0 +1,19 @@
+package ee.taltech.iti03022024project.repository;
+
+import java.time.Instant;
+
+// Row of the full-text search query, column aliases match the getter names
+public interface ProductSearchRow {
+    Integer getProductId();
+    String getName();
+    String getDescription();
+    Double getPrice();
+    Integer getQuantityInStock();
+    Integer getSellerId();
+    Integer getCategoryId();
+    Instant getDateAdded();
+    String getImageUrl();
+    Double getRank();
+    String getNameHighlight();
+    String getDescriptionSnippet();
+}
@@ -0,0 +1,30 @@
+package ee.taltech.iti03022024project.repository;
+
+import ee.taltech.iti03022024project.domain.RefreshTokenEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
+    // the user and role are needed to issue the next access token
+    @EntityGraph(attributePaths = {"user", "user.role"})
+    Optional<RefreshTokenEntity> findByTokenHash(String tokenHash);
+
+    // conditional, so of two concurrent refreshes with the same token only one gets 1 back
+    @Modifying
+    @Query("update refresh_tokens t set t.revokedAt = :now where t.refreshTokenId = :id and t.revokedAt is null")
+    int revoke(long id, Instant now);
+
+    @Modifying
+    @Query("update refresh_tokens t set t.revokedAt = :now where t.user.userId = :userId and t.revokedAt is null")
+    int revokeAllForUser(int userId, Instant now);
+
+    // revoked tokens are kept until they expire, so a replayed one is still recognised
+    @Modifying
+    @Query("delete from refresh_tokens t where t.user.userId = :userId and t.expiresAt < :now")
+    int deleteExpiredForUser(int userId, Instant now);
+}
@@ -0,0 +1,26 @@
+package ee.taltech.iti03022024project.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+@Repository
+@RequiredArgsConstructor
+public class RowCountEstimator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // reltuples is refreshed by VACUUM/ANALYZE; -1 means the table has never been analyzed
+    private static final String ESTIMATE_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+    public OptionalLong estimate(String table) {
+        List<Long> rows = jdbcTemplate.queryForList(ESTIMATE_SQL, Long.class, table);
+        if (rows.isEmpty() || rows.getFirst() == null || rows.getFirst() < 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(rows.getFirst());
+    }
+}
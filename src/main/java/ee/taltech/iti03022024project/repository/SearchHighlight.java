@@ -0,0 +1,27 @@
+package ee.taltech.iti03022024project.repository;
+
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * Turns the highlights of ProductRepository.searchByText into HTML. ts_headline marks matches with two private use
+ * characters instead of tags, because the text around them is whatever the seller typed: it is escaped first, and
+ * only then are the markers replaced with {@code <mark>} tags.
+ */
+public final class SearchHighlight {
+
+    static final String START = "\uE000";
+    static final String STOP = "\uE001";
+
+    private SearchHighlight() {
+    }
+
+    public static String toHtml(String highlighted) {
+        if (highlighted == null) {
+            return null;
+        }
+        // with UTF-8 only the markup characters are escaped, letters like õ and ä stay as they are
+        return HtmlUtils.htmlEscape(highlighted, "UTF-8")
+                .replace(START, "<mark>")
+                .replace(STOP, "</mark>");
+    }
+}
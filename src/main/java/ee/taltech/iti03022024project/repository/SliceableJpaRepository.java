@@ -0,0 +1,29 @@
+package ee.taltech.iti03022024project.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.stream.Stream;
+
+@NoRepositoryBean
+public interface SliceableJpaRepository<T, I> extends JpaRepository<T, I>, JpaSpecificationExecutor<T> {
+
+    // Same as findAll(spec, pageable), but fetches one extra row instead of running a count query
+    Slice<T> findAllSliced(Specification<T> spec, Pageable pageable);
+
+    // Same as findAll(spec, pageable), but selects into the projection's DTO without loading any entity
+    <D> Page<D> findAllProjected(Specification<T> spec, Pageable pageable, EntityProjection<T, D> projection);
+
+    // Projected counterpart of findAllSliced
+    <D> Slice<D> findAllProjectedSliced(Specification<T> spec, Pageable pageable, EntityProjection<T, D> projection);
+
+    // Every matching row, fetched fetchSize rows at a time through a database cursor; the caller's transaction
+    // must stay open until the stream is consumed and closed
+    <D> Stream<D> streamProjected(Specification<T> spec, Sort sort, EntityProjection<T, D> projection, int fetchSize);
+}
@@ -0,0 +1,93 @@
+package ee.taltech.iti03022024project.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class SliceableJpaRepositoryImpl<T, I> extends SimpleJpaRepository<T, I> implements SliceableJpaRepository<T, I> {
+
+    private final EntityManager entityManager;
+
+    public SliceableJpaRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<T> findAllSliced(Specification<T> spec, Pageable pageable) {
+        return slice(getQuery(spec, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <D> Page<D> findAllProjected(Specification<T> spec, Pageable pageable, EntityProjection<T, D> projection) {
+        TypedQuery<D> query = getProjectedQuery(spec, pageable.getSort(), projection);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(query.getResultList());
+        }
+
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public <D> Slice<D> findAllProjectedSliced(Specification<T> spec, Pageable pageable, EntityProjection<T, D> projection) {
+        return slice(getProjectedQuery(spec, pageable.getSort(), projection), pageable);
+    }
+
+    // pgjdbc only reads through a cursor inside a transaction and with a fetch size, otherwise it buffers the whole result
+    @Override
+    public <D> Stream<D> streamProjected(Specification<T> spec, Sort sort, EntityProjection<T, D> projection, int fetchSize) {
+        TypedQuery<D> query = getProjectedQuery(spec, sort, projection);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        return query.getResultStream();
+    }
+
+    private <D> TypedQuery<D> getProjectedQuery(Specification<T> spec, Sort sort, EntityProjection<T, D> projection) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<D> query = criteriaBuilder.createQuery(projection.type());
+        Root<T> root = query.from(getDomainClass());
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        query.select(projection.toSelection(root, criteriaBuilder));
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private static <R> Slice<R> slice(TypedQuery<R> query, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList(), pageable, false);
+        }
+
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<R> content = query.getResultList();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+}
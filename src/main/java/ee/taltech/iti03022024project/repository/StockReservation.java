@@ -0,0 +1,7 @@
+package ee.taltech.iti03022024project.repository;
+
+// Result of OrderRepository.reserveStock: distinct products in the order and how many of them had enough stock
+public interface StockReservation {
+    long getRequested();
+    long getReserved();
+}
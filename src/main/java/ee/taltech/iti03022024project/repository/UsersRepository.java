@@ -3,11 +3,16 @@ package ee.taltech.iti03022024project.repository;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
 
 public interface UsersRepository extends JpaRepository<UserEntity, Integer> {
+    // the role backs getAuthorities(), and the result is cached outside the persistence context
+    @EntityGraph(attributePaths = "role")
     Optional<UserEntity> findByEmail(String email);
     Page<UserEntity> findAllByEmailContaining(String email, Pageable pageable);
+    Slice<UserEntity> findSliceByEmailContaining(String email, Pageable pageable);
 }
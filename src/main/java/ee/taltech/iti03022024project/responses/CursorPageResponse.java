@@ -0,0 +1,10 @@
+package ee.taltech.iti03022024project.responses;
+
+import java.util.List;
+
+public record CursorPageResponse<T>(
+    List<T> content,
+    int pageSize,
+    String nextCursor
+) {
+}
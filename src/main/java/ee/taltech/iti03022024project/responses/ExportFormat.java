@@ -0,0 +1,29 @@
+package ee.taltech.iti03022024project.responses;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Body format of an export endpoint.
+ */
+public enum ExportFormat {
+    /** One JSON object per line. */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    /** Comma-separated values with a header line. */
+    CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
@@ -0,0 +1,17 @@
+package ee.taltech.iti03022024project.responses;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first errors are listed, errorsTruncated tells whether more were left out.
+ */
+public record ImportReport(
+    long rowsRead,
+    long imported,
+    long rejected,
+    List<RowError> errors,
+    boolean errorsTruncated
+) {
+    public record RowError(long row, String message) {
+    }
+}
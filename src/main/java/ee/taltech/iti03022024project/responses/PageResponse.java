@@ -1,17 +1,52 @@
 package ee.taltech.iti03022024project.responses;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record PageResponse<T>(
     List<T> content,
     int pageNumber,
     int pageSize,
-    long totalElements,
-    int totalPages
+    Long totalElements,
+    Integer totalPages,
+    boolean hasNext,
+    Boolean totalEstimated
 ) {
     public PageResponse(Page<T> page) {
-        this(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages());
+        this(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages(), page.hasNext(), null);
+    }
+
+    // no totals, only whether another page follows
+    public PageResponse(Slice<T> slice) {
+        this(slice.getContent(), slice.getNumber(), slice.getSize(), null, null, slice.hasNext(), null);
+    }
+
+    // planner estimates lag behind the table, so never report fewer rows than this slice already proves exist
+    public PageResponse(Slice<T> slice, long estimatedTotal) {
+        this(slice.getContent(), slice.getNumber(), slice.getSize(),
+                Math.max(estimatedTotal, seen(slice)),
+                totalPages(Math.max(estimatedTotal, seen(slice)), slice.getSize()),
+                slice.hasNext(), true);
+    }
+
+    // pages a list that is already fully in memory
+    public static <T> PageResponse<T> ofList(List<T> items, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), items.size());
+        int to = Math.min(from + pageable.getPageSize(), items.size());
+        return new PageResponse<>(new PageImpl<>(items.subList(from, to), pageable, items.size()));
+    }
+
+    private static long seen(Slice<?> slice) {
+        return (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+    }
+
+    private static int totalPages(long total, int pageSize) {
+        return pageSize == 0 ? 1 : (int) Math.ceil((double) total / pageSize);
     }
 }
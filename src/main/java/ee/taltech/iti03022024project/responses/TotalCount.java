@@ -0,0 +1,13 @@
+package ee.taltech.iti03022024project.responses;
+
+/**
+ * How a paginated endpoint reports the total number of matching rows.
+ */
+public enum TotalCount {
+    /** Runs a COUNT query alongside the page query. */
+    EXACT,
+    /** Skips the COUNT query; the response only tells whether a next page exists. */
+    NONE,
+    /** Uses the PostgreSQL planner row estimate for unfiltered listings, falls back to EXACT when filtered. */
+    ESTIMATE
+}
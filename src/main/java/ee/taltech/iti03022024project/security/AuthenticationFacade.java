@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.Optional;
 
@@ -13,22 +15,69 @@ import java.util.Optional;
 @AllArgsConstructor
 public class AuthenticationFacade implements IAuthenticationFacade {
 
+    // the user is resolved at most once per request, repeated calls reuse the request attribute
+    private static final String REQUEST_USER_ATTRIBUTE = AuthenticationFacade.class.getName() + ".USER";
+
     private final UsersRepository usersRepository;
+    private final UserCache userCache;
 
     @Override
     public Authentication getAuthentication() {
         return SecurityContextHolder.getContext().getAuthentication();
     }
 
+    @Override
+    public UserPrincipal getPrincipal() {
+        Authentication authentication = getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+
     @Override
     public UserEntity getAuthenticatedUser() {
-        return usersRepository.findByEmail(getAuthentication().getName()).orElse(null);
+        Authentication authentication = getAuthentication();
+        if (authentication == null) {
+            return null;
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null
+                && requestAttributes.getAttribute(REQUEST_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof UserEntity user) {
+            return user;
+        }
+
+        String email = authentication.getName();
+        UserEntity user = userCache.get(email);
+        if (user == null) {
+            user = usersRepository.findByEmail(email).orElse(null);
+            if (user != null) {
+                userCache.put(user);
+            }
+        }
+        if (user != null && requestAttributes != null) {
+            requestAttributes.setAttribute(REQUEST_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
     }
 
     @Override
     public Integer getAuthenticatedUserId() {
+        UserPrincipal principal = getPrincipal();
+        if (principal != null && principal.userId() != null) {
+            return principal.userId();
+        }
         return Optional.ofNullable(getAuthenticatedUser())
                 .map(UserEntity::getUserId)
                 .orElse(null);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void evictUser(String email) {
+        userCache.evict(email);
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.removeAttribute(REQUEST_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -1,18 +1,37 @@
 package ee.taltech.iti03022024project.security;
 
+import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.repository.UsersRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.annotation.Transactional;
 
+@Slf4j
 @RequiredArgsConstructor
-public class CustomUserDetailService  implements UserDetailsService {
+public class CustomUserDetailService  implements UserDetailsService, UserDetailsPasswordService {
 
     private final UsersRepository usersRepository;
+    private final UserCache userCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         return usersRepository.findByEmail(email).orElse(null);
     }
+
+    // stores a rehashed password after a successful login, newPassword is already encoded
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserEntity entity = usersRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User " + user.getUsername() + " not found"));
+        entity.setPassword(newPassword);
+        usersRepository.save(entity);
+        userCache.evict(entity.getEmail());
+        log.info("Upgraded password hash of user {}", entity.getUserId());
+        return entity;
+    }
 }
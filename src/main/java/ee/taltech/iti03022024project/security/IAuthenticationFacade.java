@@ -5,6 +5,8 @@ import org.springframework.security.core.Authentication;
 
 public interface IAuthenticationFacade {
     Authentication getAuthentication();
+    UserPrincipal getPrincipal();
     UserEntity getAuthenticatedUser();
     Integer getAuthenticatedUserId();
-}
\ No newline at end of file
+    void evictUser(String email);
+}
@@ -0,0 +1,118 @@
+package ee.taltech.iti03022024project.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The HMAC keys tokens are signed and verified with, by key id. New tokens are signed with the active key and
+ * carry its id in the kid header; any key in the ring verifies tokens carrying its id. To rotate, add the new
+ * key, make it active once every node has it, and drop the old one after the tokens it signed have expired.
+ */
+@Slf4j
+public class JwtKeyRing {
+
+    private final String activeKeyId;
+    private final Map<String, SecretKey> keys;
+
+    public JwtKeyRing(String activeKeyId, Map<String, SecretKey> keys) {
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active JWT key '" + activeKeyId + "' is not one of " + keys.keySet());
+        }
+        this.activeKeyId = activeKeyId;
+        this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+    }
+
+    /**
+     * Keys from app.jwt.keys, given as comma separated kid:base64-secret pairs, plus every secret key entry of
+     * the keystore (alias as kid) if there is one. Without any key a random one is generated, which is fine for
+     * a single development instance but invalidates every token on restart.
+     */
+    public static JwtKeyRing load(String activeKeyId, String keys, Resource keystore, String keystorePassword) {
+        Map<String, SecretKey> ring = new LinkedHashMap<>(parseKeys(keys));
+        if (keystore != null) {
+            ring.putAll(readKeystore(keystore, keystorePassword));
+        }
+        if (ring.isEmpty()) {
+            log.warn("No JWT signing keys configured, generated a random one; tokens will not survive a restart");
+            return generated();
+        }
+        if ((activeKeyId == null || activeKeyId.isBlank()) && ring.size() == 1) {
+            activeKeyId = ring.keySet().iterator().next();
+        }
+        log.info("Signing JWTs with key '{}', accepting {}", activeKeyId, ring.keySet());
+        return new JwtKeyRing(activeKeyId, ring);
+    }
+
+    public static JwtKeyRing generated() {
+        String keyId = "generated-" + UUID.randomUUID();
+        return new JwtKeyRing(keyId, Map.of(keyId, Jwts.SIG.HS256.key().build()));
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKey signingKey() {
+        return keys.get(activeKeyId);
+    }
+
+    // tokens without a kid predate key ids and can only have been signed with the single configured key
+    public SecretKey verificationKey(String keyId) {
+        return keyId == null ? signingKey() : keys.get(keyId);
+    }
+
+    public Set<String> keyIds() {
+        return keys.keySet();
+    }
+
+    static Map<String, SecretKey> parseKeys(String keys) {
+        Map<String, SecretKey> parsed = new LinkedHashMap<>();
+        if (keys == null || keys.isBlank()) {
+            return parsed;
+        }
+        for (String entry : keys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("JWT key must be given as kid:base64-secret, got '" + entry.trim() + "'");
+            }
+            String keyId = entry.substring(0, separator).trim();
+            byte[] secret = Decoders.BASE64.decode(entry.substring(separator + 1).trim());
+            // rejects secrets shorter than 256 bits
+            parsed.put(keyId, Keys.hmacShaKeyFor(secret));
+        }
+        return parsed;
+    }
+
+    private static Map<String, SecretKey> readKeystore(Resource keystore, String password) {
+        char[] secret = password == null ? new char[0] : password.toCharArray();
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        try (InputStream in = keystore.getInputStream()) {
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            store.load(in, secret);
+            for (String alias : Collections.list(store.aliases())) {
+                Key key = store.isKeyEntry(alias) ? store.getKey(alias, secret) : null;
+                if (key instanceof SecretKey secretKey) {
+                    keys.put(alias, Keys.hmacShaKeyFor(secretKey.getEncoded()));
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not read JWT keys from " + keystore.getDescription(), e);
+        }
+        return keys;
+    }
+}
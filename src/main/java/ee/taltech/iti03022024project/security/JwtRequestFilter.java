@@ -1,13 +1,19 @@
 package ee.taltech.iti03022024project.security;
 
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.cache.TtlCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -18,36 +24,75 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.crypto.SecretKey;
 import java.io.IOException;
+import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 
 @Slf4j
-@RequiredArgsConstructor
 public class JwtRequestFilter extends OncePerRequestFilter {
 
-    private final SecretKey key;
+    private static final int CLAIMS_CACHE_SIZE = 10_000;
+    private static final Duration CLAIMS_CACHE_TTL = Duration.ofMinutes(5);
+    // RFC 6750: tells the client to refresh its access token instead of retrying with the same one
+    static final String INVALID_TOKEN_CHALLENGE = "Bearer error=\"invalid_token\"";
+
+    // parser is immutable and thread-safe, so it is built once instead of on every request
+    private final JwtParser parser;
+    // verified claims keyed by token digest, each entry lives until the token expires
+    private final TtlCache<String, Claims> claimsCache = new TtlCache<>("jwtClaims", CLAIMS_CACHE_SIZE, CLAIMS_CACHE_TTL);
+
+    public JwtRequestFilter(JwtKeyRing keyRing) {
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        SecretKey key = keyRing.verificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new SignatureException("Unknown signing key '" + header.getKeyId() + "'");
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain chain) throws ServletException, IOException {
         try {
-        Optional<String> token = getToken(request);
+            Optional<String> token = getToken(request);
             if (token.isPresent()) {
                 Claims tokenBody = parseToken(token.get());
                 SecurityContext context = SecurityContextHolder.getContext();
                 context.setAuthentication(buildAuthToken(tokenBody));
             }
-        } catch (SignatureException ex) {
-            log.error("Invalid JWT signature: {}", ex.getMessage());
-            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT signature");
+        } catch (ExpiredJwtException ex) {
+            // access tokens live 15 minutes, so this is routine
+            log.debug("Expired JWT: {}", ex.getMessage());
+            rejectToken(response, "JWT expired");
+            return;
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.warn("Invalid JWT: {}", ex.getMessage());
+            rejectToken(response, "Invalid JWT");
             return;
         }
 
         chain.doFilter(request, response);
     }
 
+    private static void rejectToken(HttpServletResponse response, String message) throws IOException {
+        response.setHeader("WWW-Authenticate", INVALID_TOKEN_CHALLENGE);
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+    }
+
     private Optional<String> getToken(HttpServletRequest request) {
         return Optional.ofNullable(request.getHeader("Authorization"))
                 .filter(header -> header.startsWith("Bearer "))
@@ -56,14 +101,36 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     }
 
     public Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        String digest = digest(token);
+        Claims cached = claimsCache.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            claimsCache.put(digest, claims, expiration.toInstant());
+        } else {
+            claimsCache.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public CacheStats claimsCacheStats() {
+        return claimsCache.stats();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-    private Authentication buildAuthToken(Claims tokenBody) {
+    Authentication buildAuthToken(Claims tokenBody) {
         List<?> roles = (List<?>) tokenBody.get("roles");
         List<SimpleGrantedAuthority> authorities = roles.stream()
                 .map(role -> {
@@ -76,8 +143,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                     }
                 })
                 .toList();
-        return new UsernamePasswordAuthenticationToken(
+        UserPrincipal principal = new UserPrincipal(
+                tokenBody.get("userId", Integer.class),
                 tokenBody.getSubject(),
+                authorities.stream().map(SimpleGrantedAuthority::getAuthority).toList()
+        );
+        return new UsernamePasswordAuthenticationToken(
+                principal,
                 null,
                 authorities
         );
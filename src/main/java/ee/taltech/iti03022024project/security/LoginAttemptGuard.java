@@ -0,0 +1,58 @@
+package ee.taltech.iti03022024project.security;
+
+import ee.taltech.iti03022024project.exception.TooManyAttemptsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Throttles failed logins per email, against guessing one account's password, and optionally per client address,
+ * against one client trying many accounts. A successful login clears the email's failures only.
+ * The per-address limit is off unless max-failures-per-address is positive: behind a reverse proxy every client
+ * has the proxy's address unless forwarded headers are trusted, and one noisy client would lock out everyone.
+ */
+@Component
+public class LoginAttemptGuard {
+
+    private final LoginThrottle byEmail;
+    // null when the per-address limit is off
+    private final LoginThrottle byAddress;
+
+    public LoginAttemptGuard(@Value("${app.login.max-failures-per-email:5}") int maxFailuresPerEmail,
+                             @Value("${app.login.max-failures-per-address:0}") int maxFailuresPerAddress,
+                             @Value("${app.login.failure-window:PT15M}") Duration failureWindow,
+                             @Value("${app.login.throttle-max-keys:100000}") int maxKeys) {
+        this.byEmail = new LoginThrottle(maxFailuresPerEmail, failureWindow, maxKeys);
+        this.byAddress = maxFailuresPerAddress > 0 ? new LoginThrottle(maxFailuresPerAddress, failureWindow, maxKeys) : null;
+    }
+
+    public void check(String email, String clientAddress) {
+        Duration retryAfter = byEmail.retryAfter(emailKey(email));
+        if (byAddress != null && clientAddress != null) {
+            Duration addressRetryAfter = byAddress.retryAfter(clientAddress);
+            if (addressRetryAfter.compareTo(retryAfter) > 0) {
+                retryAfter = addressRetryAfter;
+            }
+        }
+        if (!retryAfter.isZero()) {
+            throw new TooManyAttemptsException("Too many failed login attempts, try again later", retryAfter);
+        }
+    }
+
+    public void recordFailure(String email, String clientAddress) {
+        byEmail.recordFailure(emailKey(email));
+        if (byAddress != null && clientAddress != null) {
+            byAddress.recordFailure(clientAddress);
+        }
+    }
+
+    public void recordSuccess(String email) {
+        byEmail.reset(emailKey(email));
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? "" : email.toLowerCase(Locale.ROOT);
+    }
+}
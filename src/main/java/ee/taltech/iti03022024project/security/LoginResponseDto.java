@@ -8,6 +8,10 @@ import lombok.Data;
 @AllArgsConstructor
 @Data
 public class LoginResponseDto {
-    @Schema(description = "JWT token", example = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.")
+    @Schema(description = "JWT access token", example = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.")
     private String jwtToken;
+    @Schema(description = "Opaque token for POST /api/public/token/refresh, valid for one use", example = "q3V2cFhKb0ZPTmd6d1B0c2JrY0t4Zz09")
+    private String refreshToken;
+    @Schema(description = "Seconds until the access token expires", example = "900")
+    private long expiresIn;
 }
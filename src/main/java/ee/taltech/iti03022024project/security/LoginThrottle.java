@@ -0,0 +1,111 @@
+package ee.taltech.iti03022024project.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts failed attempts per key in a fixed window and blocks the key once it reaches the limit, until the
+ * window ends. Keys are spread over independently locked stripes, so concurrent logins rarely wait on each
+ * other, and every stripe drops its least recently used keys beyond its share of maxKeys, so a flood of
+ * random keys cannot grow the memory use.
+ */
+public class LoginThrottle {
+
+    private static final int STRIPES = 16;
+
+    private final int maxFailures;
+    private final Duration window;
+    private final Clock clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public LoginThrottle(int maxFailures, Duration window, int maxKeys) {
+        this(maxFailures, window, maxKeys, Clock.systemUTC());
+    }
+
+    public LoginThrottle(int maxFailures, Duration window, int maxKeys, Clock clock) {
+        if (maxFailures < 1) {
+            throw new IllegalArgumentException("Failure limit must be positive: " + maxFailures);
+        }
+        this.maxFailures = maxFailures;
+        this.window = window;
+        this.clock = clock;
+        int keysPerStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+    }
+
+    // Duration.ZERO while the key may still try
+    public Duration retryAfter(String key) {
+        Instant now = clock.instant();
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Attempts attempts = stripe.attempts.get(key);
+            if (attempts == null || attempts.failures < maxFailures) {
+                return Duration.ZERO;
+            }
+            Instant windowEnd = attempts.windowStart.plus(window);
+            return windowEnd.isAfter(now) ? Duration.between(now, windowEnd) : Duration.ZERO;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void recordFailure(String key) {
+        Instant now = clock.instant();
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Attempts attempts = stripe.attempts.get(key);
+            if (attempts == null || !attempts.windowStart.plus(window).isAfter(now)) {
+                attempts = new Attempts(now);
+                stripe.attempts.put(key, attempts);
+            }
+            attempts.failures++;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void reset(String key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.attempts.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Attempts> attempts;
+
+        private Stripe(int maxKeys) {
+            this.attempts = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Attempts> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+    }
+
+    private static final class Attempts {
+        private final Instant windowStart;
+        private int failures;
+
+        private Attempts(Instant windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+}
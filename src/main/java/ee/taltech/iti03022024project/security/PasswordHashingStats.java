@@ -0,0 +1,12 @@
+package ee.taltech.iti03022024project.security;
+
+public record PasswordHashingStats(
+        int threads,
+        int queueDepth,
+        int queueCapacity,
+        long hashes,
+        double averageHashMillis,
+        double maxHashMillis,
+        long rejected
+) {
+}
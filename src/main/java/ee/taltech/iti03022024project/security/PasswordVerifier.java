@@ -0,0 +1,132 @@
+package ee.taltech.iti03022024project.security;
+
+import ee.taltech.iti03022024project.exception.ServiceOverloadedException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks passwords on a small pool sized to the CPU count instead of on the request thread. BCrypt is
+ * deliberately slow, so a burst of logins hashed on Tomcat's workers would take every one of them and stall
+ * unrelated requests. Here at most one hash per core runs at a time, a bounded queue absorbs short bursts and
+ * anything beyond that is turned away with a ServiceOverloadedException instead of queueing without limit.
+ */
+@Slf4j
+@Component
+public class PasswordVerifier {
+
+    static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final Duration timeout;
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordVerifier(PasswordEncoder passwordEncoder,
+                            @Value("${app.login.hash-threads:0}") int threads,
+                            @Value("${app.login.hash-queue-capacity:64}") int queueCapacity,
+                            @Value("${app.login.hash-timeout:PT5S}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.passwordEncoder = passwordEncoder;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // cheap, only looks at the hash prefix, so it does not go through the pool
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public PasswordHashingStats stats() {
+        long count = hashes.sum();
+        return new PasswordHashingStats(executor.getMaximumPoolSize(), executor.getQueue().size(), queueCapacity,
+                count, count == 0 ? 0.0 : hashNanos.sum() / 1e6 / count, maxHashNanos.get() / 1e6, rejected.sum());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T hash(Callable<T> task) {
+        Future<T> result;
+        try {
+            result = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            throw overloaded("queue full");
+        }
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw overloaded("timed out");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long started = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long nanos = System.nanoTime() - started;
+            hashes.increment();
+            hashNanos.add(nanos);
+            maxHashNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private ServiceOverloadedException overloaded(String reason) {
+        rejected.increment();
+        log.warn("Password hashing rejected ({}), {} waiting", reason, executor.getQueue().size());
+        return new ServiceOverloadedException("Login is temporarily overloaded, try again shortly", RETRY_AFTER);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package ee.taltech.iti03022024project.security;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+@Schema(name = "RefreshTokenRequest", description = "DTO for refresh and logout requests")
+public record RefreshTokenRequestDto(
+        @Schema(description = "Refresh token from the last login or refresh", example = "q3V2cFhKb0ZPTmd6d1B0c2JrY0t4Zz09")
+        @NotBlank
+        @Size(max = 255)
+        String refreshToken
+) {
+}
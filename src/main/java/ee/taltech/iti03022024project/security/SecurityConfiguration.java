@@ -1,10 +1,13 @@
 package ee.taltech.iti03022024project.security;
 
 import ee.taltech.iti03022024project.repository.UsersRepository;
-import io.jsonwebtoken.Jwts;
+import jakarta.servlet.DispatcherType;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -14,13 +17,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
-import javax.crypto.SecretKey;
+import java.util.Map;
 
 
 @EnableWebSecurity
@@ -34,21 +39,38 @@ public class SecurityConfiguration {
     public static final String ADMIN = "ADMIN";
     public static final String API_ORDERS = "/api/orders/**";
     public static final String API_PRODUCTS = "/api/products";
+    private static final String BCRYPT = "bcrypt";
     private final UsersRepository usersRepository;
+    private final UserCache userCache;
 
 
+    // new hashes are stored as {bcrypt}<hash> at the configured cost; hashes without a prefix are bcrypt from
+    // before the prefix was introduced. upgradeEncoding reports both those and any lower cost hash, so they
+    // get rehashed on the next successful login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt-strength:10}") int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
     @Bean
-    public UserDetailsService userDetailsService() {
-        return new CustomUserDetailService(usersRepository);
+    public CustomUserDetailService userDetailsService() {
+        return new CustomUserDetailService(usersRepository, userCache);
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtRequestFilter jwtRequestFilter,
+                                                   @Value("${server.port:8080}") int serverPort,
+                                                   @Value("${management.server.port:-1}") int managementPort) throws Exception {
+        // Prometheus scrapes without a token, so only on a management port of its own, which is not published
+        // like the application port; everywhere else the endpoint is for admins like the rest of /actuator
+        boolean separateManagementPort = managementPort > 0 && managementPort != serverPort;
+        RequestMatcher prometheus = AntPathRequestMatcher.antMatcher(HttpMethod.GET, "/actuator/prometheus");
+        RequestMatcher scrapeOnManagementPort = request ->
+                separateManagementPort && request.getLocalPort() == managementPort && prometheus.matches(request);
+
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -65,6 +87,8 @@ public class SecurityConfiguration {
                 })
 
                 .authorizeHttpRequests(auth -> auth
+                        // streamed responses finish with an async dispatch of a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.GET, "swagger-ui/*", "/v3/api-docs", "v3/api-docs/swagger-config").permitAll()
                         // permit to /api/users/id for all
                         .requestMatchers(HttpMethod.GET, "/api/users/**").permitAll()
@@ -73,15 +97,20 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.PATCH, "/api/users/{id}").hasRole(ADMIN)
                         .requestMatchers(HttpMethod.DELETE, "/api/users/{id}").hasRole(ADMIN)
                         .requestMatchers(HttpMethod.POST, "/api/public/login").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/public/token/refresh").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/public/logout").permitAll()
                         .requestMatchers(HttpMethod.GET, API_ORDERS).authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/orders").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/orders/{id}/checkout").authenticated()
                         .requestMatchers(HttpMethod.PATCH, API_ORDERS).authenticated()
                         .requestMatchers(HttpMethod.DELETE, API_ORDERS).hasRole(ADMIN)
                         .requestMatchers(HttpMethod.GET, "/api/order_items/**").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/order_items").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/order_items/batch").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/api/order_items").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                         .requestMatchers(HttpMethod.POST, API_PRODUCTS).authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/products/import").authenticated()
                         .requestMatchers(HttpMethod.PATCH, API_PRODUCTS).authenticated()
                         .requestMatchers(HttpMethod.DELETE, API_PRODUCTS).authenticated()
                         .requestMatchers(HttpMethod.GET, API_STATUSES).permitAll()
@@ -92,30 +121,48 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.POST, API_CATEGORIES).hasRole(ADMIN)
                         .requestMatchers(HttpMethod.PATCH, API_CATEGORIES).hasRole(ADMIN)
                         .requestMatchers(HttpMethod.DELETE, API_CATEGORIES).hasRole(ADMIN)
+                        .requestMatchers("/api/admin/**").hasRole(ADMIN)
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(scrapeOnManagementPort).permitAll()
+                        .requestMatchers("/actuator/**").hasRole(ADMIN)
                         .anyRequest().authenticated())
-                .addFilterBefore(new JwtRequestFilter(key()), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
 
 
     }
 
     @Bean
-    public SecretKey key() {
-        return Jwts.SIG.HS256.key().build();
+    public JwtKeyRing jwtKeyRing(@Value("${app.jwt.active-key-id:}") String activeKeyId,
+                                 @Value("${app.jwt.keys:}") String keys,
+                                 @Value("${app.jwt.keystore.location:}") String keystoreLocation,
+                                 @Value("${app.jwt.keystore.password:}") String keystorePassword,
+                                 ResourceLoader resourceLoader) {
+        return JwtKeyRing.load(activeKeyId, keys,
+                keystoreLocation.isBlank() ? null : resourceLoader.getResource(keystoreLocation), keystorePassword);
     }
 
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService());
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setUserDetailsPasswordService(userDetailsService());
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
     @Bean
-    public JwtRequestFilter jwtRequestFilter() {
-        return new JwtRequestFilter(key());
+    public JwtRequestFilter jwtRequestFilter(JwtKeyRing jwtKeyRing) {
+        return new JwtRequestFilter(jwtKeyRing);
+    }
+
+    // the filter runs inside the security filter chain; without this Boot would also register it as a servlet filter
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration(JwtRequestFilter jwtRequestFilter) {
+        FilterRegistrationBean<JwtRequestFilter> registration = new FilterRegistrationBean<>(jwtRequestFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
 }
@@ -0,0 +1,40 @@
+package ee.taltech.iti03022024project.security;
+
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.cache.TtlCache;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived cache of user entities keyed by email, for callers that need more than the JWT claims.
+ * Entries are detached, so they must be evicted whenever the user row changes.
+ */
+@Component
+public class UserCache {
+
+    private final TtlCache<String, UserEntity> cache;
+
+    public UserCache(@Value("${app.cache.users.max-size:1000}") int maxSize,
+                     @Value("${app.cache.users.ttl:PT5M}") Duration ttl) {
+        this.cache = new TtlCache<>("users", maxSize, ttl);
+    }
+
+    public UserEntity get(String email) {
+        return cache.get(email);
+    }
+
+    public void put(UserEntity user) {
+        cache.put(user.getEmail(), user);
+    }
+
+    public void evict(String email) {
+        cache.invalidate(email);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,27 @@
+package ee.taltech.iti03022024project.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.List;
+
+/**
+ * Identity of the caller as carried by the JWT, built once per request by {@link JwtRequestFilter}.
+ * Holds everything authorization checks need, so they do not have to load the user from the database.
+ */
+public record UserPrincipal(
+        Integer userId,
+        String email,
+        List<String> roles
+) implements AuthenticatedPrincipal {
+
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public boolean isAdmin() {
+        return roles.contains(ROLE_ADMIN);
+    }
+}
@@ -0,0 +1,35 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.cache.CategoryCache;
+import ee.taltech.iti03022024project.cache.StatusCache;
+import ee.taltech.iti03022024project.security.JwtRequestFilter;
+import ee.taltech.iti03022024project.security.UserCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheService {
+
+    private final CategoryCache categoryCache;
+    private final StatusCache statusCache;
+    private final UserCache userCache;
+    private final JwtRequestFilter jwtRequestFilter;
+
+    public List<CacheStats> getStats() {
+        return List.of(categoryCache.stats(), statusCache.stats(), userCache.stats(), jwtRequestFilter.claimsCacheStats());
+    }
+
+    // for rows changed outside the application, e.g. by a migration or by hand
+    public List<CacheStats> reloadReferenceData() {
+        log.info("Reloading category and status caches");
+        categoryCache.reload();
+        statusCache.reload();
+        return getStats();
+    }
+}
@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.cache.CategoryCache;
 import ee.taltech.iti03022024project.domain.CategoryEntity;
 import ee.taltech.iti03022024project.dto.CategoryDto;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
@@ -7,41 +8,60 @@ import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.CategoryMapper;
 import ee.taltech.iti03022024project.repository.CategoryRepository;
 import ee.taltech.iti03022024project.responses.PageResponse;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final CategoryCache categoryCache;
 
     private static final String NOT_FOUND_MSG = "Category with id %s not found";
 
+    // served from an in-memory cache, so no transaction (and no connection) unless the cache has to load
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public PageResponse<CategoryDto> getCategories(String search, int pageNo, int pageSize) {
-        log.info("Attempting to get categories with search: {}, page number: {}, page size: {}", search, pageNo, pageSize);
+        log.debug("Listing categories: search={}, page={}, size={}", search, pageNo, pageSize);
         Pageable pageable = PageRequest.of(pageNo, pageSize);
-        return new PageResponse<>(categoryRepository.findAllByCategoryNameContaining(search, pageable).map(categoryMapper::toDto));
+        List<CategoryDto> matching = categoryCache.findAll().stream()
+                .filter(item -> item.getName().contains(search))
+                .toList();
+        return PageResponse.ofList(matching, pageable);
+    }
+
+    // changes with every write to the table, so it covers the list as well as each single category
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public String getCategoriesTag() {
+        return categoryCache.tag();
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public CategoryDto getCategoryById(int id) {
-        return categoryRepository.findById(id).map(categoryMapper::toDto)
+        return categoryCache.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
     }
 
     public CategoryDto createCategory(CategoryDto categoryDto) {
         try {
-            log.info("Attempting to create category with data: {}", categoryDto);
+            log.debug("Creating category: name={}", categoryDto.getName());
             CategoryEntity newCategory = categoryMapper.toEntity(categoryDto);
             CategoryEntity savedCategory = categoryRepository.save(newCategory);
-            log.info("Category created successfully: {}", savedCategory);
+            categoryCache.invalidate();
+            log.info("Category created: categoryId={}", savedCategory.getCategoryId());
             return categoryMapper.toDto(savedCategory);
         } catch (Exception e) {
             throw new ObjectCreationException("Failed to create category: " + e.getMessage());
@@ -49,24 +69,26 @@ public class CategoryService {
     }
 
     public CategoryDto updateCategory(int id, CategoryDto categoryDto) {
-        log.info("Attempting to update category with id {}, with data: {}", id, categoryDto);
+        log.debug("Updating category: categoryId={}", id);
         CategoryEntity categoryToUpdate = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
         categoryToUpdate.setCategoryName(
                 categoryDto.getName() != null ? categoryDto.getName() : categoryToUpdate.getCategoryName());
 
         CategoryEntity updatedCategory = categoryRepository.save(categoryToUpdate);
+        categoryCache.invalidate();
 
-        log.info("Category updated successfully: {}", updatedCategory);
+        log.info("Category updated: categoryId={}", id);
 
         return categoryMapper.toDto(updatedCategory);
     }
 
     public void deleteCategory(int id) {
-        log.info("Attempting to delete category with id {}", id);
+        log.debug("Deleting category: categoryId={}", id);
         CategoryEntity categoryToDelete = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
         categoryRepository.delete(categoryToDelete);
-        log.info("Category deleted successfully: {}", categoryToDelete);
+        categoryCache.invalidate();
+        log.info("Category deleted: categoryId={}", id);
     }
 }
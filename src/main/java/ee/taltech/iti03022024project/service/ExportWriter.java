@@ -0,0 +1,57 @@
+package ee.taltech.iti03022024project.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import ee.taltech.iti03022024project.responses.ExportFormat;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of DTOs to a response body one row at a time, as NDJSON or as CSV with a header line.
+ */
+@Component
+public class ExportWriter {
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public ExportWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> long write(Stream<T> rows, Class<T> type, ExportFormat format, OutputStream out) throws IOException {
+        ObjectWriter writer = switch (format) {
+            case NDJSON -> objectMapper.writerFor(type).withRootValueSeparator("\n");
+            case CSV -> csvMapper.writer(csvMapper.schemaFor(type).withHeader());
+        };
+
+        long count = 0;
+        // let the servlet buffer decide when to send a chunk, instead of flushing after every row
+        try (SequenceWriter sequence = writer
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(out)) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                sequence.write(iterator.next());
+                count++;
+            }
+        }
+        if (format == ExportFormat.NDJSON && count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return count;
+    }
+}
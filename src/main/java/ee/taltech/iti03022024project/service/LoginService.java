@@ -5,56 +5,107 @@ import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.exception.LoginException;
 import ee.taltech.iti03022024project.mapstruct.UserMapper;
 import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.security.JwtKeyRing;
+import ee.taltech.iti03022024project.security.LoginAttemptGuard;
 import ee.taltech.iti03022024project.security.LoginRequestDto;
 import ee.taltech.iti03022024project.security.LoginResponseDto;
+import ee.taltech.iti03022024project.security.PasswordVerifier;
 import io.jsonwebtoken.Jwts;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.crypto.SecretKey;
+import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class LoginService {
 
-    private final SecretKey key;
+    private final JwtKeyRing keyRing;
 
     private final UsersRepository usersRepository;
     private final UserMapper userMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
+    private final LoginAttemptGuard loginAttemptGuard;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final RefreshTokenService refreshTokenService;
 
-    public LoginResponseDto login(LoginRequestDto request) {
-        log.info("Attempting to login : {}", request.getEmail());
-        UserEntity user = usersRepository
-                .findByEmail(request.getEmail())
-                .orElseThrow(() -> new LoginException("User Not Found!"));
+    // short, since access tokens cannot be revoked; clients renew them with the refresh token
+    @Value("${app.jwt.access-token-ttl:PT15M}")
+    private Duration accessTokenTtl;
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+    // no surrounding transaction, so no connection is held while the password is hashed
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public LoginResponseDto login(LoginRequestDto request, String clientAddress) {
+        log.debug("Login attempt: clientAddress={}", clientAddress);
+        loginAttemptGuard.check(request.getEmail(), clientAddress);
+
+        UserEntity user = usersRepository.findByEmail(request.getEmail()).orElse(null);
+        if (user == null) {
+            loginAttemptGuard.recordFailure(request.getEmail(), clientAddress);
+            throw new LoginException("User Not Found!");
+        }
+
+        if (!passwordVerifier.matches(request.getPassword(), user.getPassword())) {
+            loginAttemptGuard.recordFailure(request.getEmail(), clientAddress);
             throw new LoginException("Invalid Password!");
         }
+        loginAttemptGuard.recordSuccess(request.getEmail());
+        if (passwordVerifier.upgradeEncoding(user.getPassword())) {
+            upgradePassword(user, request.getPassword());
+        }
 
-        String token = generateToken(user);
-        log.info("User {} logged in", request.getEmail());
-        return new LoginResponseDto(token);
+        LoginResponseDto response = issueTokens(user);
+        log.info("User logged in: userId={}", user.getUserId());
+        return response;
+    }
+
+    // no password check: the refresh token proves the earlier login
+    @Transactional(noRollbackFor = LoginException.class)
+    public LoginResponseDto refresh(String refreshToken) {
+        UserEntity user = refreshTokenService.consume(refreshToken);
+        log.debug("Tokens refreshed: userId={}", user.getUserId());
+        return issueTokens(user);
+    }
+
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+
+    private LoginResponseDto issueTokens(UserEntity user) {
+        return new LoginResponseDto(generateToken(user), refreshTokenService.issue(user), accessTokenTtl.toSeconds());
+    }
+
+    // best effort: the login already succeeded, a failed upgrade is retried on the next one
+    private void upgradePassword(UserEntity user, String rawPassword) {
+        try {
+            userDetailsPasswordService.updatePassword(user, passwordVerifier.encode(rawPassword));
+        } catch (RuntimeException e) {
+            log.warn("Could not upgrade password hash of user {}: {}", user.getUserId(), e.getMessage());
+        }
     }
 
-    private String generateToken(UserEntity user) {
+    String generateToken(UserEntity user) {
         return Jwts.builder()
+                .header().keyId(keyRing.activeKeyId()).and()
                 .subject(user.getEmail())
                 .claims(Map.of(
                         "userId", user.getUserId(),
                         "roles", user.getAuthorities()
                 ))
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
-                .signWith(key)
+                .expiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(keyRing.signingKey())
                 .compact();
     }
 
@@ -7,28 +7,42 @@ import ee.taltech.iti03022024project.exception.ObjectCreationException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.OrderItemMapper;
 import ee.taltech.iti03022024project.repository.OrderItemRepository;
+import ee.taltech.iti03022024project.repository.RowCountEstimator;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.specifications.OrderItemsSpecifications;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.OptionalLong;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class OrderItemService {
 
     private final OrderItemRepository orderItemRepository;
     private final OrderItemMapper orderItemMapper;
+    private final RowCountEstimator rowCountEstimator;
+    private final OrderService orderService;
 
 
+    @Transactional(readOnly = true)
     public PageResponse<OrderItemDto> getOrderItems(OrderItemSearchCriteria criteria, int pageNo, int pageSize) {
+        return getOrderItems(criteria, pageNo, pageSize, TotalCount.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<OrderItemDto> getOrderItems(OrderItemSearchCriteria criteria, int pageNo, int pageSize, TotalCount total) {
         // criteria
         Specification<OrderItemEntity> spec = Specification.where(null);
 
@@ -64,34 +78,66 @@ public class OrderItemService {
 
         Pageable paging = PageRequest.of(pageNo, pageSize);
 
-        Page<OrderItemEntity> page = orderItemRepository.findAll(spec, paging);
-        return new PageResponse<>(page.map(orderItemMapper::toDto));
+        return switch (total) {
+            case EXACT -> new PageResponse<>(orderItemRepository.findAllProjected(spec, paging, OrderItemRepository.DTO_PROJECTION));
+            case NONE -> new PageResponse<>(orderItemRepository.findAllProjectedSliced(spec, paging, OrderItemRepository.DTO_PROJECTION));
+            case ESTIMATE -> {
+                boolean filtered = criteria.id() != null || criteria.quantity() != null || criteria.productId() != null
+                        || criteria.orderId() != null || criteria.priceAtTimeOfOrder() != null;
+                OptionalLong estimate = filtered ? OptionalLong.empty() : rowCountEstimator.estimate("order_items");
+                yield estimate.isPresent()
+                        ? new PageResponse<>(orderItemRepository.findAllProjectedSliced(spec, paging, OrderItemRepository.DTO_PROJECTION), estimate.getAsLong())
+                        : new PageResponse<>(orderItemRepository.findAllProjected(spec, paging, OrderItemRepository.DTO_PROJECTION));
+            }
+        };
     }
 
+    @Transactional(readOnly = true)
     public OrderItemDto getOrderItemById(int id) {
         return orderItemRepository.findById(id).map(orderItemMapper::toDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Order item with id " + id + " not found"));
     }
 
     public OrderItemDto createOrderItem(OrderItemDto orderItemDto) {
+        orderService.authorizeCartWrites(List.of(orderItemDto.getOrderId()));
         try {
-            log.info("Attempting to create order item with data: {}", orderItemDto);
+            log.debug("Creating order item: orderId={}, productId={}", orderItemDto.getOrderId(), orderItemDto.getProductId());
             OrderItemEntity newOrderItem = orderItemMapper.toEntity(orderItemDto);
             OrderItemEntity savedOrderItem = orderItemRepository.save(newOrderItem);
-            log.info("Order item created successfully: {}", savedOrderItem);
+            log.info("Order item created: orderItemId={}, orderId={}", savedOrderItem.getOrderItemId(), orderItemDto.getOrderId());
             return orderItemMapper.toDto(savedOrderItem);
         } catch (Exception e) {
             throw new ObjectCreationException("Failed to create order item: " + e.getMessage());
         }
     }
 
+    // ids come from the pooled sequence, so the flush sends the inserts as JDBC batches instead of one round trip each
+    public List<OrderItemDto> createOrderItems(List<OrderItemDto> orderItemDtos) {
+        orderService.authorizeCartWrites(orderItemDtos.stream()
+                .map(OrderItemDto::getOrderId)
+                .toList());
+        try {
+            log.debug("Creating order items: count={}", orderItemDtos.size());
+            List<OrderItemEntity> newOrderItems = orderItemDtos.stream()
+                    .map(orderItemMapper::toEntity)
+                    .toList();
+            List<OrderItemEntity> savedOrderItems = orderItemRepository.saveAllAndFlush(newOrderItems);
+            log.info("Order items created: count={}", savedOrderItems.size());
+            return savedOrderItems.stream()
+                    .map(orderItemMapper::toDto)
+                    .toList();
+        } catch (Exception e) {
+            throw new ObjectCreationException("Failed to create order items: " + e.getMessage());
+        }
+    }
+
 
     public void deleteOrderItem(int id) {
-        log.info("Attempting to delete order item with id {}", id);
+        log.debug("Deleting order item: orderItemId={}", id);
         OrderItemEntity orderItemToDelete = orderItemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order item with id " + id + " not found"));
         orderItemRepository.delete(orderItemToDelete);
-        log.info("Order item deleted successfully: {}", orderItemToDelete);
+        log.info("Order item deleted: orderItemId={}", id);
 
     }
 }
@@ -1,44 +1,123 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.cache.StatusCache;
 import ee.taltech.iti03022024project.criteria.OrderSearchCriteria;
 import ee.taltech.iti03022024project.domain.OrderEntity;
 import ee.taltech.iti03022024project.domain.StatusEntity;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.dto.OrderDto;
 import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.exception.CheckoutException;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
+import ee.taltech.iti03022024project.exception.OrderStateException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.OrderMapper;
 import ee.taltech.iti03022024project.repository.OrderRepository;
+import ee.taltech.iti03022024project.repository.RowCountEstimator;
 import ee.taltech.iti03022024project.repository.StatusRepository;
+import ee.taltech.iti03022024project.repository.StockReservation;
+import ee.taltech.iti03022024project.responses.ExportFormat;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.security.AuthenticationFacade;
-import jakarta.transaction.Transactional;
+import ee.taltech.iti03022024project.security.UserPrincipal;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class OrderService {
 
     private final OrderRepository orderRepository;
     private final StatusRepository statusRepository;
+    private final StatusCache statusCache;
     private final OrderMapper orderMapper;
+    private final RowCountEstimator rowCountEstimator;
+    private final ExportWriter exportWriter;
 
     private final AuthenticationFacade authenticationFacade;
 
     private static final String NOT_FOUND_MSG = "Order with id %s not found";
+    private static final int CART_STATUS_ID = 0;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    @Value("${app.orders.placed-status-id:1}")
+    private int placedStatusId;
+
+    // a missing status would otherwise only show up as a 404 on every checkout
+    @PostConstruct
+    void checkPlacedStatus() {
+        if (!statusRepository.existsById(placedStatusId)) {
+            throw new IllegalStateException(
+                    "app.orders.placed-status-id is %d, but there is no status with that id".formatted(placedStatusId));
+        }
+    }
 
-
+    @Transactional(readOnly = true)
     public PageResponse<OrderDto> getOrders(OrderSearchCriteria criteria, int pageNo, int pageSize) {
+        return getOrders(criteria, pageNo, pageSize, TotalCount.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<OrderDto> getOrders(OrderSearchCriteria criteria, int pageNo, int pageSize, TotalCount total) {
+
+        Specification<OrderEntity> spec = buildSpecification(criteria);
+
+        if (pageNo < 0) {
+            pageNo = 0;
+        }
+
+        if (pageSize < 1) {
+            pageSize = 1;
+        }
 
+        Pageable paging = PageRequest.of(pageNo, pageSize);
+
+        return switch (total) {
+            case EXACT -> new PageResponse<>(orderRepository.findAllProjected(spec, paging, OrderRepository.DTO_PROJECTION));
+            case NONE -> new PageResponse<>(orderRepository.findAllProjectedSliced(spec, paging, OrderRepository.DTO_PROJECTION));
+            case ESTIMATE -> {
+                boolean filtered = criteria.id() != null || criteria.userId() != null || criteria.statusId() != null;
+                OptionalLong estimate = filtered ? OptionalLong.empty() : rowCountEstimator.estimate("orders");
+                yield estimate.isPresent()
+                        ? new PageResponse<>(orderRepository.findAllProjectedSliced(spec, paging, OrderRepository.DTO_PROJECTION), estimate.getAsLong())
+                        : new PageResponse<>(orderRepository.findAllProjected(spec, paging, OrderRepository.DTO_PROJECTION));
+            }
+        };
+
+    }
+
+    // called while the response is being written; the transaction keeps the database cursor open until the last row
+    @Transactional(readOnly = true)
+    public long exportOrders(OrderSearchCriteria criteria, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<OrderDto> rows = orderRepository.streamProjected(
+                buildSpecification(criteria), Sort.by("orderId"), OrderRepository.DTO_PROJECTION, EXPORT_FETCH_SIZE)) {
+            long exported = exportWriter.write(rows, OrderDto.class, format, out);
+            log.info("Exported {} orders as {}", exported, format);
+            return exported;
+        }
+    }
+
+    private Specification<OrderEntity> buildSpecification(OrderSearchCriteria criteria) {
         Specification<OrderEntity> spec = Specification.where(null);
 
         if (criteria.id() != null) {
@@ -53,21 +132,10 @@ public class OrderService {
             spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("status").get("statusId"), criteria.statusId()));
         }
 
-        if (pageNo < 0) {
-            pageNo = 0;
-        }
-
-        if (pageSize < 1) {
-            pageSize = 1;
-        }
-
-        Pageable paging = PageRequest.of(pageNo, pageSize);
-
-        Page<OrderEntity> page = orderRepository.findAll(spec, paging);
-        return new PageResponse<>(page.map(orderMapper::toDto));
-
+        return spec;
     }
 
+    @Transactional(readOnly = true)
     public OrderDto getOrderById(int id) {
         return orderRepository.findById(id).map(orderMapper::toDto)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
@@ -75,16 +143,13 @@ public class OrderService {
 
     public OrderDto createOrder(OrderDto orderDto) {
         try {
-            log.info("Attempting to create order with data: {}", orderDto);
+            log.debug("Creating order: userId={}, statusId={}", orderDto.getUserId(), orderDto.getStatusId());
             OrderEntity newOrder = orderMapper.toEntity(orderDto);
 
-            // fetch status from db to avoid detached entity exception
-            StatusEntity status = statusRepository.findById(orderDto.getStatusId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Status with id " + orderDto.getStatusId() + " not found"));
-            newOrder.setStatus(status);
+            newOrder.setStatus(statusReference(orderDto.getStatusId()));
 
             OrderEntity savedOrder = orderRepository.save(newOrder);
-            log.info("Order created successfully: {}", savedOrder);
+            log.info("Order created: orderId={}, userId={}", savedOrder.getOrderId(), orderDto.getUserId());
             return orderMapper.toDto(savedOrder);
         } catch (ResourceNotFoundException e) {
             throw e;
@@ -96,11 +161,10 @@ public class OrderService {
     // This method returns OrderEntity as it must be only used in UserService, thus not facing controller
     public OrderEntity createUnfinishedOrderForUser(UserEntity userEntity) {
         try {
-            log.info("Attempting to create cart for user {}", userEntity);
+            log.debug("Creating cart: userId={}", userEntity.getUserId());
             OrderEntity orderEntity = new OrderEntity();
             orderEntity.setUser(userEntity);
-            orderEntity.setStatus(statusRepository.getReferenceById(0));  // cart status has id of 0
-            log.info("Trying to save cart {}", orderEntity);
+            orderEntity.setStatus(statusRepository.getReferenceById(CART_STATUS_ID));
             return orderRepository.save(orderEntity);
         } catch (Exception e) {
             throw new ObjectCreationException("Failed to create cart: " + e.getMessage());
@@ -110,35 +174,108 @@ public class OrderService {
     }
 
     public OrderDto updateOrder(int id, OrderDto orderDto) {
-        log.info("Attempting to update order with id {}, with data: {}", id, orderDto);
+        log.debug("Updating order: orderId={}, statusId={}", id, orderDto.getStatusId());
         OrderEntity orderToUpdate = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
-        log.info(authenticationFacade.getAuthenticatedUser().getUserId() + " " + orderToUpdate.getUser().getUserId());
-        log.info(authenticationFacade.getAuthenticatedUser().getRole().getRoleName());
-        if (authenticationFacade.getAuthenticatedUser().getUserId() != orderToUpdate.getUser().getUserId() &&
-                authenticationFacade.getAuthenticatedUser().getRole().getRoleId() == 1) {
-            throw new BadTokenException("User not authorized to update order");
+        UserPrincipal principal = authorizeOwner(orderToUpdate, "User not authorized to update order");
+
+        // only checkout places a cart, because it reserves the stock; owners may neither skip it nor reopen the order
+        int currentStatusId = orderToUpdate.getStatus().getStatusId();
+        int newStatusId = orderDto.getStatusId();
+        if (!principal.isAdmin() && newStatusId != currentStatusId
+                && (isCheckoutStatus(currentStatusId) || isCheckoutStatus(newStatusId))) {
+            throw new OrderStateException("Order with id %s can only be placed through checkout".formatted(id));
         }
 
-
-        StatusEntity newStatus = statusRepository.findById(orderDto.getStatusId())
-                .orElseThrow(() -> new ResourceNotFoundException("Status with id " + orderDto.getStatusId() + " not found"));
-
-        orderToUpdate.setStatus(newStatus);
+        orderToUpdate.setStatus(statusReference(newStatusId));
 
         orderRepository.save(orderToUpdate);
 
-        log.info("Order updated successfully: {}", orderToUpdate);
+        log.info("Order updated: orderId={}, statusId={}", id, orderDto.getStatusId());
 
         return orderMapper.toDto(orderToUpdate);
     }
 
+    public OrderDto checkout(int id) {
+        log.debug("Checking out order: orderId={}", id);
+        // the order row is locked before any product row, so two checkouts of the same cart simply queue up
+        OrderEntity order = orderRepository.findWithLockByOrderId(id)
+                .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
+        authorizeOwner(order, "User not authorized to check out order");
+        if (order.getStatus().getStatusId() != CART_STATUS_ID) {
+            throw new CheckoutException("Order with id %s is not a cart".formatted(id));
+        }
+        StatusEntity placed = statusReference(placedStatusId);
+
+        StockReservation reservation = orderRepository.reserveStock(id);
+        if (reservation.getRequested() == 0) {
+            throw new CheckoutException("Order with id %s has no items".formatted(id));
+        }
+        if (reservation.getReserved() < reservation.getRequested()) {
+            // rolls back the decrements already made for the other products
+            throw new CheckoutException("Not enough stock to check out order with id %s".formatted(id));
+        }
+
+        order.setStatus(placed);
+        UserEntity owner = order.getUser();
+        if (owner.getUnfinishedOrder() == null || owner.getUnfinishedOrder().getOrderId() == id) {
+            owner.setUnfinishedOrder(createUnfinishedOrderForUser(owner));
+            authenticationFacade.evictUser(owner.getEmail());
+        }
+        log.info("Order checked out: orderId={}, reserved={}", id, reservation.getReserved());
+        return orderMapper.toDto(order);
+    }
+
+    /**
+     * Checks that items may be added to the given orders: each has to belong to the caller and still be a cart.
+     * The orders stay locked until the caller's transaction ends, so a concurrent checkout cannot place an order
+     * between this check and the insert of its new items.
+     */
+    public void authorizeCartWrites(Collection<Integer> orderIds) {
+        // locked in id order, like the products in reserveStock, so two requests cannot deadlock
+        for (int orderId : new TreeSet<>(orderIds)) {
+            OrderEntity order = orderRepository.findWithLockByOrderId(orderId)
+                    .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(orderId)));
+            authorizeOwner(order, "User not authorized to add items to order");
+            if (order.getStatus().getStatusId() != CART_STATUS_ID) {
+                throw new OrderStateException("Order with id %s is not a cart".formatted(orderId));
+            }
+        }
+    }
+
+    private boolean isCheckoutStatus(int statusId) {
+        return statusId == CART_STATUS_ID || statusId == placedStatusId;
+    }
+
+    // compares the token's claims with the order's user_id foreign key, neither needs a query
+    private UserPrincipal authorizeOwner(OrderEntity order, String message) {
+        UserPrincipal principal = authenticationFacade.getPrincipal();
+        // a signed token without a userId claim identifies nobody
+        if (principal == null || principal.userId() == null) {
+            throw new BadTokenException(message);
+        }
+        int ownerId = order.getUser().getUserId();
+        log.debug("Authorizing order access: userId={}, orderId={}, ownerId={}", principal.userId(), order.getOrderId(), ownerId);
+        if (principal.userId() != ownerId && !principal.isAdmin()) {
+            throw new BadTokenException(message);
+        }
+        return principal;
+    }
+
+    // existence is checked against the status cache, the managed proxy avoids both a select and a detached entity
+    private StatusEntity statusReference(int statusId) {
+        if (!statusCache.exists(statusId)) {
+            throw new ResourceNotFoundException("Status with id " + statusId + " not found");
+        }
+        return statusRepository.getReferenceById(statusId);
+    }
+
     public void deleteOrder(int id) {
-        log.info("Attempting to delete order with id {}", id);
+        log.debug("Deleting order: orderId={}", id);
         OrderEntity orderToDelete = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
         orderRepository.delete(orderToDelete);
-        log.info("Order deleted successfully: {}", orderToDelete);
+        log.info("Order deleted: orderId={}", id);
 
     }
 }
@@ -0,0 +1,281 @@
+package ee.taltech.iti03022024project.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import ee.taltech.iti03022024project.cache.CategoryCache;
+import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.repository.ProductBatchWriter;
+import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.responses.ImportReport;
+import ee.taltech.iti03022024project.responses.ImportReport.RowError;
+import ee.taltech.iti03022024project.security.AuthenticationFacade;
+import ee.taltech.iti03022024project.security.UserPrincipal;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports products from a CSV or NDJSON request body while it is being read. Valid rows are written in chunks,
+ * each chunk in its own short transaction, so memory use and lock time do not grow with the size of the upload.
+ * Invalid rows are skipped and listed in the returned report. When the database rejects a chunk, its rows are
+ * retried one by one, so only the rows that actually fail are reported.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+    // a product is a few hundred characters; longer NDJSON lines are rejected without being buffered
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int END_OF_INPUT = -1;
+    private static final int LINE_TOO_LONG = -2;
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .findAndAddModules()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.emptySchema().withHeader();
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final CategoryCache categoryCache;
+    private final UsersRepository usersRepository;
+    private final ProductBatchWriter productBatchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthenticationFacade authenticationFacade;
+
+    // the first line is the header, rows are numbered from the line after it
+    public ImportReport importCsv(InputStream body) {
+        Import run = start();
+        long row = 0;
+        try (MappingIterator<ProductDto> rows = CSV_MAPPER.readerFor(ProductDto.class).with(CSV_SCHEMA).readValues(body)) {
+            while (rows.hasNextValue()) {
+                row++;
+                try {
+                    run.accept(row, rows.nextValue());
+                } catch (JsonMappingException e) {
+                    run.reject(row, "Invalid value: " + e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            run.stop(row + 1, "Malformed CSV, import stopped: " + e.getMessage());
+        }
+        return run.finish();
+    }
+
+    // one JSON object per line, rows are line numbers; blank lines are skipped
+    public ImportReport importNdjson(InputStream body) {
+        Import run = start();
+        ObjectReader reader = objectMapper.readerFor(ProductDto.class);
+        long row = 0;
+        StringBuilder line = new StringBuilder();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            int length;
+            while ((length = readLine(lines, line)) != END_OF_INPUT) {
+                row++;
+                if (length == LINE_TOO_LONG) {
+                    run.reject(row, "Line longer than " + MAX_LINE_LENGTH + " characters");
+                    continue;
+                }
+                if (line.toString().isBlank()) {
+                    continue;
+                }
+                try {
+                    run.accept(row, reader.readValue(line.toString()));
+                } catch (JsonProcessingException e) {
+                    run.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            run.stop(row + 1, "Failed to read request body, import stopped: " + e.getMessage());
+        }
+        return run.finish();
+    }
+
+    // reads up to the next \n (dropping a \r before it) into line and returns its length; an over-long line is
+    // read to its end but only MAX_LINE_LENGTH + 1 characters of it are kept, unlike BufferedReader.readLine
+    private static int readLine(Reader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean truncated = false;
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (line.length() <= MAX_LINE_LENGTH) {
+                line.append((char) c);
+            } else {
+                truncated = true;
+            }
+        }
+        if (c == -1 && line.isEmpty()) {
+            return END_OF_INPUT;
+        }
+        if (!truncated && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return truncated || line.length() > MAX_LINE_LENGTH ? LINE_TOO_LONG : line.length();
+    }
+
+    private Import start() {
+        UserPrincipal caller = authenticationFacade.getPrincipal();
+        if (caller == null || caller.userId() == null) {
+            throw new BadTokenException("User not authorized");
+        }
+        log.info("Starting product import for user {}", caller.userId());
+        return new Import(caller);
+    }
+
+    private final class Import {
+
+        private final UserPrincipal caller;
+        private final Map<Integer, Boolean> knownSellers = new HashMap<>();
+        private final List<ProductDto> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<Long> chunkRows = new ArrayList<>(CHUNK_SIZE);
+        private final List<RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long errorCount;
+
+        private Import(UserPrincipal caller) {
+            this.caller = caller;
+        }
+
+        void accept(long row, ProductDto product) {
+            rowsRead++;
+            String problem = check(product);
+            if (problem != null) {
+                fail(row, problem);
+                return;
+            }
+            chunk.add(product);
+            chunkRows.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            rowsRead++;
+            fail(row, message);
+        }
+
+        void stop(long row, String message) {
+            addError(row, message);
+        }
+
+        ImportReport finish() {
+            flush();
+            log.info("Product import finished: {} rows read, {} imported, {} rejected", rowsRead, imported, rejected);
+            return new ImportReport(rowsRead, imported, rejected, List.copyOf(errors), errorCount > errors.size());
+        }
+
+        private String check(ProductDto product) {
+            List<String> violations = validator.validate(product).stream()
+                    .map(this::describe)
+                    .sorted()
+                    .toList();
+            if (!violations.isEmpty()) {
+                return String.join("; ", violations);
+            }
+            if (product.getPrice() == null) {
+                return "price is required";
+            }
+            if (product.getCategoryId() == null) {
+                return "categoryId is required";
+            }
+            if (categoryCache.findById(product.getCategoryId()).isEmpty()) {
+                return "Category with id " + product.getCategoryId() + " not found";
+            }
+
+            Integer sellerId = product.getSellerId();
+            if (sellerId == null || sellerId.equals(caller.userId())) {
+                product.setSellerId(caller.userId());
+                return null;
+            }
+            if (!caller.isAdmin()) {
+                return "User and seller id not match";
+            }
+            if (!knownSellers.computeIfAbsent(sellerId, usersRepository::existsById)) {
+                return "User with id " + sellerId + " not found";
+            }
+            return null;
+        }
+
+        private String describe(ConstraintViolation<ProductDto> violation) {
+            return violation.getPropertyPath() + " " + violation.getMessage();
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> productBatchWriter.insert(chunk));
+                imported += chunk.size();
+            } catch (DataAccessException e) {
+                if (e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessException) {
+                    // the database is unavailable, not the rows; retrying them one by one would only fail slower
+                    log.error("Product import chunk of {} rows failed", chunk.size(), e);
+                    String message = "Rejected by the database: " + e.getMostSpecificCause().getMessage();
+                    chunkRows.forEach(row -> fail(row, message));
+                } else {
+                    log.warn("Product import chunk of {} rows rejected by the database, retrying row by row: {}",
+                            chunk.size(), e.getMostSpecificCause().getMessage());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        insertOne(chunkRows.get(i), chunk.get(i));
+                    }
+                }
+            }
+            chunk.clear();
+            chunkRows.clear();
+        }
+
+        private void insertOne(long row, ProductDto product) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> productBatchWriter.insert(List.of(product)));
+                imported++;
+            } catch (DataAccessException e) {
+                fail(row, "Rejected by the database: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        private void fail(long row, String message) {
+            rejected++;
+            addError(row, message);
+        }
+
+        private void addError(long row, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(row, message));
+            }
+        }
+    }
+}
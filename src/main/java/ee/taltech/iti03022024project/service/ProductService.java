@@ -1,50 +1,195 @@
 package ee.taltech.iti03022024project.service;
 
 
+import ee.taltech.iti03022024project.criteria.ProductCursor;
 import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
 import ee.taltech.iti03022024project.domain.CategoryEntity;
 import ee.taltech.iti03022024project.domain.ProductEntity;
 import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.dto.ProductSearchHitDto;
 import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.exception.InvalidCursorException;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.ProductMapper;
 import ee.taltech.iti03022024project.repository.CategoryRepository;
 import ee.taltech.iti03022024project.repository.ProductRepository;
+import ee.taltech.iti03022024project.repository.ProductSearchRow;
+import ee.taltech.iti03022024project.repository.RowCountEstimator;
 import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.responses.CursorPageResponse;
+import ee.taltech.iti03022024project.responses.ExportFormat;
 import ee.taltech.iti03022024project.responses.PageResponse;
-import ee.taltech.iti03022024project.security.JwtRequestFilter;
+import ee.taltech.iti03022024project.responses.TotalCount;
+import ee.taltech.iti03022024project.security.UserPrincipal;
 import ee.taltech.iti03022024project.specifications.ProductSpecifications;
-import io.jsonwebtoken.Claims;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class ProductService {
 
-    private final JwtRequestFilter jwtRequestFilter;
-
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
     private final UsersRepository usersRepository;
+    private final RowCountEstimator rowCountEstimator;
+    private final ExportWriter exportWriter;
 
     private static final String NOT_FOUND_MSG = "Product with id %s not found";
+    private static final Set<String> CURSOR_SORT_KEYS = Set.of("productId", "price", "name");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_SEARCH_TERMS = 8;
+    private static final int EXPORT_FETCH_SIZE = 1000;
 
+    @Transactional(readOnly = true)
     public PageResponse<ProductDto> getProducts(ProductSearchCriteria criteria, int pageNo, int pageSize) {
+        return getProducts(criteria, pageNo, pageSize, TotalCount.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<ProductDto> getProducts(ProductSearchCriteria criteria, int pageNo, int pageSize, TotalCount total) {
+        Specification<ProductEntity> spec = buildSpecification(criteria);
+
+        if (pageNo < 0) {
+            pageNo = 0;
+        }
+
+        if (pageSize < 1) {
+            pageSize = 1;
+        }
+
+        Pageable paging = PageRequest.of(pageNo, pageSize, sortOf(criteria));
+
+        return switch (total) {
+            case EXACT -> new PageResponse<>(productRepository.findAllProjected(spec, paging, ProductRepository.DTO_PROJECTION));
+            case NONE -> new PageResponse<>(productRepository.findAllProjectedSliced(spec, paging, ProductRepository.DTO_PROJECTION));
+            case ESTIMATE -> {
+                OptionalLong estimate = isFiltered(criteria) ? OptionalLong.empty() : rowCountEstimator.estimate("products");
+                yield estimate.isPresent()
+                        ? new PageResponse<>(productRepository.findAllProjectedSliced(spec, paging, ProductRepository.DTO_PROJECTION), estimate.getAsLong())
+                        : new PageResponse<>(productRepository.findAllProjected(spec, paging, ProductRepository.DTO_PROJECTION));
+            }
+        };
+    }
+
+    // called while the response is being written; the transaction keeps the database cursor open until the last row
+    @Transactional(readOnly = true)
+    public long exportProducts(ProductSearchCriteria criteria, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ProductDto> rows = productRepository.streamProjected(
+                buildSpecification(criteria), sortOf(criteria), ProductRepository.DTO_PROJECTION, EXPORT_FETCH_SIZE)) {
+            long exported = exportWriter.write(rows, ProductDto.class, format, out);
+            log.info("Exported {} products as {}", exported, format);
+            return exported;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ProductDto> getProductsAfter(ProductSearchCriteria criteria, String cursor, int pageSize) {
+        Specification<ProductEntity> spec = buildSpecification(criteria);
+
+        String sortBy = criteria.sortBy() == null ? "productId" : criteria.sortBy();
+        Sort.Direction direction = Sort.Direction.valueOf(criteria.sortDirection() == null ? "DESC" : criteria.sortDirection());
+
+        if (!CURSOR_SORT_KEYS.contains(sortBy)) {
+            throw new InvalidCursorException(String.format("Cursor pagination is not supported when sorting by %s", sortBy));
+        }
+
+        if (pageSize < 1) {
+            pageSize = 1;
+        }
+
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor position = ProductCursor.decode(cursor);
+            if (!position.sortBy().equals(sortBy) || position.direction() != direction) {
+                throw new InvalidCursorException("Cursor does not match the requested sort order");
+            }
+            spec = spec.and(ProductSpecifications.after(position));
+        }
+        spec = spec.and(ProductSpecifications.orderedBy(sortBy, direction));
+
+        Slice<ProductEntity> slice = productRepository.findAllSliced(spec, PageRequest.of(0, pageSize));
+        String nextCursor = slice.hasNext()
+                ? ProductCursor.after(slice.getContent().getLast(), sortBy, direction).encode()
+                : null;
+        return new CursorPageResponse<>(slice.map(productMapper::toDto).getContent(), pageSize, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<ProductSearchHitDto> searchProducts(String text, int pageNo, int pageSize) {
+        if (pageNo < 0) {
+            pageNo = 0;
+        }
+
+        if (pageSize < 1) {
+            pageSize = 1;
+        }
+
+        Pageable paging = PageRequest.of(pageNo, pageSize);
+        String query = toPrefixQuery(text);
+        if (query.isEmpty()) {
+            return new PageResponse<>(new SliceImpl<>(List.<ProductSearchHitDto>of(), paging, false));
+        }
+
+        // one extra row tells whether another page follows, no count query needed
+        List<ProductSearchRow> rows = productRepository.searchByText(query, pageSize + 1, paging.getOffset());
+        boolean hasNext = rows.size() > pageSize;
+        List<ProductSearchHitDto> hits = rows.stream()
+                .limit(pageSize)
+                .map(productMapper::toSearchHitDto)
+                .toList();
+        return new PageResponse<>(new SliceImpl<>(hits, paging, hasNext));
+    }
+
+    // "gaming lap" -> "gaming:* & lap:*"; only letters and digits reach to_tsquery, so user input cannot break its syntax
+    static String toPrefixQuery(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase()))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .limit(MAX_SEARCH_TERMS)
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    private boolean isFiltered(ProductSearchCriteria criteria) {
+        return criteria.productId() != null || criteria.name() != null || criteria.description() != null
+                || criteria.price() != null || criteria.quantityInStock() != null
+                || criteria.seller() != null || criteria.category() != null;
+    }
+
+    private static Sort sortOf(ProductSearchCriteria criteria) {
+        String sortBy = criteria.sortBy() == null ? "productId" : criteria.sortBy();
+        String sortDirection = criteria.sortDirection() == null ? "DESC" : criteria.sortDirection();
+        return Sort.by(Sort.Direction.valueOf(sortDirection), sortBy);
+    }
+
+    static Specification<ProductEntity> buildSpecification(ProductSearchCriteria criteria) {
         // criteria
         Specification<ProductEntity> spec = Specification.where(null);
 
@@ -76,82 +221,73 @@ public class ProductService {
             spec = spec.and(ProductSpecifications.hasCategory(criteria.category().getCategoryId()));
         }
 
-        // sorting
-        String sortBy = criteria.sortBy() == null ? "productId" : criteria.sortBy();
-
-        if (pageNo < 0) {
-            pageNo = 0;
-        }
-
-        if (pageSize < 1) {
-            pageSize = 1;
-        }
-
-
-
-        String sortDirection = criteria.sortDirection() == null ? "DESC" : criteria.sortDirection();
-        Sort sort = Sort.by(Sort.Direction.valueOf(sortDirection), sortBy);
-        Pageable paging = PageRequest.of(pageNo, pageSize, sort);
-
-        Page<ProductEntity> page = productRepository.findAll(spec, paging);
-        return new PageResponse<>(page.map(productMapper::toDto));
+        return spec;
     }
 
-    private void tokenValidation(int sellerId, String token) {
-        log.info("Starting token validation");
-        if (token == null || token.isEmpty()) {
-            throw new BadTokenException("Token is null or empty");
+    // the caller comes from the token claims and the seller id from the product's foreign key, so no query runs
+    private void authorizeSeller(int sellerId, UserPrincipal principal) {
+        // a signed token without a userId claim identifies nobody
+        if (principal == null || principal.userId() == null) {
+            throw new BadTokenException("User not authorized");
         }
-
-        Claims claims = jwtRequestFilter.parseToken(token.split(" ")[1]);
-        if (claims == null) {
-            throw new BadTokenException("Invalid token");
-        }
-
-        int userId = (int) claims.get("userId");
-        String role = (String) ((LinkedHashMap<?, ?>)((ArrayList<?>)claims.get("roles")).getFirst()).get("authority");
-        if (userId != sellerId && role.equals("ROLE_USER")) {
+        if (principal.userId() != sellerId && !principal.isAdmin()) {
             throw new BadTokenException("User and seller id not match");
         }
-        log.info("Token validation completed successfully");
     }
 
+    @Transactional(readOnly = true)
     public ProductDto getProductById(int id) {
         return productRepository.findById(id).map(productMapper::toDto)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
     }
 
+    @Transactional(readOnly = true)
+    public long getProductVersion(int id) {
+        return productRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
+    }
+
+    @Transactional(readOnly = true)
     public PageResponse<ProductDto> getProductsByUserId(int id, int pageNo, int pageSize) {
+        return getProductsByUserId(id, pageNo, pageSize, TotalCount.EXACT);
+    }
+
+    // always filtered by seller, so ESTIMATE counts exactly
+    @Transactional(readOnly = true)
+    public PageResponse<ProductDto> getProductsByUserId(int id, int pageNo, int pageSize, TotalCount total) {
         if (usersRepository.findById(id).isEmpty()) {
             throw new ResourceNotFoundException("User with id " + id + " not found");
         }
         Pageable paging = PageRequest.of(pageNo, pageSize);
-        Page<ProductEntity> page = productRepository.findAllBySeller_UserId(id, paging);
-        return new PageResponse<>(page.map(productMapper::toDto));
-
+        Specification<ProductEntity> bySeller = (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("seller").get("userId"), id);
+        if (total == TotalCount.NONE) {
+            return new PageResponse<>(productRepository.findAllProjectedSliced(bySeller, paging, ProductRepository.DTO_PROJECTION));
+        }
+        return new PageResponse<>(productRepository.findAllProjected(bySeller, paging, ProductRepository.DTO_PROJECTION));
     }
 
-    public ProductDto createProduct(ProductDto productDto, String token) {
-        tokenValidation(productDto.getSellerId(), token);
+    public ProductDto createProduct(ProductDto productDto, UserPrincipal principal) {
+        authorizeSeller(productDto.getSellerId(), principal);
 
         try {
-            log.info("Attempting to create product with data: {}", productDto);
+            log.debug("Creating product: sellerId={}, categoryId={}", productDto.getSellerId(), productDto.getCategoryId());
             ProductEntity newProduct = productMapper.toEntity(productDto);
             ProductEntity savedProduct = productRepository.save(newProduct);
-            log.info("Product created successfully: {}", savedProduct);
+            log.info("Product created: productId={}, sellerId={}", savedProduct.getProductId(), productDto.getSellerId());
             return productMapper.toDto(savedProduct);
         } catch (Exception e) {
             throw new ObjectCreationException("Failed to create product: " + e.getMessage());
         }
     }
 
-    public ProductDto updateProduct(int id, ProductDto productDto, String token) {
-        log.info("Attempting to update product with id {}, with data: {}", id, productDto);
+    public ProductDto updateProduct(int id, ProductDto productDto, UserPrincipal principal) {
+        log.debug("Updating product: productId={}", id);
 
         ProductEntity productToUpdate = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
 
-        tokenValidation(productToUpdate.getSeller().getUserId(), token);
+        authorizeSeller(productToUpdate.getSeller().getUserId(), principal);
 
         if (productDto.getName() != null) {
             productToUpdate.setName(productDto.getName());
@@ -180,17 +316,17 @@ public class ProductService {
 
         productRepository.save(productToUpdate);
 
-        log.info("Product updated successfully: {}", productToUpdate);
+        log.info("Product updated: productId={}", id);
 
         return productMapper.toDto(productToUpdate);
     }
 
-    public void deleteProduct(int id, String token) {
-        log.info("Attempting to delete product with id {}", id);
+    public void deleteProduct(int id, UserPrincipal principal) {
+        log.debug("Deleting product: productId={}", id);
         ProductEntity productToDelete = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
 
-        tokenValidation(productToDelete.getSeller().getUserId(), token);
+        authorizeSeller(productToDelete.getSeller().getUserId(), principal);
 
         productRepository.delete(productToDelete);
 
@@ -0,0 +1,107 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.domain.RefreshTokenEntity;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import ee.taltech.iti03022024project.exception.LoginException;
+import ee.taltech.iti03022024project.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Opaque refresh tokens: 256 random bits handed to the client, of which only a SHA-256 is stored. That is
+ * enough at rest since the tokens are random, so checking one costs a digest and an index lookup instead of
+ * a BCrypt hash. Every refresh revokes the presented token and issues a new one; presenting an already
+ * revoked token means it was copied, and revokes every token of the user.
+ */
+@Slf4j
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration refreshTokenTtl;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${app.jwt.refresh-token-ttl:P30D}") Duration refreshTokenTtl) {
+        this(refreshTokenRepository, refreshTokenTtl, Clock.systemUTC());
+    }
+
+    RefreshTokenService(RefreshTokenRepository refreshTokenRepository, Duration refreshTokenTtl, Clock clock) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenTtl = refreshTokenTtl;
+        this.clock = clock;
+    }
+
+    public String issue(UserEntity user) {
+        Instant now = clock.instant();
+        refreshTokenRepository.deleteExpiredForUser(user.getUserId(), now);
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshTokenEntity entity = new RefreshTokenEntity();
+        entity.setUser(user);
+        entity.setTokenHash(hash(token));
+        entity.setCreatedAt(now);
+        entity.setExpiresAt(now.plus(refreshTokenTtl));
+        refreshTokenRepository.save(entity);
+        return token;
+    }
+
+    /**
+     * Revokes the token and returns its user, for whom the caller issues the next access and refresh token.
+     * Does not roll back on LoginException, so the revocation of a replayed token's family sticks.
+     */
+    @Transactional(noRollbackFor = LoginException.class)
+    public UserEntity consume(String token) {
+        Instant now = clock.instant();
+        RefreshTokenEntity entity = refreshTokenRepository.findByTokenHash(hash(token))
+                .orElseThrow(() -> new LoginException("Invalid refresh token"));
+        UserEntity user = entity.getUser();
+
+        if (entity.getRevokedAt() != null || refreshTokenRepository.revoke(entity.getRefreshTokenId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeAllForUser(user.getUserId(), now);
+            log.warn("Revoked refresh token of user {} presented again, revoked {} other tokens", user.getUserId(), revoked);
+            throw new LoginException("Invalid refresh token");
+        }
+        if (!entity.getExpiresAt().isAfter(now)) {
+            throw new LoginException("Refresh token expired");
+        }
+        return user;
+    }
+
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(entity -> refreshTokenRepository.revoke(entity.getRefreshTokenId(), clock.instant()));
+    }
+
+    public Duration refreshTokenTtl() {
+        return refreshTokenTtl;
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,48 +1,67 @@
 package ee.taltech.iti03022024project.service;
 
 
+import ee.taltech.iti03022024project.cache.StatusCache;
 import ee.taltech.iti03022024project.domain.StatusEntity;
 import ee.taltech.iti03022024project.dto.StatusDto;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.StatusMapper;
 import ee.taltech.iti03022024project.repository.StatusRepository;
 import ee.taltech.iti03022024project.responses.PageResponse;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class StatusService {
 
     private final StatusRepository statusRepository;
     private final StatusMapper statusMapper;
+    private final StatusCache statusCache;
 
     private static final String NOT_FOUND_MSG = "Status with id %s not found";
 
 
+    // served from an in-memory cache, so no transaction (and no connection) unless the cache has to load
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public PageResponse<StatusDto> getStatuses(String search, int pageNo, int pageSize) {
-        log.info("Attempting to get statuses with search: {}, page number: {}, page size: {}", search, pageNo, pageSize);
+        log.debug("Listing statuses: search={}, page={}, size={}", search, pageNo, pageSize);
         Pageable pageable = PageRequest.of(pageNo, pageSize);
-        return new PageResponse<>(statusRepository.findAllByStatusNameContaining(search, pageable).map(statusMapper::toDto));
+        List<StatusDto> matching = statusCache.findAll().stream()
+                .filter(item -> item.getName().contains(search))
+                .toList();
+        return PageResponse.ofList(matching, pageable);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public String getStatusesTag() {
+        return statusCache.tag();
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public StatusDto getStatusById(int id) {
-        return statusRepository.findById(id).map(statusMapper::toDto)
+        return statusCache.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
     }
 
     public StatusDto createStatus(StatusDto statusDto) {
         try {
-            log.info("Attempting to create status: {}", statusDto);
+            log.debug("Creating status: name={}", statusDto.getName());
             StatusEntity newStatus = statusMapper.toEntity(statusDto);
             StatusEntity savedStatus = statusRepository.save(newStatus);
-            log.info("Status created successfully: {}", savedStatus);
+            statusCache.invalidate();
+            log.info("Status created: statusId={}", savedStatus.getStatusId());
             return statusMapper.toDto(savedStatus);
         } catch (Exception e) {
             throw new ResourceNotFoundException("Failed to create status: " + e.getMessage());
@@ -50,24 +69,26 @@ public class StatusService {
     }
 
     public StatusDto updateStatus(int id, StatusDto statusDto) {
-        log.info("Attempting to update status with id {}, with data: {}", id, statusDto);
+        log.debug("Updating status: statusId={}", id);
         StatusEntity statusToUpdate = statusRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
 
         statusToUpdate.setStatusName(statusDto.getName() != null ? statusDto.getName() : statusToUpdate.getStatusName());
 
         StatusEntity updatedStatus = statusRepository.save(statusToUpdate);
+        statusCache.invalidate();
 
-        log.info("Status updated successfully: {}", updatedStatus);
+        log.info("Status updated: statusId={}", id);
 
         return statusMapper.toDto(updatedStatus);
     }
 
     public void deleteStatus(int id) {
-        log.info("Attempting to delete status with id {}", id);
+        log.debug("Deleting status: statusId={}", id);
         StatusEntity statusToDelete = statusRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
         statusRepository.delete(statusToDelete);
-        log.info("Status deleted successfully: {}", statusToDelete);
+        statusCache.invalidate();
+        log.info("Status deleted: statusId={}", id);
     }
 }
@@ -10,20 +10,26 @@ import ee.taltech.iti03022024project.exception.ObjectCreationException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.UserMapper;
 import ee.taltech.iti03022024project.repository.RolesRepository;
+import ee.taltech.iti03022024project.repository.RowCountEstimator;
 import ee.taltech.iti03022024project.repository.UsersRepository;
 import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
 import ee.taltech.iti03022024project.security.AuthenticationFacade;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.OptionalLong;
 
 @Slf4j
 @Service
+@Timed("app.service")
 @Transactional
 @RequiredArgsConstructor
 public class UserService {
@@ -36,21 +42,39 @@ public class UserService {
 
     private final AuthenticationFacade authenticationFacade;
     private final PasswordEncoder passwordEncoder;
+    private final RowCountEstimator rowCountEstimator;
 
     private static final String NOT_FOUND_MSG = "User with id %s not found";
 
+    @Transactional(readOnly = true)
     public PageResponse<UserDto> getUsers(String search, int pageNo, int pageSize) {
-        log.info("Attempting to get users with search: {}, page: {}, size: {}", search, pageNo, pageSize);
+        return getUsers(search, pageNo, pageSize, TotalCount.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<UserDto> getUsers(String search, int pageNo, int pageSize, TotalCount total) {
+        log.debug("Listing users: search={}, page={}, size={}", search, pageNo, pageSize);
         Pageable paging = PageRequest.of(pageNo, pageSize);
-        Page<UserEntity> users = usersRepository.findAllByEmailContaining(search, paging);
-        return new PageResponse<>(users.map(userMapper::toDto));
+        return switch (total) {
+            case EXACT -> new PageResponse<>(usersRepository.findAllByEmailContaining(search, paging).map(userMapper::toDto));
+            case NONE -> new PageResponse<>(usersRepository.findSliceByEmailContaining(search, paging).map(userMapper::toDto));
+            case ESTIMATE -> {
+                OptionalLong estimate = search.isEmpty() ? rowCountEstimator.estimate("users") : OptionalLong.empty();
+                yield estimate.isPresent()
+                        ? new PageResponse<>(usersRepository.findSliceByEmailContaining(search, paging).map(userMapper::toDto), estimate.getAsLong())
+                        : new PageResponse<>(usersRepository.findAllByEmailContaining(search, paging).map(userMapper::toDto));
+            }
+        };
     }
 
+    @Transactional(readOnly = true)
     public UserDto getUserById(int id) {
         return usersRepository.findById(id).map(userMapper::toDto)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
     }
 
+    // the user comes from the authentication cache, so no transaction unless it has to be loaded
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public UserDto getAuthorizedUser() {
         UserEntity userEntity = authenticationFacade.getAuthenticatedUser();
         if (userEntity == null)
@@ -60,15 +84,15 @@ public class UserService {
         }
     }
 
+    // the cached user is shared by every request of this user, so the managed entity is loaded and changed instead
     public UserDto patchAuthorizedUser(UserDto userDto) {
-        log.info("Checking if user is authorized");
-        UserEntity authorizedUser = authenticationFacade.getAuthenticatedUser();
-        if (authorizedUser == null)
+        Integer userId = authenticationFacade.getAuthenticatedUserId();
+        if (userId == null) {
             throw new BadTokenException("User not authorized");
-        else {
-            log.info("User authorized: {}", authorizedUser);
-            return updateUser(authorizedUser, userDto);
         }
+        UserEntity authorizedUser = usersRepository.findById(userId)
+                .orElseThrow(() -> new BadTokenException("User not authorized"));
+        return updateUser(authorizedUser, userDto);
     }
 
     public UserDto patchUserById(int id, UserDto userDto) {
@@ -78,7 +102,8 @@ public class UserService {
     }
 
     private UserDto updateUser(UserEntity userToUpdate, UserDto userDto) {
-        log.info("Attempting to update user with id {}, with data:{}", userToUpdate.getUserId(), userDto);
+        log.debug("Updating user: userId={}", userToUpdate.getUserId());
+        authenticationFacade.evictUser(userToUpdate.getEmail());
         userToUpdate.setFirstName(userDto.getFirstName() != null ? userDto.getFirstName() : userToUpdate.getFirstName());
         userToUpdate.setLastName(userDto.getLastName() != null ? userDto.getLastName() : userToUpdate.getLastName());
         userToUpdate.setEmail(userDto.getEmail() != null ? userDto.getEmail() : userToUpdate.getEmail());
@@ -87,12 +112,13 @@ public class UserService {
         userToUpdate.setLocation(userDto.getLocation() != null ? userDto.getLocation() : userToUpdate.getLocation());
         userToUpdate.setUnfinishedOrder(userDto.getUnfinishedOrderId() != null ? userMapper.mapUnfinishedOrderIdToOrderEntity(userDto.getUnfinishedOrderId()) : userToUpdate.getUnfinishedOrder());
         usersRepository.save(userToUpdate);
-        log.info("User updated successfully: {}", userToUpdate);
+        authenticationFacade.evictUser(userToUpdate.getEmail());
+        log.info("User updated: userId={}", userToUpdate.getUserId());
         return userMapper.toDto(userToUpdate);
     }
 
     public UserDto createUser(UserDto userDto) {
-        log.info("Attempting to create user with data: {}", userDto);
+        log.debug("Creating user");
         if (usersRepository.findByEmail(userDto.getEmail()).isPresent()) {
             throw new ObjectCreationException("User with email " + userDto.getEmail() + " already exists");
         }
@@ -110,15 +136,16 @@ public class UserService {
         newUserWithId.setUnfinishedOrder(userUnfinishedOrder);
 
         UserEntity savedUser = usersRepository.save(newUserWithId);
-        log.info("User created successfully: {}", savedUser);
+        log.info("User created: userId={}", savedUser.getUserId());
         return userMapper.toDto(savedUser);
     }
 
     public void deleteUser(int id) {
-        log.info("Attempting to delete user with id {}", id);
+        log.debug("Deleting user: userId={}", id);
         UserEntity userToDelete = usersRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(NOT_FOUND_MSG.formatted(id)));
         usersRepository.delete(userToDelete);
-        log.info("User deleted successfully: {}", userToDelete);
+        authenticationFacade.evictUser(userToDelete.getEmail());
+        log.info("User deleted: userId={}", id);
     }
 }
@@ -1,8 +1,19 @@
 package ee.taltech.iti03022024project.specifications;
 
+import ee.taltech.iti03022024project.criteria.ProductCursor;
 import ee.taltech.iti03022024project.domain.ProductEntity;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.List;
+import java.util.function.Function;
+
 public class ProductSpecifications {
 
     private ProductSpecifications() {
@@ -56,4 +67,63 @@ public class ProductSpecifications {
                 categoryId == null ? null : criteriaBuilder.equal(root.get("category").get("id"), categoryId);
     }
 
+    // keyset condition: rows strictly after the cursor in (sortBy, productId) order
+    public static Specification<ProductEntity> after(ProductCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return null;
+            }
+            boolean descending = cursor.direction() == Sort.Direction.DESC;
+            Path<Integer> productId = root.get("productId");
+            Predicate idAfter = beyond(criteriaBuilder, productId, cursor.productId(), descending);
+
+            return switch (cursor.sortBy()) {
+                case "price" -> {
+                    Path<Double> price = root.get("price");
+                    double value = Double.parseDouble(cursor.value());
+                    yield criteriaBuilder.or(
+                            beyond(criteriaBuilder, price, value, descending),
+                            criteriaBuilder.and(criteriaBuilder.equal(price, value), idAfter));
+                }
+                case "name" -> {
+                    Expression<String> name = nameKey(root, criteriaBuilder);
+                    yield criteriaBuilder.or(
+                            beyond(criteriaBuilder, name, cursor.value(), descending),
+                            criteriaBuilder.and(criteriaBuilder.equal(name, cursor.value()), idAfter));
+                }
+                default -> idAfter;
+            };
+        };
+    }
+
+    // orders by the same keys after() compares, with productId breaking ties so the order is total;
+    // a Sort cannot express coalesce, so the order is set here and the query must be run unsorted
+    public static Specification<ProductEntity> orderedBy(String sortBy, Sort.Direction direction) {
+        return (root, query, criteriaBuilder) -> {
+            if (Long.class.equals(query.getResultType())) {
+                return null;
+            }
+            Function<Expression<?>, Order> order = direction == Sort.Direction.DESC ? criteriaBuilder::desc : criteriaBuilder::asc;
+            Order byProductId = order.apply(root.get("productId"));
+            query.orderBy(switch (sortBy) {
+                case "price" -> List.of(order.apply(root.get("price")), byProductId);
+                case "name" -> List.of(order.apply(nameKey(root, criteriaBuilder)), byProductId);
+                default -> List.of(byProductId);
+            });
+            return null;
+        };
+    }
+
+    // a NULL name would fail every comparison and drop out of the listing, so it sorts and compares as ''
+    private static Expression<String> nameKey(Root<ProductEntity> root, CriteriaBuilder criteriaBuilder) {
+        return criteriaBuilder.coalesce(root.<String>get("name"), "");
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder criteriaBuilder,
+                                                                     Expression<? extends Y> key,
+                                                                     Y value,
+                                                                     boolean descending) {
+        return descending ? criteriaBuilder.lessThan(key, value) : criteriaBuilder.greaterThan(key, value);
+    }
+
 }
@@ -0,0 +1,142 @@
+package ee.taltech.iti03022024project.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotCacheTest {
+
+    private final List<String> rows = new ArrayList<>(List.of("a1", "b2"));
+    private final AtomicInteger loads = new AtomicInteger();
+    private SnapshotCache<Character, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SnapshotCache<>("test", () -> {
+            loads.incrementAndGet();
+            return List.copyOf(rows);
+        }, row -> row.charAt(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_RepeatedReads_LoadsOnceAndCountsHits() {
+        // when
+        String first = cache.get('a').orElseThrow();
+        String second = cache.get('b').orElseThrow();
+
+        // then
+        assertThat(first).isEqualTo("a1");
+        assertThat(second).isEqualTo("b2");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void values_KeepsLoaderOrder() {
+        assertThat(cache.values()).containsExactly("a1", "b2");
+    }
+
+    @Test
+    void invalidate_OutsideTransaction_NextReadSeesChange() {
+        // given
+        cache.values();
+        rows.add("c3");
+
+        // when
+        cache.invalidate();
+
+        // then
+        assertThat(cache.get('c')).contains("c3");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidate_InsideTransaction_WaitsForCommit() {
+        // given
+        cache.values();
+        rows.add("c3");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        cache.invalidate();
+
+        // then
+        assertThat(cache.get('c')).isEmpty();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(cache.get('c')).contains("c3");
+    }
+
+    @Test
+    void tag_UnchangedRowsReloaded_StaysTheSame() {
+        // given
+        String before = cache.tag();
+
+        // when
+        cache.reload();
+
+        // then
+        assertThat(cache.tag()).isEqualTo(before);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void tag_RowChanged_ChangesAfterInvalidation() {
+        // given
+        String before = cache.tag();
+        rows.set(1, "b3");
+
+        // when
+        cache.invalidate();
+
+        // then
+        assertThat(cache.tag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void tag_VersionedRows_ChangesOnlyWithVersion() {
+        // given
+        long[] versions = {0, 0};
+        SnapshotCache<Integer, String> versioned = new SnapshotCache<>("versioned",
+                () -> List.of(0, 1), row -> "row" + row, row -> versions[row], value -> value.charAt(3) - '0');
+        String before = versioned.tag();
+
+        // when
+        versioned.reload();
+        String reloaded = versioned.tag();
+        versions[1]++;
+        versioned.reload();
+
+        // then
+        assertThat(reloaded).isEqualTo(before);
+        assertThat(versioned.tag()).isNotEqualTo(before);
+        assertThat(versioned.get(1)).contains("row1");
+    }
+
+    @Test
+    void reload_LoadsImmediately() {
+        // when
+        cache.reload();
+
+        // then
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+}
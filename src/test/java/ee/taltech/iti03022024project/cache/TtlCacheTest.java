@@ -0,0 +1,108 @@
+package ee.taltech.iti03022024project.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TtlCacheTest {
+
+    private MutableClock clock;
+    private TtlCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-12-20T00:00:00Z"));
+        cache = new TtlCache<>("test", 2, Duration.ofMinutes(5), clock);
+    }
+
+    @Test
+    void get_EntryPresent_ReturnsValueAndCountsHit() {
+        // given
+        cache.put("a", "valueA");
+
+        // when
+        String value = cache.get("a");
+
+        // then
+        assertThat(value).isEqualTo("valueA");
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isZero();
+    }
+
+    @Test
+    void get_EntryExpired_ReturnsNullAndCountsMiss() {
+        // given
+        cache.put("a", "valueA");
+        clock.advance(Duration.ofMinutes(6));
+
+        // when
+        String value = cache.get("a");
+
+        // then
+        assertThat(value).isNull();
+        assertThat(cache.stats().misses()).isEqualTo(1);
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    void put_OverMaxSize_EvictsLeastRecentlyUsed() {
+        // given
+        cache.put("a", "valueA");
+        cache.put("b", "valueB");
+        cache.get("a");
+
+        // when
+        cache.put("c", "valueC");
+
+        // then
+        assertThat(cache.get("a")).isEqualTo("valueA");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("valueC");
+    }
+
+    @Test
+    void invalidate_EntryPresent_RemovesEntry() {
+        // given
+        cache.put("a", "valueA");
+
+        // when
+        cache.invalidate("a");
+
+        // then
+        assertThat(cache.get("a")).isNull();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
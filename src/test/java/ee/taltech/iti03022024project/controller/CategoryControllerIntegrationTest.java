@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,7 +38,7 @@ class CategoryControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.jwtToken = tokenResponse.substring(tokenResponse.indexOf(":\"") + 2, tokenResponse.indexOf("\"}"));
+        this.jwtToken = JsonPath.read(tokenResponse, "$.jwtToken");
 
         String adminTokenResponse = mockMvc.perform(post("/api/public/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -46,7 +48,7 @@ class CategoryControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.adminJwtToken = adminTokenResponse.substring(adminTokenResponse.indexOf(":\"") + 2, adminTokenResponse.indexOf("\"}"));
+        this.adminJwtToken = JsonPath.read(adminTokenResponse, "$.jwtToken");
     }
 
     @Test
@@ -71,6 +73,31 @@ class CategoryControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getCategories_IfNoneMatchCurrentETag_ReturnsNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=60, must-revalidate"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/categories").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
+    }
+
+    @Test
+    void getCategoryById_IfNoneMatchButCategoryDoesNotExist_ReturnsNotFound() throws Exception {
+        String eTag = mockMvc.perform(get("/api/categories/1"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/categories/999").header("If-None-Match", eTag))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void createCategory_ValidCategory_ReturnsCreatedCategory() throws Exception {
         String validCategoryJson = """
@@ -0,0 +1,94 @@
+package ee.taltech.iti03022024project.controller;
+
+import ee.taltech.iti03022024project.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExportLimiterTest {
+
+    private final ExportLimiter exportLimiter = new ExportLimiter(1);
+
+    private static NativeWebRequest newRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/products/export"));
+    }
+
+    // what the container triggers when the async request ends, however it ends
+    private static void completeAsync(NativeWebRequest request) throws Exception {
+        WebAsyncUtils.getAsyncManager(request).getCallableInterceptor(ExportLimiter.INTERCEPTOR_KEY)
+                .afterCompletion(request, () -> null);
+    }
+
+    @Test
+    void limit_SlotFree_WritesBodyAndReleasesSlot() throws IOException {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        StreamingResponseBody body = exportLimiter.limit(newRequest(), stream -> stream.write('x'));
+        body.writeTo(out);
+
+        // then
+        assertThat(out.toString()).isEqualTo("x");
+        assertThat(exportLimiter.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void limit_AllSlotsTaken_ThrowsServiceOverloadedException() {
+        // given
+        exportLimiter.limit(newRequest(), stream -> { });
+        NativeWebRequest request = newRequest();
+
+        // when / then
+        assertThatThrownBy(() -> exportLimiter.limit(request, stream -> { }))
+                .isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    void limit_BodyFails_ReleasesSlot() {
+        // given
+        StreamingResponseBody body = exportLimiter.limit(newRequest(), stream -> {
+            throw new IOException("client went away");
+        });
+
+        // when / then
+        assertThatThrownBy(() -> body.writeTo(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+        assertThat(exportLimiter.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void limit_AsyncEndsBeforeBodyRuns_ReleasesSlot() throws Exception {
+        // given
+        NativeWebRequest request = newRequest();
+        exportLimiter.limit(request, stream -> { });
+
+        // when
+        completeAsync(request);
+
+        // then
+        assertThat(exportLimiter.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void limit_BodyWrittenAndAsyncCompleted_ReleasesSlotOnce() throws Exception {
+        // given
+        NativeWebRequest request = newRequest();
+        StreamingResponseBody body = exportLimiter.limit(request, stream -> { });
+
+        // when
+        body.writeTo(new ByteArrayOutputStream());
+        completeAsync(request);
+
+        // then
+        assertThat(exportLimiter.availablePermits()).isEqualTo(1);
+    }
+}
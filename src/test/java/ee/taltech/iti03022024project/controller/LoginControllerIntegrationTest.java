@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -26,7 +28,78 @@ class LoginControllerIntegrationTest extends AbstractIntegrationTest {
                                 .content("{\"email\":\"userEmail1@gmail.com\",\"password\":\"userPassword\"}")
                 )
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.jwtToken").isNotEmpty());
+                .andExpect(jsonPath("$.jwtToken").isNotEmpty())
+                .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+                .andExpect(jsonPath("$.expiresIn").isNumber());
+    }
+
+    @Test
+    void Refresh_RefreshTokenUsedOnce_ReturnNewTokensThenUnauthorized() throws Exception {
+        String loginResponse = mockMvc.perform(
+                        post("/api/public/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"email\":\"userEmail2@gmail.com\",\"password\":\"userPassword\"}")
+                )
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String refreshToken = JsonPath.read(loginResponse, "$.refreshToken");
+
+        String refreshResponse = mockMvc.perform(
+                        post("/api/public/token/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"" + refreshToken + "\"}")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jwtToken").isNotEmpty())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String rotatedToken = JsonPath.read(refreshResponse, "$.refreshToken");
+
+        // the used token is rejected, and its reuse also revokes the token it was exchanged for
+        mockMvc.perform(
+                        post("/api/public/token/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"" + refreshToken + "\"}")
+                )
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(
+                        post("/api/public/token/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"" + rotatedToken + "\"}")
+                )
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void Refresh_UnknownRefreshToken_ReturnStatusUnauthorized() throws Exception {
+        mockMvc.perform(
+                        post("/api/public/token/refresh")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"refreshToken\":\"unknown\"}")
+                )
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void Logout_RevokesRefreshToken() throws Exception {
+        String loginResponse = mockMvc.perform(
+                        post("/api/public/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"email\":\"userEmail2@gmail.com\",\"password\":\"userPassword\"}")
+                )
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String body = "{\"refreshToken\":\"" + JsonPath.read(loginResponse, "$.refreshToken") + "\"}";
+
+        mockMvc.perform(post("/api/public/logout").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(post("/api/public/token/refresh").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -50,4 +123,34 @@ class LoginControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(jsonPath("$.jwtToken").doesNotExist());
     }
+
+    @Test
+    void Login_TooManyFailedAttempts_ReturnStatusTooManyRequests() throws Exception {
+        String body = "{\"email\":\"throttled@gmail.com\",\"password\":\"invalidPassword\"}";
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(
+                            post("/api/public/login")
+                                    .with(request -> {
+                                        request.setRemoteAddr("10.0.0.16");
+                                        return request;
+                                    })
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body)
+                    )
+                    .andExpect(status().isUnauthorized());
+        }
+
+        mockMvc.perform(
+                        post("/api/public/login")
+                                .with(request -> {
+                                    request.setRemoteAddr("10.0.0.16");
+                                    return request;
+                                })
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body)
+                )
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.jwtToken").doesNotExist());
+    }
 }
@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,9 +10,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -34,7 +42,7 @@ class OrderControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.jwtToken = tokenResponse.substring(tokenResponse.indexOf(":\"") + 2, tokenResponse.indexOf("\"}"));
+        this.jwtToken = JsonPath.read(tokenResponse, "$.jwtToken");
 
         String adminTokenResponse = mockMvc.perform(post("/api/public/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -44,7 +52,7 @@ class OrderControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.adminJwtToken = adminTokenResponse.substring(adminTokenResponse.indexOf(":\"") + 2, adminTokenResponse.indexOf("\"}"));
+        this.adminJwtToken = JsonPath.read(adminTokenResponse, "$.jwtToken");
     }
 
     @Test
@@ -62,6 +70,33 @@ class OrderControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void exportOrders_Csv_StreamsEveryOrderById() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/orders/export")
+                        .param("format", "CSV")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals("id,userId,statusId", lines.getFirst());
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(1).startsWith("1,"));
+    }
+
+    @Test
+    void exportOrders_UserNotAuthorized_ReturnStatusUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/orders/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void getOrderById_OrderWithId2Exists_ReturnOrder() throws Exception {
         mockMvc.perform(get("/api/orders/2")
@@ -113,14 +148,21 @@ class OrderControllerIntegrationTest extends AbstractIntegrationTest {
     }
 
     @Test
-    void updateOrderStatus_NotAdminUpdatesOrderStatus_ReturnUpdatedOrder() throws Exception {
+    void updateOrderStatus_NotAdminMovesCartOutOfCart_ReturnStatusConflict() throws Exception {
         mockMvc.perform(patch("/api/orders/1")
                         .header("Authorization", "Bearer " + jwtToken)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"statusId\":2}"))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.statusId").value(2));
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateOrderStatus_NotAdminPlacesCartWithoutCheckout_ReturnStatusConflict() throws Exception {
+        mockMvc.perform(patch("/api/orders/1")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"statusId\":1}"))
+                .andExpect(status().isConflict());
     }
 
     @Test
@@ -175,4 +217,57 @@ class OrderControllerIntegrationTest extends AbstractIntegrationTest {
         mockMvc.perform(delete("/api/orders/1"))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    void checkout_CartWithEnoughStock_PlacesOrderAndReservesStock() throws Exception {
+        // order 1 stays the user's cart, so checking out order 2 does not open a new one
+        mockMvc.perform(patch("/api/users/1")
+                        .header("Authorization", "Bearer " + adminJwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"unfinishedOrderId\":1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/orders/2/checkout")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.statusId").value(1));
+
+        mockMvc.perform(get("/api/products/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(0));
+    }
+
+    @Test
+    void checkout_OrderIsNotCart_ReturnStatusConflict() throws Exception {
+        mockMvc.perform(patch("/api/orders/2")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"statusId\":2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/orders/2/checkout")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void checkout_UserChecksOutAnotherUserOrder_ReturnStatusForbidden() throws Exception {
+        mockMvc.perform(post("/api/orders/3/checkout")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void checkout_OrderDoesNotExist_ReturnStatusNotFound() throws Exception {
+        mockMvc.perform(post("/api/orders/999/checkout")
+                        .header("Authorization", "Bearer " + adminJwtToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void checkout_UserNotAuthorized_ReturnStatusUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/orders/2/checkout"))
+                .andExpect(status().isUnauthorized());
+    }
 }
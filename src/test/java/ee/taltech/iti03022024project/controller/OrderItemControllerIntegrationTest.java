@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,7 +34,7 @@ class OrderItemControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.jwtToken = tokenResponse.substring(tokenResponse.indexOf(":\"") + 2, tokenResponse.indexOf("\"}"));
+        this.jwtToken = JsonPath.read(tokenResponse, "$.jwtToken");
     }
 
     @Test
@@ -87,6 +88,15 @@ class OrderItemControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void createOrderItem_OrderOfAnotherUser_ReturnStatusForbidden() throws Exception {
+        mockMvc.perform(post("/api/order_items")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderId\":3,\"productId\":2,\"quantity\":3,\"priceAtTimeOfOrder\":20.0}"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void createOrderItem_UnauthorizedUserCreatesOrder_ReturnStatusUnauthorized() throws Exception {
         mockMvc.perform(post("/api/order_items")
@@ -95,6 +105,81 @@ class OrderItemControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void createOrderItems_OwnCart_ReturnCreatedOrderItems() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"orderId\":1,\"productId\":2,\"quantity\":3,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].orderId").value(1));
+    }
+
+    @Test
+    void createOrderItems_CartOfAnotherUser_ReturnStatusForbidden() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"orderId\":1,\"productId\":2,\"quantity\":1,\"priceAtTimeOfOrder\":20.0},"
+                                + "{\"orderId\":3,\"productId\":2,\"quantity\":1,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void createOrderItems_PlacedOrder_ReturnStatusConflict() throws Exception {
+        String order = mockMvc.perform(post("/api/orders")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":1,\"statusId\":1}"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        int orderId = JsonPath.read(order, "$.id");
+
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"orderId\":" + orderId + ",\"productId\":2,\"quantity\":1,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void createOrderItems_ItemWithoutOrderId_ReturnStatusBadRequest() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\":2,\"quantity\":1,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createOrderItems_EmptyBatch_ReturnStatusBadRequest() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createOrderItems_InvalidOrderItem_ReturnStatusBadRequest() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"orderId\":1,\"productId\":2,\"quantity\":-3,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createOrderItems_Unauthorized_ReturnStatusUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/order_items/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"orderId\":1,\"productId\":2,\"quantity\":3,\"priceAtTimeOfOrder\":20.0}]"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void deleteOrderItem_OrderItemExists_ReturnStatusNoContent() throws Exception {
         mockMvc.perform(delete("/api/order_items/1")
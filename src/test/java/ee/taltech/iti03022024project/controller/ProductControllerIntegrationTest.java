@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,9 +10,17 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -34,7 +43,7 @@ class ProductControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.jwtToken = tokenResponse.substring(tokenResponse.indexOf(":\"") + 2, tokenResponse.indexOf("\"}"));
+        this.jwtToken = JsonPath.read(tokenResponse, "$.jwtToken");
 
         String adminTokenResponse = mockMvc.perform(post("/api/public/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -44,7 +53,7 @@ class ProductControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.adminJwtToken = adminTokenResponse.substring(adminTokenResponse.indexOf(":\"") + 2, adminTokenResponse.indexOf("\"}"));
+        this.adminJwtToken = JsonPath.read(adminTokenResponse, "$.jwtToken");
     }
 
     @Test
@@ -55,6 +64,81 @@ class ProductControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.content.length()").value(3));
     }
 
+    @Test
+    void exportProducts_Ndjson_StreamsEveryProduct() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string("Content-Disposition", containsString("products.ndjson")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertEquals(3, body.lines().count());
+    }
+
+    @Test
+    void exportProducts_CsvFilteredByName_StreamsMatchingProducts() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/export")
+                        .param("format", "CSV")
+                        .param("name", "product1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string(startsWith("id,name,description,price,stockQuantity,sellerId,categoryId,dateAdded,imageUrl\n")));
+    }
+
+    @Test
+    void searchProducts_PrefixOfName_ReturnsRankedHits() throws Exception {
+        mockMvc.perform(get("/api/products").param("q", "produc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].product.id").exists())
+                .andExpect(jsonPath("$.content[0].nameHighlight").value(containsString("<mark>")))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void searchProducts_FullName_ReturnsOnlyThatProduct() throws Exception {
+        mockMvc.perform(get("/api/products").param("q", "product2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].product.name").value("product2"));
+    }
+
+    @Test
+    void searchProducts_MarkupInNameAndDescription_ReturnsEscapedHighlights() throws Exception {
+        mockMvc.perform(post("/api/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"<script>alert(1)</script> lamp\",\"description\":\"Desk lamp <img src=x onerror=alert(1)>\",\"stockQuantity\":1,\"price\":1.0,\"sellerId\":1,\"categoryId\":2}")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/products").param("q", "lamp"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].product.name").value("<script>alert(1)</script> lamp"))
+                .andExpect(jsonPath("$.content[0].nameHighlight").value(containsString("<mark>lamp</mark>")))
+                .andExpect(jsonPath("$.content[0].nameHighlight").value(not(containsString("<script"))))
+                .andExpect(jsonPath("$.content[0].descriptionSnippet").value(containsString("<mark>lamp</mark>")))
+                .andExpect(jsonPath("$.content[0].descriptionSnippet").value(not(containsString("<img"))));
+    }
+
+    @Test
+    void searchProducts_OnlyPunctuation_ReturnsEmptyPage() throws Exception {
+        mockMvc.perform(get("/api/products").param("q", "&|!:*"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
     @Test
     void getProductById_ProductExists_ReturnProduct() throws Exception {
         mockMvc.perform(get("/api/products/1"))
@@ -75,6 +159,39 @@ class ProductControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getProductById_IfNoneMatchCurrentETag_ReturnNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getProductById_ProductUpdatedSinceETag_ReturnProduct() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products/1"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+        mockMvc.perform(patch("/api/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"updatedProductName\"}")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$.name").value("updatedProductName"));
+    }
+
     @Test
     void getProductsByUserId_ProductsExist_ReturnProducts() throws Exception {
         mockMvc.perform(get("/api/products/user/1"))
@@ -112,6 +229,47 @@ class ProductControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void importProducts_Ndjson_ProductsAddedToCatalog() throws Exception {
+        mockMvc.perform(post("/api/products/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Imported lamp\",\"price\":12.5,\"stockQuantity\":3,\"categoryId\":1}\n"
+                                + "{\"name\":\"Imported chair\",\"price\":40.0,\"categoryId\":2}\n")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(2))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors").isEmpty());
+
+        mockMvc.perform(get("/api/products").param("pageSize", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[?(@.name == 'Imported lamp')].sellerId").value(1));
+    }
+
+    @Test
+    void importProducts_CsvWithInvalidRow_InvalidRowReported() throws Exception {
+        mockMvc.perform(post("/api/products/import")
+                        .contentType("text/csv")
+                        .content("name,description,price,categoryId\n"
+                                + "Imported lamp,\"Warm, dimmable\",12.5,1\n"
+                                + "Imported chair,,-40,2\n")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2));
+    }
+
+    @Test
+    void importProducts_UserNotAuthorized_ReturnStatusUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/products/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Imported lamp\",\"price\":12.5,\"categoryId\":1}"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void updateProduct_ProductUpdated_ReturnProduct() throws Exception {
         mockMvc.perform(patch("/api/products/1")
@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import ee.taltech.iti03022024project.AbstractIntegrationTest;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,7 +38,7 @@ class StatusControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.jwtToken = tokenResponse.substring(tokenResponse.indexOf(":\"") + 2, tokenResponse.indexOf("\"}"));
+        this.jwtToken = JsonPath.read(tokenResponse, "$.jwtToken");
 
         String adminTokenResponse = mockMvc.perform(post("/api/public/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -46,7 +48,7 @@ class StatusControllerIntegrationTest extends AbstractIntegrationTest {
                 .getResponse()
                 .getContentAsString();
 
-        this.adminJwtToken = adminTokenResponse.substring(adminTokenResponse.indexOf(":\"") + 2, adminTokenResponse.indexOf("\"}"));
+        this.adminJwtToken = JsonPath.read(adminTokenResponse, "$.jwtToken");
     }
 
     @Test
@@ -54,7 +56,7 @@ class StatusControllerIntegrationTest extends AbstractIntegrationTest {
         mockMvc.perform(get("/api/statuses"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content").isArray())
-                .andExpect(jsonPath("$.content.length()").value(3));
+                .andExpect(jsonPath("$.content.length()").value(4));
     }
 
     @Test
@@ -71,6 +73,19 @@ class StatusControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getStatusById_IfNoneMatchCurrentETag_ReturnsNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/statuses/1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/statuses/1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
+    }
+
     @Test
     void createStatus_ValidStatus_ReturnsCreatedStatus() throws Exception {
         String validStatusJson = """
@@ -0,0 +1,49 @@
+package ee.taltech.iti03022024project.exception;
+
+import ee.taltech.iti03022024project.domain.ProductEntity;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorHandlerTest {
+
+    private final ErrorHandler errorHandler = new ErrorHandler();
+
+    private final WebRequest request = new ServletWebRequest(new MockHttpServletRequest("PATCH", "/api/products/1"));
+
+    @Test
+    void handleOptimisticLockingFailure_StaleProduct_ReturnsConflict() {
+        // given
+        ObjectOptimisticLockingFailureException ex = new ObjectOptimisticLockingFailureException(ProductEntity.class, 1);
+
+        // when
+        ResponseEntity<ErrorResponse> response = errorHandler.handleOptimisticLockingFailure(ex, request);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getMessage()).contains("changed by another request");
+        assertThat(response.getBody().getPath()).isEqualTo("uri=/api/products/1");
+    }
+
+    @Test
+    void handleOptimisticLockingFailure_UntranslatedJpaException_ReturnsConflict() {
+        // given
+        OptimisticLockException ex = new OptimisticLockException("Row was updated or deleted by another transaction");
+
+        // when
+        ResponseEntity<ErrorResponse> response = errorHandler.handleOptimisticLockingFailure(ex, request);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        // Hibernate's message names the entity and its id, it is not passed on to the client
+        assertThat(response.getBody().getMessage()).doesNotContain("transaction");
+    }
+}
@@ -0,0 +1,81 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import ee.taltech.iti03022024project.cache.CacheStats;
+import ee.taltech.iti03022024project.security.PasswordHashingStats;
+import ee.taltech.iti03022024project.security.PasswordVerifier;
+import ee.taltech.iti03022024project.service.CacheService;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApplicationMetricsTest {
+
+    @Mock
+    private CacheService cacheService;
+    @Mock
+    private PasswordVerifier passwordVerifier;
+
+    private VirtualThreadPinningMonitor pinningMonitor;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+        pinningMonitor = new VirtualThreadPinningMonitor(environment, Duration.ofMillis(20));
+        when(cacheService.getStats()).thenReturn(List.of(new CacheStats("categories", 2, 5, 1)));
+        new ApplicationMetrics(cacheService, passwordVerifier, pinningMonitor).bindTo(registry);
+    }
+
+    @Test
+    void bindTo_CacheStats_ReadWhenScraped() {
+        // given
+        when(cacheService.getStats()).thenReturn(List.of(new CacheStats("categories", 3, 9, 4)));
+
+        // then
+        assertEquals(3, registry.get("app.cache.size").tag("cache", "categories").gauge().value());
+        assertEquals(9, registry.get("app.cache.hits").tag("cache", "categories").functionCounter().count());
+        assertEquals(4, registry.get("app.cache.misses").tag("cache", "categories").functionCounter().count());
+    }
+
+    @Test
+    void bindTo_PasswordHashing_CountAndTotalTime() {
+        // given
+        when(passwordVerifier.stats()).thenReturn(new PasswordHashingStats(4, 2, 64, 10, 250.0, 400.0, 3));
+
+        // when
+        FunctionTimer hashes = registry.get("app.login.hash").functionTimer();
+
+        // then
+        assertEquals(10, hashes.count());
+        assertEquals(2500.0, hashes.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(2, registry.get("app.login.hash.queue").gauge().value());
+        assertEquals(3, registry.get("app.login.hash.rejected").functionCounter().count());
+    }
+
+    @Test
+    void bindTo_PinnedThreads_CountAndTotalTime() {
+        // given
+        pinningMonitor.record(Duration.ofMillis(30), "com.example.Dao.load:42");
+        pinningMonitor.record(Duration.ofMillis(50), "com.example.Dao.load:42");
+
+        // when
+        FunctionTimer pinned = registry.get("app.threads.pinned").functionTimer();
+
+        // then
+        assertEquals(2, pinned.count());
+        assertEquals(80.0, pinned.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+}
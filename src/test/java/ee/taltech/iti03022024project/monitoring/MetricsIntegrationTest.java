@@ -0,0 +1,70 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import com.jayway.jsonpath.JsonPath;
+import ee.taltech.iti03022024project.AbstractIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private String adminToken() throws Exception {
+        String response = mockMvc.perform(post("/api/public/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"userEmail3@gmail.com\",\"password\":\"userPassword\"}"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return JsonPath.read(response, "$.jwtToken");
+    }
+
+    @Test
+    void prometheus_AfterRequest_ExposesServiceRepositoryAndPoolMetrics() throws Exception {
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus")
+                        .header("Authorization", "Bearer " + adminToken()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("app_service_seconds_bucket{")))
+                .andExpect(content().string(containsString("class=\"ee.taltech.iti03022024project.service.ProductService\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("app_cache_hits_total")));
+    }
+
+    @Test
+    void prometheus_NoTokenOnApplicationPort_Unauthorized() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void health_NoToken_Ok() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void metrics_NoToken_Unauthorized() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,53 @@
+package ee.taltech.iti03022024project.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadPinningMonitorTest {
+
+    private static VirtualThreadPinningMonitor monitor(boolean virtualThreads) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        return new VirtualThreadPinningMonitor(environment, Duration.ofMillis(20));
+    }
+
+    @Test
+    void stats_PlatformThreads_ReportsDisabledAndEmpty() {
+        // given
+        VirtualThreadPinningMonitor monitor = monitor(false);
+
+        // when
+        PinningStats stats = monitor.stats();
+
+        // then
+        assertFalse(stats.virtualThreads());
+        assertEquals(0, stats.pinnedCount());
+        assertTrue(stats.sites().isEmpty());
+    }
+
+    @Test
+    void record_SeveralEvents_AggregatesPerSite() {
+        // given
+        VirtualThreadPinningMonitor monitor = monitor(true);
+
+        // when
+        monitor.record(Duration.ofMillis(30), "com.example.Dao.load:42");
+        monitor.record(Duration.ofMillis(50), "com.example.Dao.load:42");
+        monitor.record(Duration.ofMillis(20), "com.example.Cache.get:7");
+
+        // then
+        PinningStats stats = monitor.stats();
+        assertTrue(stats.virtualThreads());
+        assertEquals(3, stats.pinnedCount());
+        assertEquals(100.0, stats.totalPinnedMillis(), 0.001);
+        assertEquals(50.0, stats.maxPinnedMillis(), 0.001);
+        assertEquals(Map.of("com.example.Dao.load:42", 2L, "com.example.Cache.get:7", 1L), stats.sites());
+    }
+}
@@ -0,0 +1,120 @@
+package ee.taltech.iti03022024project.repository;
+
+import ee.taltech.iti03022024project.AbstractIntegrationTest;
+import ee.taltech.iti03022024project.criteria.OrderItemSearchCriteria;
+import ee.taltech.iti03022024project.criteria.OrderSearchCriteria;
+import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import ee.taltech.iti03022024project.responses.PageResponse;
+import ee.taltech.iti03022024project.responses.TotalCount;
+import ee.taltech.iti03022024project.service.OrderItemService;
+import ee.taltech.iti03022024project.service.OrderService;
+import ee.taltech.iti03022024project.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the statements Hibernate prepares and the entities it loads for the listing endpoints, which select
+ * straight into DTOs. Not transactional on purpose: every service call gets its own persistence context,
+ * as it would for a real request.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderItemService orderItemService;
+    @Autowired
+    private UsersRepository usersRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // listings
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void getProducts_WithoutTotal_UsesSingleStatement() {
+        // when
+        PageResponse<?> response = productService.getProducts(ProductSearchCriteria.builder().build(), 0, 50, TotalCount.NONE);
+
+        // then
+        assertFalse(response.content().isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getProducts_WithExactTotal_AddsOnlyCountStatement() {
+        // when
+        PageResponse<?> response = productService.getProducts(ProductSearchCriteria.builder().build(), 0, 50, TotalCount.EXACT);
+
+        // then
+        assertFalse(response.content().isEmpty());
+        assertTrue(statistics.getPrepareStatementCount() <= 2);
+    }
+
+    @Test
+    void getOrders_WithoutTotal_UsesSingleStatement() {
+        // when
+        PageResponse<?> response = orderService.getOrders(new OrderSearchCriteria(null, null, null), 0, 50, TotalCount.NONE);
+
+        // then
+        assertFalse(response.content().isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getOrderItems_WithoutTotal_UsesSingleStatement() {
+        // when
+        PageResponse<?> response = orderItemService.getOrderItems(OrderItemSearchCriteria.builder().build(), 0, 50, TotalCount.NONE);
+
+        // then
+        assertFalse(response.content().isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getOrderItems_FilteredByProduct_UsesSingleStatement() {
+        // when
+        orderItemService.getOrderItems(OrderItemSearchCriteria.builder().productId(1).build(), 0, 50, TotalCount.NONE);
+
+        // then
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // users
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void findByEmail_LoadsRoleInSameStatement() {
+        // when
+        UserEntity user = usersRepository.findByEmail("userEmail1@gmail.com").orElseThrow();
+
+        // then
+        assertTrue(Hibernate.isInitialized(user.getRole()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
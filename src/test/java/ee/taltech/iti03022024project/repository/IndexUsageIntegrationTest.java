@@ -0,0 +1,96 @@
+package ee.taltech.iti03022024project.repository;
+
+import ee.taltech.iti03022024project.AbstractIntegrationTest;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class IndexUsageIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // the test tables are tiny, so without this the planner would rightly prefer a sequential scan
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    private String plan(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+
+    private void assertUsesIndex(String index, String sql, Object... args) {
+        String plan = plan(sql, args);
+        assertTrue(plan.contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // foreign keys
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void productsBySeller_UsesSellerIndex() {
+        assertUsesIndex("products_seller_id_idx", "SELECT * FROM products WHERE seller_id = ?", 1);
+    }
+
+    @Test
+    void productsByCategorySortedByPrice_UsesCompositeIndex() {
+        assertUsesIndex("products_category_id_price_idx",
+                "SELECT * FROM products WHERE category_id = ? ORDER BY price DESC LIMIT 5", 1);
+    }
+
+    @Test
+    void ordersByUserAndStatus_UseForeignKeyIndexes() {
+        assertUsesIndex("orders_user_id_idx", "SELECT * FROM orders WHERE user_id = ?", 1);
+        assertUsesIndex("orders_status_id_idx", "SELECT * FROM orders WHERE status_id = ?", 0);
+    }
+
+    @Test
+    void orderItemsByOrderAndProduct_UseForeignKeyIndexes() {
+        assertUsesIndex("order_items_order_id_idx", "SELECT * FROM order_items WHERE order_id = ?", 1);
+        assertUsesIndex("order_items_product_id_idx", "SELECT * FROM order_items WHERE product_id = ?", 1);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // users.email
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void userByEmail_UsesEmailIndex() {
+        assertUsesIndex("users_email_idx", "SELECT * FROM users WHERE email = ?", "userEmail1@gmail.com");
+    }
+
+    @Test
+    void insertUser_EmailDiffersOnlyInCase_Rejected() {
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO users (email, password, created_at) VALUES (?, 'x', now())", "USEREMAIL1@gmail.com"));
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // substring searches
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void productNameSearch_UsesTrigramIndex() {
+        assertUsesIndex("products_name_trgm_idx", "SELECT * FROM products WHERE lower(name) LIKE ?", "%duct%");
+    }
+
+    @Test
+    void productDescriptionSearch_UsesTrigramIndex() {
+        assertUsesIndex("products_description_trgm_idx", "SELECT * FROM products WHERE description LIKE ?", "%Description%");
+    }
+
+    @Test
+    void containingSearches_UseTrigramIndexes() {
+        assertUsesIndex("categories_category_name_trgm_idx", "SELECT * FROM categories WHERE category_name LIKE ?", "%gory%");
+        assertUsesIndex("statuses_status_name_trgm_idx", "SELECT * FROM statuses WHERE status_name LIKE ?", "%CAR%");
+        assertUsesIndex("users_email_trgm_idx", "SELECT * FROM users WHERE email LIKE ?", "%gmail%");
+    }
+}
@@ -0,0 +1,31 @@
+package ee.taltech.iti03022024project.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchHighlightTest {
+
+    @Test
+    void toHtml_ScriptInName_EscapesTextAndKeepsMarks() {
+        // given
+        String highlighted = "<script>alert(1)</script> " + SearchHighlight.START + "lamp" + SearchHighlight.STOP;
+
+        // when
+        String html = SearchHighlight.toHtml(highlighted);
+
+        // then
+        assertThat(html).isEqualTo("&lt;script&gt;alert(1)&lt;/script&gt; <mark>lamp</mark>");
+    }
+
+    @Test
+    void toHtml_NonAsciiLetters_LeftAsTheyAre() {
+        assertThat(SearchHighlight.toHtml("Õun & " + SearchHighlight.START + "pähkel" + SearchHighlight.STOP))
+                .isEqualTo("Õun &amp; <mark>pähkel</mark>");
+    }
+
+    @Test
+    void toHtml_Null_ReturnsNull() {
+        assertThat(SearchHighlight.toHtml(null)).isNull();
+    }
+}
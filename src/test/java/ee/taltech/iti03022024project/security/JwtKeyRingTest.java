@@ -0,0 +1,113 @@
+package ee.taltech.iti03022024project.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import io.jsonwebtoken.security.WeakKeyException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyRingTest {
+
+    private static final SecretKey OLD_KEY = Jwts.SIG.HS256.key().build();
+    private static final SecretKey NEW_KEY = Jwts.SIG.HS256.key().build();
+
+    private static String secret(SecretKey key) {
+        return Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+
+    private static String token(String keyId, SecretKey key) {
+        return Jwts.builder().header().keyId(keyId).and().subject("user@example.com").signWith(key).compact();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // load
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void load_ConfiguredKeys_SignsWithActiveKey() {
+        // when
+        JwtKeyRing ring = JwtKeyRing.load("2024-12", "2024-06:" + secret(OLD_KEY) + ", 2024-12:" + secret(NEW_KEY), null, null);
+
+        // then
+        assertThat(ring.activeKeyId()).isEqualTo("2024-12");
+        assertThat(ring.signingKey()).isEqualTo(NEW_KEY);
+        assertThat(ring.verificationKey("2024-06")).isEqualTo(OLD_KEY);
+        assertThat(ring.keyIds()).containsExactly("2024-06", "2024-12");
+    }
+
+    @Test
+    void load_SingleKeyWithoutActiveId_ThatKeyIsActive() {
+        // when
+        JwtKeyRing ring = JwtKeyRing.load("", "only:" + secret(NEW_KEY), null, null);
+
+        // then
+        assertThat(ring.activeKeyId()).isEqualTo("only");
+    }
+
+    @Test
+    void load_NothingConfigured_GeneratesKey() {
+        // when
+        JwtKeyRing ring = JwtKeyRing.load("", "", null, null);
+
+        // then
+        assertThat(ring.activeKeyId()).startsWith("generated-");
+        assertThat(ring.signingKey()).isNotNull();
+    }
+
+    @Test
+    void load_ActiveKeyMissing_ThrowsIllegalArgumentException() {
+        // given
+        String keys = "2024-06:" + secret(OLD_KEY);
+
+        // when & then
+        assertThatThrownBy(() -> JwtKeyRing.load("2024-12", keys, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void load_ShortSecret_ThrowsWeakKeyException() {
+        // given
+        String keys = "short:" + Base64.getEncoder().encodeToString(new byte[16]);
+
+        // when & then
+        assertThatThrownBy(() -> JwtKeyRing.load("short", keys, null, null)).isInstanceOf(WeakKeyException.class);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // verification through JwtRequestFilter
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void parseToken_SignedWithRetiringKey_StillAccepted() {
+        // given
+        JwtRequestFilter filter = new JwtRequestFilter(new JwtKeyRing("new", Map.of("old", OLD_KEY, "new", NEW_KEY)));
+
+        // when & then
+        assertThat(filter.parseToken(token("old", OLD_KEY)).getSubject()).isEqualTo("user@example.com");
+        assertThat(filter.parseToken(token("new", NEW_KEY)).getSubject()).isEqualTo("user@example.com");
+    }
+
+    @Test
+    void parseToken_UnknownKeyId_ThrowsSignatureException() {
+        // given
+        JwtRequestFilter filter = new JwtRequestFilter(new JwtKeyRing("new", Map.of("new", NEW_KEY)));
+        String token = token("old", OLD_KEY);
+
+        // when & then
+        assertThatThrownBy(() -> filter.parseToken(token)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void parseToken_KeyIdOfOtherKey_ThrowsSignatureException() {
+        // given
+        JwtRequestFilter filter = new JwtRequestFilter(new JwtKeyRing("new", Map.of("old", OLD_KEY, "new", NEW_KEY)));
+        String token = token("new", OLD_KEY);
+
+        // when & then
+        assertThatThrownBy(() -> filter.parseToken(token)).isInstanceOf(SignatureException.class);
+    }
+}
@@ -0,0 +1,94 @@
+package ee.taltech.iti03022024project.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtRequestFilterTest {
+
+    private static final SecretKey KEY = Jwts.SIG.HS256.key().build();
+
+    private final JwtRequestFilter filter = new JwtRequestFilter(new JwtKeyRing("test", Map.of("test", KEY)));
+
+    private static String token(Instant expiresAt) {
+        return Jwts.builder()
+                .header().keyId("test").and()
+                .subject("user@example.com")
+                .claim("userId", 1)
+                .claim("roles", List.of("ROLE_USER"))
+                .issuedAt(Date.from(expiresAt.minus(15, ChronoUnit.MINUTES)))
+                .expiration(Date.from(expiresAt))
+                .signWith(KEY)
+                .compact();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ValidToken_AuthenticatesAndContinues() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request(token(Instant.now().plus(15, ChronoUnit.MINUTES))), response, chain);
+
+        // then
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("user@example.com");
+    }
+
+    @Test
+    void doFilter_ExpiredToken_Returns401WithChallenge() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request(token(Instant.now().minus(1, ChronoUnit.MINUTES))), response, chain);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("WWW-Authenticate")).isEqualTo("Bearer error=\"invalid_token\"");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void doFilter_MalformedToken_Returns401WithChallenge() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request("not-a-jwt"), response, chain);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("WWW-Authenticate")).isEqualTo("Bearer error=\"invalid_token\"");
+        assertThat(chain.getRequest()).isNull();
+    }
+}
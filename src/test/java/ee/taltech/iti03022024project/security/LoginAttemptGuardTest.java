@@ -0,0 +1,53 @@
+package ee.taltech.iti03022024project.security;
+
+import ee.taltech.iti03022024project.exception.TooManyAttemptsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginAttemptGuardTest {
+
+    private static final String PROXY_ADDRESS = "10.0.0.5";
+
+    private static void failFromAddress(LoginAttemptGuard guard, int accounts) {
+        for (int i = 0; i < accounts; i++) {
+            guard.recordFailure("user" + i + "@example.com", PROXY_ADDRESS);
+        }
+    }
+
+    @Test
+    void check_AddressLimitOff_ManyAccountsFromOneAddressAllowed() {
+        // given
+        LoginAttemptGuard guard = new LoginAttemptGuard(5, 0, Duration.ofMinutes(15), 1000);
+        failFromAddress(guard, 100);
+
+        // when / then
+        assertThatCode(() -> guard.check("someone.else@example.com", PROXY_ADDRESS)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void check_AddressLimitOn_ManyAccountsFromOneAddressThrottled() {
+        // given
+        LoginAttemptGuard guard = new LoginAttemptGuard(5, 3, Duration.ofMinutes(15), 1000);
+        failFromAddress(guard, 3);
+
+        // when / then
+        assertThatThrownBy(() -> guard.check("someone.else@example.com", PROXY_ADDRESS))
+                .isInstanceOf(TooManyAttemptsException.class);
+    }
+
+    @Test
+    void check_AddressLimitOff_EmailStillThrottled() {
+        // given
+        LoginAttemptGuard guard = new LoginAttemptGuard(2, 0, Duration.ofMinutes(15), 1000);
+        guard.recordFailure("a@example.com", PROXY_ADDRESS);
+        guard.recordFailure("A@example.com", PROXY_ADDRESS);
+
+        // when / then
+        assertThatThrownBy(() -> guard.check("a@example.com", "192.0.2.1"))
+                .isInstanceOf(TooManyAttemptsException.class);
+    }
+}
@@ -0,0 +1,129 @@
+package ee.taltech.iti03022024project.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleTest {
+
+    private MutableClock clock;
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-12-20T00:00:00Z"));
+        throttle = new LoginThrottle(3, Duration.ofMinutes(15), 1000, clock);
+    }
+
+    private void fail(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            throttle.recordFailure(key);
+        }
+    }
+
+    @Test
+    void retryAfter_BelowLimit_Allowed() {
+        // given
+        fail("a@example.com", 2);
+
+        // when
+        Duration retryAfter = throttle.retryAfter("a@example.com");
+
+        // then
+        assertThat(retryAfter).isZero();
+    }
+
+    @Test
+    void retryAfter_LimitReached_BlockedUntilWindowEnds() {
+        // given
+        fail("a@example.com", 3);
+        clock.advance(Duration.ofMinutes(5));
+
+        // when
+        Duration retryAfter = throttle.retryAfter("a@example.com");
+
+        // then
+        assertThat(retryAfter).isEqualTo(Duration.ofMinutes(10));
+        assertThat(throttle.retryAfter("b@example.com")).isZero();
+    }
+
+    @Test
+    void retryAfter_WindowOver_AllowedAndCountingStartsAgain() {
+        // given
+        fail("a@example.com", 3);
+        clock.advance(Duration.ofMinutes(15));
+
+        // when
+        Duration retryAfter = throttle.retryAfter("a@example.com");
+        fail("a@example.com", 1);
+
+        // then
+        assertThat(retryAfter).isZero();
+        assertThat(throttle.retryAfter("a@example.com")).isZero();
+    }
+
+    @Test
+    void reset_AfterFailures_Allowed() {
+        // given
+        fail("a@example.com", 3);
+
+        // when
+        throttle.reset("a@example.com");
+
+        // then
+        assertThat(throttle.retryAfter("a@example.com")).isZero();
+    }
+
+    @Test
+    void recordFailure_MoreKeysThanCapacity_OldestForgotten() {
+        // given
+        throttle = new LoginThrottle(1, Duration.ofMinutes(15), 16, clock);
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            throttle.recordFailure("key" + i);
+        }
+
+        // then
+        long blocked = IntStream.range(0, 1000)
+                .filter(i -> !throttle.retryAfter("key" + i).isZero())
+                .count();
+        assertThat(blocked).isLessThanOrEqualTo(16);
+        assertThat(throttle.retryAfter("key999")).isPositive();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
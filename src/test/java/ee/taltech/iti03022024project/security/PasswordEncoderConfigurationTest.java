@@ -0,0 +1,44 @@
+package ee.taltech.iti03022024project.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordEncoderConfigurationTest {
+
+    // low costs keep the test fast, only the relation to the target matters
+    private final PasswordEncoder encoder = new SecurityConfiguration(null, null).passwordEncoder(5);
+
+    @Test
+    void encode_NewPassword_PrefixedAtTargetCost() {
+        // when
+        String encoded = encoder.encode("secret");
+
+        // then
+        assertThat(encoded).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.matches("secret", encoded)).isTrue();
+        assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+    }
+
+    @Test
+    void matches_LegacyUnprefixedHash_MatchesAndNeedsUpgrade() {
+        // given
+        String legacy = new BCryptPasswordEncoder(5).encode("secret");
+
+        // when & then
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+    }
+
+    @Test
+    void upgradeEncoding_LowerCost_NeedsUpgrade() {
+        // given
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+
+        // when & then
+        assertThat(encoder.matches("secret", weaker)).isTrue();
+        assertThat(encoder.upgradeEncoding(weaker)).isTrue();
+    }
+}
@@ -0,0 +1,89 @@
+package ee.taltech.iti03022024project.security;
+
+import ee.taltech.iti03022024project.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordVerifierTest {
+
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private PasswordVerifier verifier;
+
+    @AfterEach
+    void tearDown() {
+        verifier.shutdown();
+    }
+
+    @Test
+    void matches_EncoderResult_ReturnedAndTimed() {
+        // given
+        verifier = new PasswordVerifier(passwordEncoder, 1, 1, Duration.ofSeconds(5));
+        when(passwordEncoder.matches("secret", "hash")).thenReturn(true);
+
+        // when
+        boolean matches = verifier.matches("secret", "hash");
+
+        // then
+        assertThat(matches).isTrue();
+        assertThat(verifier.matches("other", "hash")).isFalse();
+        PasswordHashingStats stats = verifier.stats();
+        assertThat(stats.threads()).isEqualTo(1);
+        assertThat(stats.hashes()).isEqualTo(2);
+        assertThat(stats.rejected()).isZero();
+    }
+
+    @Test
+    void matches_PoolAndQueueFull_RejectedAsOverloaded() throws Exception {
+        // given
+        verifier = new PasswordVerifier(passwordEncoder, 1, 1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches("slow", "hash")).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> verifier.matches("slow", "hash"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> verifier.matches("slow", "hash"));
+        while (verifier.stats().queueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // when & then
+        assertThatThrownBy(() -> verifier.matches("slow", "hash"))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .extracting(e -> ((ServiceOverloadedException) e).getRetryAfter())
+                .isEqualTo(PasswordVerifier.RETRY_AFTER);
+        assertThat(verifier.stats().rejected()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void matches_HashTakesTooLong_RejectedAsOverloaded() {
+        // given
+        verifier = new PasswordVerifier(passwordEncoder, 1, 1, Duration.ofMillis(50));
+        when(passwordEncoder.matches("slow", "hash")).thenAnswer(inv -> {
+            Thread.sleep(5_000);
+            return true;
+        });
+
+        // when & then
+        assertThatThrownBy(() -> verifier.matches("slow", "hash")).isInstanceOf(ServiceOverloadedException.class);
+        assertThat(verifier.stats().rejected()).isEqualTo(1);
+    }
+}
@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.cache.CategoryCache;
 import ee.taltech.iti03022024project.domain.CategoryEntity;
 import ee.taltech.iti03022024project.dto.CategoryDto;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
@@ -15,9 +16,6 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -34,6 +32,9 @@ class CategoryServiceTest {
     @Mock
     private CategoryMapper categoryMapper;
 
+    @Mock
+    private CategoryCache categoryCache;
+
     @InjectMocks
     private CategoryService categoryService;
 
@@ -56,85 +57,62 @@ class CategoryServiceTest {
     // getCategories
     // ---------------------------------------------------------------------------------------------
     @Test
-    void getCategories_SearchTerm_ReturnsPageResponse() {
+    void getCategories_SearchTerm_ReturnsMatchingFromCache() {
         // given
-        String searchTerm = "Sample";
-        int pageNo = 0;
-        int pageSize = 5;
-
-        Page<CategoryEntity> mockPage = new PageImpl<>(
-                List.of(sampleCategoryEntity),
-                PageRequest.of(pageNo, pageSize),
-                1
-        );
-
-        // Mock repository and mapper
-        when(categoryRepository.findAllByCategoryNameContaining(eq(searchTerm), any(PageRequest.class)))
-                .thenReturn(mockPage);
-        when(categoryMapper.toDto(sampleCategoryEntity)).thenReturn(sampleCategoryDto);
+        when(categoryCache.findAll()).thenReturn(List.of(sampleCategoryDto, new CategoryDto(2, "Books")));
 
         // when
-        PageResponse<CategoryDto> result = categoryService.getCategories(searchTerm, pageNo, pageSize);
+        PageResponse<CategoryDto> result = categoryService.getCategories("Sample", 0, 5);
 
         // then
-        assertNotNull(result);
-        assertEquals(1, result.content().size());
-        assertEquals("SampleCategory", result.content().getFirst().getName());
-
-        verify(categoryRepository, times(1))
-                .findAllByCategoryNameContaining(eq(searchTerm), any(PageRequest.class));
-        verify(categoryMapper, times(1)).toDto(sampleCategoryEntity);
+        assertEquals(List.of(sampleCategoryDto), result.content());
+        assertEquals(1L, result.totalElements());
+        verifyNoInteractions(categoryRepository);
     }
 
     @Test
     void getCategories_EmptySearchTerm_ReturnsAllElements() {
         // given
-        String searchTerm = ""; // Empty search term should match all categories
-        int pageNo = 0;
-        int pageSize = 5;
-
-        // Mock repository response with a sample page of categories
-        List<CategoryEntity> mockCategoryEntities = List.of(
-                new CategoryEntity() {{
-                    setCategoryId(1);
-                    setCategoryName("Electronics");
-                }},
-                new CategoryEntity() {{
-                    setCategoryId(2);
-                    setCategoryName("Books");
-                }}
-        );
+        List<CategoryDto> categories = List.of(new CategoryDto(1, "Electronics"), new CategoryDto(2, "Books"));
+        when(categoryCache.findAll()).thenReturn(categories);
 
-        Page<CategoryEntity> mockPage = new PageImpl<>(
-                mockCategoryEntities,
-                PageRequest.of(pageNo, pageSize),
-                mockCategoryEntities.size()
-        );
+        // when
+        PageResponse<CategoryDto> result = categoryService.getCategories("", 0, 5);
 
-        when(categoryRepository.findAllByCategoryNameContaining(eq(searchTerm), any(PageRequest.class)))
-                .thenReturn(mockPage);
+        // then
+        assertEquals(categories, result.content());
+        assertEquals(1, result.totalPages());
+        assertFalse(result.hasNext());
+        verifyNoInteractions(categoryRepository, categoryMapper);
+    }
 
-        // Map CategoryEntity to CategoryDto for the service layer
-        when(categoryMapper.toDto(any(CategoryEntity.class)))
-                .thenAnswer(invocation -> {
-                    CategoryEntity entity = invocation.getArgument(0);
-                    return new CategoryDto(entity.getCategoryId(), entity.getCategoryName());
-                });
+    @Test
+    void getCategories_SecondPage_ReturnsRemainingElements() {
+        // given
+        CategoryDto books = new CategoryDto(2, "Books");
+        when(categoryCache.findAll()).thenReturn(List.of(sampleCategoryDto, books));
 
         // when
-        PageResponse<CategoryDto> result = categoryService.getCategories(searchTerm, pageNo, pageSize);
+        PageResponse<CategoryDto> result = categoryService.getCategories("", 1, 1);
 
         // then
-        assertNotNull(result);
-        assertEquals(2, result.content().size());
-        assertEquals("Electronics", result.content().getFirst().getName());
-        assertEquals("Books", result.content().getLast().getName());
-
-        verify(categoryRepository, times(1))
-                .findAllByCategoryNameContaining(eq(searchTerm), any(PageRequest.class));
-        verify(categoryMapper, times(2)).toDto(any(CategoryEntity.class)); // Two mappings should occur
+        assertEquals(List.of(books), result.content());
+        assertEquals(2L, result.totalElements());
+        assertEquals(2, result.totalPages());
     }
 
+    @Test
+    void getCategories_PageBeyondEnd_ReturnsEmptyContent() {
+        // given
+        when(categoryCache.findAll()).thenReturn(List.of(sampleCategoryDto));
+
+        // when
+        PageResponse<CategoryDto> result = categoryService.getCategories("", 3, 5);
+
+        // then
+        assertTrue(result.content().isEmpty());
+        assertEquals(1L, result.totalElements());
+    }
 
     // ---------------------------------------------------------------------------------------------
     // getCategoryById
@@ -143,8 +121,7 @@ class CategoryServiceTest {
     void getCategoryById_ExistingId_ReturnsCategoryDto() {
         // given
         int categoryId = 1;
-        when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(sampleCategoryEntity));
-        when(categoryMapper.toDto(sampleCategoryEntity)).thenReturn(sampleCategoryDto);
+        when(categoryCache.findById(categoryId)).thenReturn(Optional.of(sampleCategoryDto));
 
         // when
         CategoryDto result = categoryService.getCategoryById(categoryId);
@@ -154,15 +131,14 @@ class CategoryServiceTest {
         assertEquals(1, result.getId());
         assertEquals("SampleCategory", result.getName());
 
-        verify(categoryRepository, times(1)).findById(categoryId);
-        verify(categoryMapper, times(1)).toDto(sampleCategoryEntity);
+        verifyNoInteractions(categoryRepository);
     }
 
     @Test
     void getCategoryById_NonExistingId_ThrowsResourceNotFoundException() {
         // given
         int categoryId = 999;
-        when(categoryRepository.findById(categoryId)).thenReturn(Optional.empty());
+        when(categoryCache.findById(categoryId)).thenReturn(Optional.empty());
 
         // when & then
         ResourceNotFoundException thrown = assertThrows(
@@ -170,8 +146,7 @@ class CategoryServiceTest {
                 () -> categoryService.getCategoryById(categoryId)
         );
         assertTrue(thrown.getMessage().contains(String.valueOf(categoryId)));
-        verify(categoryRepository, times(1)).findById(categoryId);
-        verifyNoInteractions(categoryMapper);
+        verifyNoInteractions(categoryRepository, categoryMapper);
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -194,6 +169,7 @@ class CategoryServiceTest {
         verify(categoryMapper, times(1)).toEntity(sampleCategoryDto);
         verify(categoryRepository, times(1)).save(any(CategoryEntity.class));
         verify(categoryMapper, times(1)).toDto(sampleCategoryEntity);
+        verify(categoryCache).invalidate();
     }
 
     @Test
@@ -242,6 +218,7 @@ class CategoryServiceTest {
         CategoryEntity savedEntity = categoryEntityArgumentCaptor.getValue();
         assertEquals("UpdatedCategory", savedEntity.getCategoryName());
         assertEquals(sampleCategoryDto, result);
+        verify(categoryCache).invalidate();
     }
 
     @Test
@@ -300,6 +277,7 @@ class CategoryServiceTest {
         // then
         verify(categoryRepository, times(1)).findById(categoryId);
         verify(categoryRepository, times(1)).delete(sampleCategoryEntity);
+        verify(categoryCache).invalidate();
     }
 
     @Test
@@ -0,0 +1,61 @@
+package ee.taltech.iti03022024project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.iti03022024project.dto.OrderDto;
+import ee.taltech.iti03022024project.responses.ExportFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExportWriterTest {
+
+    private final ExportWriter exportWriter = new ExportWriter(new ObjectMapper().findAndRegisterModules());
+
+    private static Stream<OrderDto> orders() {
+        return Stream.of(new OrderDto(1, 2, 3), new OrderDto(4, 5, 6));
+    }
+
+    @Test
+    void write_Ndjson_OneObjectPerLine() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        long count = exportWriter.write(orders(), OrderDto.class, ExportFormat.NDJSON, out);
+
+        // then
+        assertEquals(2, count);
+        assertEquals("{\"id\":1,\"userId\":2,\"statusId\":3}\n{\"id\":4,\"userId\":5,\"statusId\":6}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void write_Csv_HeaderThenRows() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        long count = exportWriter.write(orders(), OrderDto.class, ExportFormat.CSV, out);
+
+        // then
+        assertEquals(2, count);
+        assertEquals("id,userId,statusId\n1,2,3\n4,5,6\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void write_EmptyStream_WritesNothing() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        long count = exportWriter.write(Stream.empty(), OrderDto.class, ExportFormat.NDJSON, out);
+
+        // then
+        assertEquals(0, count);
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -3,9 +3,16 @@ package ee.taltech.iti03022024project.service;
 import ee.taltech.iti03022024project.domain.RoleEntity;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.exception.LoginException;
+import ee.taltech.iti03022024project.exception.ServiceOverloadedException;
+import ee.taltech.iti03022024project.exception.TooManyAttemptsException;
 import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.security.JwtKeyRing;
+import ee.taltech.iti03022024project.security.LoginAttemptGuard;
 import ee.taltech.iti03022024project.security.LoginRequestDto;
 import ee.taltech.iti03022024project.security.LoginResponseDto;
+import ee.taltech.iti03022024project.security.PasswordVerifier;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,9 +20,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,11 +34,22 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class LoginServiceTest {
 
+    private static final String CLIENT_ADDRESS = "10.0.0.1";
+
     @Mock
     private UsersRepository usersRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordVerifier passwordVerifier;
+
+    @Mock
+    private LoginAttemptGuard loginAttemptGuard;
+
+    @Mock
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
 
     @InjectMocks
     private LoginService loginService;
@@ -41,7 +62,8 @@ class LoginServiceTest {
     @BeforeEach
     void setUp() {
         secretKey = Jwts.SIG.HS256.key().build();
-        loginService = new LoginService(secretKey, usersRepository, null, passwordEncoder);
+        loginService = new LoginService(new JwtKeyRing("test-key", Map.of("test-key", secretKey)), usersRepository, null, passwordVerifier, loginAttemptGuard, userDetailsPasswordService, refreshTokenService);
+        ReflectionTestUtils.setField(loginService, "accessTokenTtl", Duration.ofMinutes(15));
 
         loginRequestDto = new LoginRequestDto("test@example.com", "password123");
         RoleEntity roleEntity = new RoleEntity();
@@ -61,17 +83,55 @@ class LoginServiceTest {
     @Test
     void login_ValidCredentials_ReturnsToken() {
         // given
+        when(refreshTokenService.issue(userEntity)).thenReturn("refresh");
         when(usersRepository.findByEmail(loginRequestDto.getEmail())).thenReturn(Optional.of(userEntity));
-        when(passwordEncoder.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
 
         // when
-        LoginResponseDto response = loginService.login(loginRequestDto);
+        LoginResponseDto response = loginService.login(loginRequestDto, CLIENT_ADDRESS);
 
         // then
         assertNotNull(response);
         assertNotNull(response.getJwtToken());
+        assertEquals("refresh", response.getRefreshToken());
+        assertEquals(900, response.getExpiresIn());
         verify(usersRepository, times(1)).findByEmail(loginRequestDto.getEmail());
-        verify(passwordEncoder, times(1)).matches(loginRequestDto.getPassword(), userEntity.getPassword());
+        verify(passwordVerifier, times(1)).matches(loginRequestDto.getPassword(), userEntity.getPassword());
+        verify(loginAttemptGuard).recordSuccess(loginRequestDto.getEmail());
+        verifyNoInteractions(userDetailsPasswordService);
+    }
+
+    @Test
+    void login_OutdatedHash_RehashedAndStored() {
+        // given
+        when(usersRepository.findByEmail(loginRequestDto.getEmail())).thenReturn(Optional.of(userEntity));
+        when(passwordVerifier.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.upgradeEncoding(userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.encode(loginRequestDto.getPassword())).thenReturn("{bcrypt}newHash");
+
+        // when
+        LoginResponseDto response = loginService.login(loginRequestDto, CLIENT_ADDRESS);
+
+        // then
+        assertNotNull(response.getJwtToken());
+        verify(userDetailsPasswordService).updatePassword(userEntity, "{bcrypt}newHash");
+    }
+
+    @Test
+    void login_RehashFails_StillLoggedIn() {
+        // given
+        when(usersRepository.findByEmail(loginRequestDto.getEmail())).thenReturn(Optional.of(userEntity));
+        when(passwordVerifier.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.upgradeEncoding(userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.encode(loginRequestDto.getPassword()))
+                .thenThrow(new ServiceOverloadedException("Login is temporarily overloaded, try again shortly", Duration.ofSeconds(1)));
+
+        // when
+        LoginResponseDto response = loginService.login(loginRequestDto, CLIENT_ADDRESS);
+
+        // then
+        assertNotNull(response.getJwtToken());
+        verifyNoInteractions(userDetailsPasswordService);
     }
 
     @Test
@@ -82,29 +142,71 @@ class LoginServiceTest {
         // when & then
         LoginException thrown = assertThrows(
                 LoginException.class,
-                () -> loginService.login(loginRequestDto)
+                () -> loginService.login(loginRequestDto, CLIENT_ADDRESS)
         );
 
         assertEquals("User Not Found!", thrown.getMessage());
         verify(usersRepository, times(1)).findByEmail(loginRequestDto.getEmail());
-        verifyNoInteractions(passwordEncoder);
+        verifyNoInteractions(passwordVerifier);
+        verify(loginAttemptGuard).recordFailure(loginRequestDto.getEmail(), CLIENT_ADDRESS);
     }
 
     @Test
     void login_InvalidPassword_ThrowsLoginException() {
         // given
         when(usersRepository.findByEmail(loginRequestDto.getEmail())).thenReturn(Optional.of(userEntity));
-        when(passwordEncoder.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(false);
+        when(passwordVerifier.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(false);
 
         // when & then
         LoginException thrown = assertThrows(
                 LoginException.class,
-                () -> loginService.login(loginRequestDto)
+                () -> loginService.login(loginRequestDto, CLIENT_ADDRESS)
         );
 
         assertEquals("Invalid Password!", thrown.getMessage());
         verify(usersRepository, times(1)).findByEmail(loginRequestDto.getEmail());
-        verify(passwordEncoder, times(1)).matches(loginRequestDto.getPassword(), userEntity.getPassword());
+        verify(passwordVerifier, times(1)).matches(loginRequestDto.getPassword(), userEntity.getPassword());
+        verify(loginAttemptGuard).recordFailure(loginRequestDto.getEmail(), CLIENT_ADDRESS);
+        verify(loginAttemptGuard, never()).recordSuccess(any());
+    }
+
+    @Test
+    void login_Throttled_ThrowsBeforeLookup() {
+        // given
+        doThrow(new TooManyAttemptsException("Too many failed login attempts, try again later", Duration.ofMinutes(3)))
+                .when(loginAttemptGuard).check(loginRequestDto.getEmail(), CLIENT_ADDRESS);
+
+        // when & then
+        assertThrows(TooManyAttemptsException.class, () -> loginService.login(loginRequestDto, CLIENT_ADDRESS));
+        verifyNoInteractions(usersRepository, passwordVerifier);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // refresh
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void refresh_ValidToken_IssuesNewTokensWithoutPasswordCheck() {
+        // given
+        when(refreshTokenService.consume("old-refresh")).thenReturn(userEntity);
+        when(refreshTokenService.issue(userEntity)).thenReturn("new-refresh");
+
+        // when
+        LoginResponseDto response = loginService.refresh("old-refresh");
+
+        // then
+        assertNotNull(response.getJwtToken());
+        assertEquals("new-refresh", response.getRefreshToken());
+        verifyNoInteractions(passwordVerifier, usersRepository);
+    }
+
+    @Test
+    void refresh_InvalidToken_ThrowsLoginException() {
+        // given
+        when(refreshTokenService.consume("old-refresh")).thenThrow(new LoginException("Invalid refresh token"));
+
+        // when & then
+        assertThrows(LoginException.class, () -> loginService.refresh("old-refresh"));
+        verify(refreshTokenService, never()).issue(any());
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -114,10 +216,10 @@ class LoginServiceTest {
     void generateToken_ValidUser_ReturnsValidJwtToken() {
         // Test `generateToken` indirectly through `login`.
         when(usersRepository.findByEmail(loginRequestDto.getEmail())).thenReturn(Optional.of(userEntity));
-        when(passwordEncoder.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
+        when(passwordVerifier.matches(loginRequestDto.getPassword(), userEntity.getPassword())).thenReturn(true);
 
         // when
-        LoginResponseDto response = loginService.login(loginRequestDto);
+        LoginResponseDto response = loginService.login(loginRequestDto, CLIENT_ADDRESS);
 
         // then
         assertNotNull(response);
@@ -125,7 +227,9 @@ class LoginServiceTest {
         assertNotNull(token);
 
         // Verify token structure
-        String subject = Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().getSubject();
-        assertEquals("test@example.com", subject);
+        Jws<Claims> parsed = Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+        assertEquals("test@example.com", parsed.getPayload().getSubject());
+        assertEquals("test-key", parsed.getHeader().getKeyId());
+        assertEquals(1, parsed.getPayload().get("userId", Integer.class));
     }
 }
@@ -5,7 +5,9 @@ import ee.taltech.iti03022024project.domain.OrderEntity;
 import ee.taltech.iti03022024project.domain.OrderItemEntity;
 import ee.taltech.iti03022024project.domain.ProductEntity;
 import ee.taltech.iti03022024project.dto.OrderItemDto;
+import ee.taltech.iti03022024project.exception.BadTokenException;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
+import ee.taltech.iti03022024project.exception.OrderStateException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.OrderItemMapper;
 import ee.taltech.iti03022024project.repository.OrderItemRepository;
@@ -32,6 +34,8 @@ class OrderItemServiceTest {
     private OrderItemRepository orderItemRepository;
     @Mock
     private OrderItemMapper orderItemMapper;
+    @Mock
+    private OrderService orderService;
 
     @InjectMocks
     private OrderItemService orderItemService;
@@ -39,7 +43,7 @@ class OrderItemServiceTest {
 
     private OrderItemEntity orderItemEntity;
     private OrderItemDto orderItemDto;
-    private List<OrderItemEntity> mockDatabase;
+    private List<OrderItemDto> mockDatabase;
 
     @BeforeEach
     void setUp() {
@@ -73,7 +77,6 @@ class OrderItemServiceTest {
 
         orderItemEntity = entity1;
 
-        mockDatabase = List.of(entity1, entity2, entity3);
 
         // Mock DTOs
         OrderItemDto dto1 = OrderItemDto.builder().id(1).quantity(10).priceAtTimeOfOrder(99.99).orderId(100).build();
@@ -82,6 +85,8 @@ class OrderItemServiceTest {
 
         orderItemDto = dto1;
 
+        mockDatabase = List.of(dto1, dto2, dto3);
+
         // Mapper configuration
         lenient().when(orderItemMapper.toDto(entity1)).thenReturn(dto1);
         lenient().when(orderItemMapper.toDto(entity2)).thenReturn(dto2);
@@ -100,11 +105,11 @@ class OrderItemServiceTest {
         int pageSize = 2;
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
-        Page<OrderItemEntity> mockPage = new PageImpl<>(
-                Collections.singletonList(orderItemEntity), pageRequest, 1
+        Page<OrderItemDto> mockPage = new PageImpl<>(
+                Collections.singletonList(orderItemDto), pageRequest, 1
         );
 
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, pageNo, pageSize);
@@ -114,7 +119,7 @@ class OrderItemServiceTest {
         assertThat(response).isNotNull();
         assertThat(response.content()).hasSize(1);
         assertThat(response.content().getFirst().getId()).isEqualTo(1);
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -126,9 +131,9 @@ class OrderItemServiceTest {
 
         PageRequest expectedRequest = PageRequest.of(0, 1); // default corrected to page=0, size=1
 
-        Page<OrderItemEntity> emptyPage = new PageImpl<>(Collections.emptyList(), expectedRequest, 0);
+        Page<OrderItemDto> emptyPage = new PageImpl<>(Collections.emptyList(), expectedRequest, 0);
 
-        when(orderItemRepository.findAll(any(Specification.class), eq(expectedRequest))).thenReturn(emptyPage);
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(emptyPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, negativePageNo, zeroPageSize);
@@ -136,7 +141,7 @@ class OrderItemServiceTest {
         // then
         assertThat(response).isNotNull();
         assertThat(response.content()).isEmpty();
-        verify(orderItemRepository).findAll(any(Specification.class), eq(expectedRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -148,21 +153,21 @@ class OrderItemServiceTest {
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
         // Filter the mock database
-        List<OrderItemEntity> filteredEntities = mockDatabase.stream()
-                .filter(entity -> entity.getOrder().getOrderId() == criteria.orderId())
+        List<OrderItemDto> filteredDtos = mockDatabase.stream()
+                .filter(dto -> criteria.orderId().equals(dto.getOrderId()))
                 .toList();
 
-        Page<OrderItemEntity> mockPage = new PageImpl<>(filteredEntities, pageRequest, filteredEntities.size());
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        Page<OrderItemDto> mockPage = new PageImpl<>(filteredDtos, pageRequest, filteredDtos.size());
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, pageNo, pageSize);
 
         // then
         assertThat(response).isNotNull();
-        assertThat(response.content()).hasSize(filteredEntities.size());
+        assertThat(response.content()).hasSize(filteredDtos.size());
         assertThat(response.content().get(0).getOrderId()).isEqualTo(100);
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -174,21 +179,21 @@ class OrderItemServiceTest {
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
         // Filter the mock database
-        List<OrderItemEntity> filteredEntities = mockDatabase.stream()
-                .filter(entity -> entity.getQuantity() == criteria.quantity())
+        List<OrderItemDto> filteredDtos = mockDatabase.stream()
+                .filter(dto -> criteria.quantity().equals(dto.getQuantity()))
                 .toList();
 
-        Page<OrderItemEntity> mockPage = new PageImpl<>(filteredEntities, pageRequest, filteredEntities.size());
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        Page<OrderItemDto> mockPage = new PageImpl<>(filteredDtos, pageRequest, filteredDtos.size());
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, pageNo, pageSize);
 
         // then
         assertThat(response).isNotNull();
-        assertThat(response.content()).hasSize(filteredEntities.size());
+        assertThat(response.content()).hasSize(filteredDtos.size());
         assertThat(response.content().get(0).getQuantity()).isEqualTo(5);
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -200,21 +205,21 @@ class OrderItemServiceTest {
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
         // Filter the mock database
-        List<OrderItemEntity> filteredEntities = mockDatabase.stream()
-                .filter(entity -> entity.getPriceAtTimeOfOrder() == criteria.priceAtTimeOfOrder())
+        List<OrderItemDto> filteredDtos = mockDatabase.stream()
+                .filter(dto -> criteria.priceAtTimeOfOrder().equals(dto.getPriceAtTimeOfOrder()))
                 .toList();
 
-        Page<OrderItemEntity> mockPage = new PageImpl<>(filteredEntities, pageRequest, filteredEntities.size());
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        Page<OrderItemDto> mockPage = new PageImpl<>(filteredDtos, pageRequest, filteredDtos.size());
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, pageNo, pageSize);
 
         // then
         assertThat(response).isNotNull();
-        assertThat(response.content()).hasSize(filteredEntities.size());
+        assertThat(response.content()).hasSize(filteredDtos.size());
         assertThat(response.content().get(0).getPriceAtTimeOfOrder()).isEqualTo(29.99);
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -225,8 +230,8 @@ class OrderItemServiceTest {
         int pageSize = 5;
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
-        Page<OrderItemEntity> mockPage = new PageImpl<>(mockDatabase, pageRequest, mockDatabase.size());
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        Page<OrderItemDto> mockPage = new PageImpl<>(mockDatabase, pageRequest, mockDatabase.size());
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderItemDto> response = orderItemService.getOrderItems(criteria, pageNo, pageSize);
@@ -234,7 +239,7 @@ class OrderItemServiceTest {
         // then
         assertThat(response).isNotNull();
         assertThat(response.content()).hasSize(mockDatabase.size());
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
 
@@ -246,7 +251,7 @@ class OrderItemServiceTest {
         int pageSize = 2;
         PageRequest expectedRequest = PageRequest.of(0, 2); // corrected to page=0
 
-        when(orderItemRepository.findAll(any(Specification.class), eq(expectedRequest)))
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION)))
                 .thenReturn(Page.empty());
 
         // when
@@ -255,7 +260,7 @@ class OrderItemServiceTest {
         // then
         assertThat(response).isNotNull();
         assertThat(response.content()).isEmpty();
-        verify(orderItemRepository).findAll(any(Specification.class), eq(expectedRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -266,7 +271,7 @@ class OrderItemServiceTest {
         int pageSize = 0; // invalid
         PageRequest expectedRequest = PageRequest.of(0, 1); // corrected to size=1
 
-        when(orderItemRepository.findAll(any(Specification.class), eq(expectedRequest)))
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION)))
                 .thenReturn(Page.empty());
 
         // when
@@ -275,7 +280,7 @@ class OrderItemServiceTest {
         // then
         assertThat(response).isNotNull();
         assertThat(response.content()).isEmpty();
-        verify(orderItemRepository).findAll(any(Specification.class), eq(expectedRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(expectedRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -287,10 +292,10 @@ class OrderItemServiceTest {
         int pageSize = 3;
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
-        Page<OrderItemEntity> mockPage =
-                new PageImpl<>(List.of(orderItemEntity), pageRequest, 1);
+        Page<OrderItemDto> mockPage =
+                new PageImpl<>(List.of(orderItemDto), pageRequest, 1);
 
-        when(orderItemRepository.findAll(any(Specification.class), eq(pageRequest)))
+        when(orderItemRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION)))
                 .thenReturn(mockPage);
 
         // when
@@ -300,7 +305,7 @@ class OrderItemServiceTest {
         assertThat(response).isNotNull();
         assertThat(response.content()).hasSize(1);
         assertThat(response.content().getFirst().getId()).isEqualTo(1);
-        verify(orderItemRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderItemRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderItemRepository.DTO_PROJECTION));
     }
 
     // ----------------------------------------------------------------------------------------
@@ -346,9 +351,22 @@ class OrderItemServiceTest {
         // then
         assertThat(createdItem).isNotNull();
         assertThat(createdItem.getId()).isEqualTo(1);
+        verify(orderService).authorizeCartWrites(List.of(orderItemDto.getOrderId()));
         verify(orderItemRepository).save(orderItemEntity);
     }
 
+    @Test
+    void createOrderItem_OrderOfAnotherUser_NothingSaved() {
+        // given
+        doThrow(new BadTokenException("User not authorized to add items to order"))
+                .when(orderService).authorizeCartWrites(anyList());
+
+        // when / then
+        assertThatThrownBy(() -> orderItemService.createOrderItem(orderItemDto))
+                .isInstanceOf(BadTokenException.class);
+        verify(orderItemRepository, never()).save(any(OrderItemEntity.class));
+    }
+
     @Test
     void createOrderItem_ExceptionThrown_ThrowsObjectCreationException() {
         // given
@@ -361,6 +379,49 @@ class OrderItemServiceTest {
         verify(orderItemRepository).save(any(OrderItemEntity.class));
     }
 
+    // ----------------------------------------------------------------------------------------
+    // createOrderItems
+    // ----------------------------------------------------------------------------------------
+    @Test
+    void createOrderItems_ValidData_SavesAllInOneCall() {
+        // given
+        when(orderItemRepository.saveAllAndFlush(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        // when
+        List<OrderItemDto> createdItems = orderItemService.createOrderItems(List.of(orderItemDto));
+
+        // then
+        assertThat(createdItems).containsExactly(orderItemDto);
+        verify(orderService).authorizeCartWrites(List.of(orderItemDto.getOrderId()));
+        verify(orderItemRepository).saveAllAndFlush(List.of(orderItemEntity));
+        verify(orderItemRepository, never()).save(any(OrderItemEntity.class));
+    }
+
+    @Test
+    void createOrderItems_OrderNotACart_NothingSaved() {
+        // given
+        doThrow(new OrderStateException("Order with id 100 is not a cart"))
+                .when(orderService).authorizeCartWrites(anyList());
+        List<OrderItemDto> orderItems = List.of(orderItemDto);
+
+        // when / then
+        assertThatThrownBy(() -> orderItemService.createOrderItems(orderItems))
+                .isInstanceOf(OrderStateException.class);
+        verify(orderItemRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void createOrderItems_ExceptionThrown_ThrowsObjectCreationException() {
+        // given
+        when(orderItemRepository.saveAllAndFlush(anyList())).thenThrow(new RuntimeException("DB error"));
+        List<OrderItemDto> orderItems = List.of(orderItemDto);
+
+        // when / then
+        assertThatThrownBy(() -> orderItemService.createOrderItems(orderItems))
+                .isInstanceOf(ObjectCreationException.class)
+                .hasMessageContaining("Failed to create order items: DB error");
+    }
+
     // ----------------------------------------------------------------------------------------
     // deleteOrderItem
     // ----------------------------------------------------------------------------------------
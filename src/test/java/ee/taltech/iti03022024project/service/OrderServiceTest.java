@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.cache.StatusCache;
 import ee.taltech.iti03022024project.criteria.OrderSearchCriteria;
 import ee.taltech.iti03022024project.domain.OrderEntity;
 import ee.taltech.iti03022024project.domain.RoleEntity;
@@ -7,13 +8,17 @@ import ee.taltech.iti03022024project.domain.StatusEntity;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.dto.OrderDto;
 import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.exception.CheckoutException;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
+import ee.taltech.iti03022024project.exception.OrderStateException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.OrderMapper;
 import ee.taltech.iti03022024project.repository.OrderRepository;
 import ee.taltech.iti03022024project.repository.StatusRepository;
+import ee.taltech.iti03022024project.repository.StockReservation;
 import ee.taltech.iti03022024project.responses.PageResponse;
 import ee.taltech.iti03022024project.security.AuthenticationFacade;
+import ee.taltech.iti03022024project.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,8 +26,10 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -32,11 +39,15 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class OrderServiceTest {
 
+    private static final UserPrincipal OWNER = new UserPrincipal(100, "user@example.com", List.of("ROLE_USER"));
+
     @Mock
     private OrderRepository orderRepository;
     @Mock
     private StatusRepository statusRepository;
     @Mock
+    private StatusCache statusCache;
+    @Mock
     private OrderMapper orderMapper;
     @Mock
     private AuthenticationFacade authenticationFacade;
@@ -88,10 +99,10 @@ class OrderServiceTest {
         int pageSize = 5;
         PageRequest pageRequest = PageRequest.of(pageNo, pageSize);
 
-        Page<OrderEntity> mockPage =
-                new PageImpl<>(Collections.singletonList(orderEntity), pageRequest, 1);
+        Page<OrderDto> mockPage =
+                new PageImpl<>(Collections.singletonList(orderDto), pageRequest, 1);
 
-        when(orderRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(mockPage);
+        when(orderRepository.findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderDto> response = orderService.getOrders(criteria, pageNo, pageSize);
@@ -100,7 +111,7 @@ class OrderServiceTest {
         assertThat(response).isNotNull();
         assertThat(response.content()).hasSize(1);
         assertThat(response.content().getFirst().getId()).isEqualTo(10);
-        verify(orderRepository).findAll(any(Specification.class), eq(pageRequest));
+        verify(orderRepository).findAllProjected(any(Specification.class), eq(pageRequest), eq(OrderRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -114,10 +125,10 @@ class OrderServiceTest {
 
         PageRequest expectedPaging = PageRequest.of(0, 1);
 
-        Page<OrderEntity> mockPage =
+        Page<OrderDto> mockPage =
                 new PageImpl<>(Collections.emptyList(), expectedPaging, 0);
 
-        when(orderRepository.findAll(any(Specification.class), eq(expectedPaging))).thenReturn(mockPage);
+        when(orderRepository.findAllProjected(any(Specification.class), eq(expectedPaging), eq(OrderRepository.DTO_PROJECTION))).thenReturn(mockPage);
 
         // when
         PageResponse<OrderDto> response = orderService.getOrders(criteria, negativePageNo, zeroPageSize);
@@ -125,7 +136,7 @@ class OrderServiceTest {
         // then
         assertThat(response).isNotNull();
         assertThat(response.content()).isEmpty();
-        verify(orderRepository).findAll(any(Specification.class), eq(expectedPaging));
+        verify(orderRepository).findAllProjected(any(Specification.class), eq(expectedPaging), eq(OrderRepository.DTO_PROJECTION));
     }
 
     // ----------------------------------------------------------------------------------------
@@ -163,7 +174,8 @@ class OrderServiceTest {
     @Test
     void createOrder_ValidOrder_CreatesSuccessfully() {
         // given
-        when(statusRepository.findById(1)).thenReturn(Optional.of(statusEntity));
+        when(statusCache.exists(1)).thenReturn(true);
+        when(statusRepository.getReferenceById(1)).thenReturn(statusEntity);
         when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0)); // mimic save
 
         // when
@@ -172,27 +184,28 @@ class OrderServiceTest {
         // then
         assertThat(createdOrder).isNotNull();
         assertThat(createdOrder.getId()).isEqualTo(10);
-        verify(statusRepository).findById(1);
+        verify(statusRepository).getReferenceById(1);
         verify(orderRepository).save(orderEntity);
     }
 
     @Test
     void createOrder_StatusNotFound_ThrowsResourceNotFoundException() {
         // given
-        when(statusRepository.findById(1)).thenReturn(Optional.empty());
+        when(statusCache.exists(1)).thenReturn(false);
 
         // when / then
         assertThatThrownBy(() -> orderService.createOrder(orderDto))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("Status with id 1 not found");
-        verify(statusRepository).findById(1);
+        verify(statusRepository, never()).getReferenceById(1);
         verify(orderRepository, never()).save(any(OrderEntity.class));
     }
 
     @Test
     void createOrder_StatusFound_SetStatus() {
         // given
-        when(statusRepository.findById(1)).thenReturn(Optional.of(statusEntity));
+        when(statusCache.exists(1)).thenReturn(true);
+        when(statusRepository.getReferenceById(1)).thenReturn(statusEntity);
         when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // when
@@ -202,20 +215,20 @@ class OrderServiceTest {
         assertThat(createdOrder).isNotNull();
         assertThat(createdOrder.getId()).isEqualTo(10);
         assertThat(createdOrder.getStatusId()).isEqualTo(1);
-        verify(statusRepository).findById(1);
+        verify(statusRepository).getReferenceById(1);
         verify(orderRepository).save(orderEntity);
     }
 
     @Test
     void createOrder_ExceptionInProcess_ThrowsObjectCreationException() {
         // given
-        when(statusRepository.findById(1)).thenThrow(new RuntimeException("DB error"));
+        when(statusCache.exists(1)).thenThrow(new RuntimeException("DB error"));
 
         // when / then
         assertThatThrownBy(() -> orderService.createOrder(orderDto))
                 .isInstanceOf(ObjectCreationException.class)
                 .hasMessageContaining("Failed to create order: DB error");
-        verify(statusRepository).findById(1);
+        verify(statusCache).exists(1);
         verify(orderRepository, never()).save(any(OrderEntity.class));
     }
 
@@ -265,9 +278,10 @@ class OrderServiceTest {
     @Test
     void updateOrder_ValidStatus_UpdatesSuccessfully() {
         // given
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(orderEntity.getUser());
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
         when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
-        when(statusRepository.findById(1)).thenReturn(Optional.of(statusEntity));
+        when(statusCache.exists(1)).thenReturn(true);
+        when(statusRepository.getReferenceById(1)).thenReturn(statusEntity);
         when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // when
@@ -277,8 +291,10 @@ class OrderServiceTest {
         assertThat(updatedOrder).isNotNull();
         assertThat(updatedOrder.getId()).isEqualTo(10);
         verify(orderRepository).findById(10);
-        verify(statusRepository).findById(1);
+        verify(statusRepository).getReferenceById(1);
         verify(orderRepository).save(orderEntity);
+        verify(authenticationFacade, times(1)).getPrincipal();
+        verify(authenticationFacade, never()).getAuthenticatedUser();
     }
 
     @Test
@@ -298,32 +314,26 @@ class OrderServiceTest {
     void updateOrder_StatusNotFound_ThrowsResourceNotFoundException() {
         // given
         when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
-        when(statusRepository.findById(1)).thenReturn(Optional.empty());
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(orderEntity.getUser());
+        when(statusCache.exists(1)).thenReturn(false);
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
 
         // when / then
         assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("Status with id 1 not found");
         verify(orderRepository).findById(10);
-        verify(statusRepository).findById(1);
+        verify(statusRepository, never()).getReferenceById(1);
         verify(orderRepository, never()).save(any(OrderEntity.class));
     }
 
     @Test
     void updateOrder_AdminUpdatesOtherOrder_SuccessfullyUpdates() {
         // given
-        UserEntity user = new UserEntity();
-        RoleEntity role = new RoleEntity();
-        role.setRoleName("ROLE_ADMIN");
-        role.setRoleId(2);
-        user.setRole(role);
-        user.setUserId(999);
-
-        when(statusRepository.findById(1)).thenReturn(Optional.of(statusEntity));
+        when(statusCache.exists(1)).thenReturn(true);
+        when(statusRepository.getReferenceById(1)).thenReturn(statusEntity);
         when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0));
         when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(user);
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(999, "admin@example.com", List.of(UserPrincipal.ROLE_ADMIN)));
 
         // when
         OrderDto updatedOrder = orderService.updateOrder(10, orderDto);
@@ -332,27 +342,261 @@ class OrderServiceTest {
         assertThat(updatedOrder).isNotNull();
         assertThat(updatedOrder.getId()).isEqualTo(10);
         verify(orderRepository).findById(10);
-        verify(statusRepository).findById(1);
+        verify(statusRepository).getReferenceById(1);
     }
 
     @Test
     void updateOrder_NotAdminUpdatesOtherOrder_ThrowsBadToken() {
         // given
-        UserEntity user = new UserEntity();
-        RoleEntity role = new RoleEntity();
-        role.setRoleName("ROLE_USER");
-        role.setRoleId(1);
-        user.setRole(role);
-        user.setUserId(999);
+        when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(999, "other@example.com", List.of("ROLE_USER")));
+
+        // when
+        assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
+                .isInstanceOf(BadTokenException.class)
+                .hasMessageContaining("User not authorized to update order");
+
+    }
+
+    @Test
+    void updateOrder_OwnerMovesCartToPlaced_ThrowsOrderStateException() {
+        // given
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 1);
+        orderEntity.getStatus().setStatusId(0);
+        when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+
+        // when / then
+        assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
+                .isInstanceOf(OrderStateException.class)
+                .hasMessageContaining("can only be placed through checkout");
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+    }
+
+    @Test
+    void updateOrder_OwnerMovesPlacedOrderBackToCart_ThrowsOrderStateException() {
+        // given
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 1);
+        orderDto.setStatusId(0);
+        when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+
+        // when / then
+        assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
+                .isInstanceOf(OrderStateException.class);
+        verify(statusRepository, never()).getReferenceById(anyInt());
+    }
 
+    @Test
+    void updateOrder_AdminMovesPlacedOrderBackToCart_UpdatesSuccessfully() {
+        // given
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 1);
+        orderDto.setStatusId(0);
         when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(user);
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(999, "admin@example.com", List.of(UserPrincipal.ROLE_ADMIN)));
+        when(statusCache.exists(0)).thenReturn(true);
+        when(statusRepository.getReferenceById(0)).thenReturn(new StatusEntity());
 
         // when
+        orderService.updateOrder(10, orderDto);
+
+        // then
+        verify(orderRepository).save(orderEntity);
+    }
+
+    @Test
+    void updateOrder_TokenWithoutUserId_ThrowsBadToken() {
+        // given
+        when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(null, "user@example.com", List.of("ROLE_USER")));
+
+        // when / then
         assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
                 .isInstanceOf(BadTokenException.class)
                 .hasMessageContaining("User not authorized to update order");
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+    }
+
+    @Test
+    void updateOrder_NotAuthenticated_ThrowsBadToken() {
+        // given
+        when(orderRepository.findById(10)).thenReturn(Optional.of(orderEntity));
+
+        // when / then
+        assertThatThrownBy(() -> orderService.updateOrder(10, orderDto))
+                .isInstanceOf(BadTokenException.class);
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // checkPlacedStatus
+    // ----------------------------------------------------------------------------------------
+    @Test
+    void checkPlacedStatus_StatusExists_Passes() {
+        // given
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 1);
+        when(statusRepository.existsById(1)).thenReturn(true);
+
+        // when / then
+        assertThatCode(() -> orderService.checkPlacedStatus()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkPlacedStatus_StatusMissing_FailsStartup() {
+        // given
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 7);
+        when(statusRepository.existsById(7)).thenReturn(false);
 
+        // when / then
+        assertThatThrownBy(() -> orderService.checkPlacedStatus())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("7");
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // checkout
+    // ----------------------------------------------------------------------------------------
+    private void givenCart() {
+        StatusEntity cart = new StatusEntity();
+        cart.setStatusId(0);
+        orderEntity.setStatus(cart);
+        orderEntity.getUser().setEmail("user@example.com");
+        ReflectionTestUtils.setField(orderService, "placedStatusId", 1);
+        when(orderRepository.findWithLockByOrderId(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+        when(statusCache.exists(1)).thenReturn(true);
+        when(statusRepository.getReferenceById(1)).thenReturn(statusEntity);
+    }
+
+    private static StockReservation reservation(long requested, long reserved) {
+        return new StockReservation() {
+            @Override
+            public long getRequested() {
+                return requested;
+            }
+
+            @Override
+            public long getReserved() {
+                return reserved;
+            }
+        };
+    }
+
+    @Test
+    void checkout_EnoughStock_PlacesOrderAndCreatesNewCart() {
+        // given
+        givenCart();
+        when(orderRepository.reserveStock(10)).thenReturn(reservation(2, 2));
+        when(statusRepository.getReferenceById(0)).thenReturn(new StatusEntity());
+        when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // when
+        OrderDto placedOrder = orderService.checkout(10);
+
+        // then
+        assertThat(placedOrder).isEqualTo(orderDto);
+        assertThat(orderEntity.getStatus()).isSameAs(statusEntity);
+        assertThat(orderEntity.getUser().getUnfinishedOrder()).isNotNull().isNotSameAs(orderEntity);
+        verify(authenticationFacade).evictUser("user@example.com");
+    }
+
+    @Test
+    void checkout_NotEnoughStock_ThrowsCheckoutException() {
+        // given
+        givenCart();
+        when(orderRepository.reserveStock(10)).thenReturn(reservation(2, 1));
+
+        // when / then
+        assertThatThrownBy(() -> orderService.checkout(10))
+                .isInstanceOf(CheckoutException.class)
+                .hasMessageContaining("Not enough stock");
+        assertThat(orderEntity.getStatus().getStatusId()).isZero();
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+    }
+
+    @Test
+    void checkout_EmptyCart_ThrowsCheckoutException() {
+        // given
+        givenCart();
+        when(orderRepository.reserveStock(10)).thenReturn(reservation(0, 0));
+
+        // when / then
+        assertThatThrownBy(() -> orderService.checkout(10))
+                .isInstanceOf(CheckoutException.class)
+                .hasMessageContaining("has no items");
+    }
+
+    @Test
+    void checkout_OrderIsNotCart_ThrowsCheckoutException() {
+        // given
+        when(orderRepository.findWithLockByOrderId(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+
+        // when / then
+        assertThatThrownBy(() -> orderService.checkout(10))
+                .isInstanceOf(CheckoutException.class)
+                .hasMessageContaining("is not a cart");
+        verify(orderRepository, never()).reserveStock(anyInt());
+    }
+
+    @Test
+    void checkout_OrderNotFound_ThrowsResourceNotFoundException() {
+        // given
+        when(orderRepository.findWithLockByOrderId(999)).thenReturn(Optional.empty());
+
+        // when / then
+        assertThatThrownBy(() -> orderService.checkout(999))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Order with id 999 not found");
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // authorizeCartWrites
+    // ----------------------------------------------------------------------------------------
+    @Test
+    void authorizeCartWrites_OwnCart_Passes() {
+        // given
+        orderEntity.getStatus().setStatusId(0);
+        when(orderRepository.findWithLockByOrderId(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+
+        // when / then
+        assertThatCode(() -> orderService.authorizeCartWrites(List.of(10, 10))).doesNotThrowAnyException();
+        verify(orderRepository, times(1)).findWithLockByOrderId(10);
+    }
+
+    @Test
+    void authorizeCartWrites_CartOfAnotherUser_ThrowsBadTokenException() {
+        // given
+        orderEntity.getStatus().setStatusId(0);
+        when(orderRepository.findWithLockByOrderId(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(200, "other@example.com", List.of("ROLE_USER")));
+
+        // when / then
+        assertThatThrownBy(() -> orderService.authorizeCartWrites(List.of(10)))
+                .isInstanceOf(BadTokenException.class);
+    }
+
+    @Test
+    void authorizeCartWrites_PlacedOrder_ThrowsOrderStateException() {
+        // given
+        when(orderRepository.findWithLockByOrderId(10)).thenReturn(Optional.of(orderEntity));
+        when(authenticationFacade.getPrincipal()).thenReturn(OWNER);
+
+        // when / then
+        assertThatThrownBy(() -> orderService.authorizeCartWrites(List.of(10)))
+                .isInstanceOf(OrderStateException.class)
+                .hasMessageContaining("not a cart");
+    }
+
+    @Test
+    void authorizeCartWrites_OrderDoesNotExist_ThrowsResourceNotFoundException() {
+        // given
+        when(orderRepository.findWithLockByOrderId(99)).thenReturn(Optional.empty());
+
+        // when / then
+        assertThatThrownBy(() -> orderService.authorizeCartWrites(List.of(99)))
+                .isInstanceOf(ResourceNotFoundException.class);
     }
 
     // ----------------------------------------------------------------------------------------
@@ -0,0 +1,299 @@
+package ee.taltech.iti03022024project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.iti03022024project.cache.CategoryCache;
+import ee.taltech.iti03022024project.dto.CategoryDto;
+import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.repository.ProductBatchWriter;
+import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.responses.ImportReport;
+import ee.taltech.iti03022024project.security.AuthenticationFacade;
+import ee.taltech.iti03022024project.security.UserPrincipal;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    private static final String VALID_LINE = "{\"name\":\"Lamp\",\"price\":12.5,\"stockQuantity\":3,\"categoryId\":1}";
+
+    @Mock
+    private CategoryCache categoryCache;
+    @Mock
+    private UsersRepository usersRepository;
+    @Mock
+    private ProductBatchWriter productBatchWriter;
+    @Mock
+    private AuthenticationFacade authenticationFacade;
+
+    private ProductImportService productImportService;
+
+    // copies of what reached the writer, the service reuses its chunk list
+    private final List<List<ProductDto>> writtenChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productImportService = new ProductImportService(
+                new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                categoryCache,
+                usersRepository,
+                productBatchWriter,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                authenticationFacade);
+
+        lenient().when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(7, "seller@example.com", List.of("ROLE_USER")));
+        lenient().when(categoryCache.findById(1)).thenReturn(Optional.of(new CategoryDto(1, "Home")));
+        lenient().doAnswer(inv -> writtenChunks.add(List.copyOf(inv.<List<ProductDto>>getArgument(0))))
+                .when(productBatchWriter).insert(anyList());
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // importNdjson
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void importNdjson_ValidRows_WritesInChunks() {
+        // given
+        String content = (VALID_LINE + "\n").repeat(ProductImportService.CHUNK_SIZE + 1);
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(ProductImportService.CHUNK_SIZE + 1, report.rowsRead());
+        assertEquals(ProductImportService.CHUNK_SIZE + 1, report.imported());
+        assertEquals(0, report.rejected());
+        assertEquals(2, writtenChunks.size());
+        assertEquals(ProductImportService.CHUNK_SIZE, writtenChunks.get(0).size());
+        assertEquals(1, writtenChunks.get(1).size());
+    }
+
+    @Test
+    void importNdjson_RowWithoutSeller_BelongsToCaller() {
+        // when
+        productImportService.importNdjson(body(VALID_LINE));
+
+        // then
+        assertEquals(7, writtenChunks.getFirst().getFirst().getSellerId());
+    }
+
+    @Test
+    void importNdjson_InvalidRows_SkippedAndReported() {
+        // given
+        String content = String.join("\n",
+                VALID_LINE,
+                "{\"name\":\"Broken\",",
+                "{\"name\":\"Lamp\",\"price\":-1,\"categoryId\":1}",
+                "",
+                "{\"name\":\"Lamp\",\"price\":1,\"categoryId\":99}",
+                "{\"name\":\"Lamp\",\"categoryId\":1}");
+        when(categoryCache.findById(99)).thenReturn(Optional.empty());
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(5, report.rowsRead());
+        assertEquals(1, report.imported());
+        assertEquals(4, report.rejected());
+        assertEquals(List.of(2L, 3L, 5L, 6L), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Invalid JSON"));
+        assertTrue(report.errors().get(1).message().startsWith("price "));
+        assertEquals("Category with id 99 not found", report.errors().get(2).message());
+        assertEquals("price is required", report.errors().get(3).message());
+        assertFalse(report.errorsTruncated());
+    }
+
+    @Test
+    void importNdjson_OtherSellerAsUser_RowRejected() {
+        // when
+        ImportReport report = productImportService.importNdjson(body("{\"name\":\"Lamp\",\"price\":1,\"categoryId\":1,\"sellerId\":8}"));
+
+        // then
+        assertEquals(0, report.imported());
+        assertEquals("User and seller id not match", report.errors().getFirst().message());
+        verifyNoInteractions(usersRepository, productBatchWriter);
+    }
+
+    @Test
+    void importNdjson_OtherSellersAsAdmin_LooksUpEachSellerOnce() {
+        // given
+        when(authenticationFacade.getPrincipal()).thenReturn(new UserPrincipal(1, "admin@example.com", List.of(UserPrincipal.ROLE_ADMIN)));
+        when(usersRepository.existsById(8)).thenReturn(true);
+        when(usersRepository.existsById(9)).thenReturn(false);
+        String content = String.join("\n",
+                "{\"name\":\"Lamp\",\"price\":1,\"categoryId\":1,\"sellerId\":8}",
+                "{\"name\":\"Lamp\",\"price\":1,\"categoryId\":1,\"sellerId\":8}",
+                "{\"name\":\"Lamp\",\"price\":1,\"categoryId\":1,\"sellerId\":9}");
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(2, report.imported());
+        assertEquals("User with id 9 not found", report.errors().getFirst().message());
+        verify(usersRepository).existsById(8);
+    }
+
+    @Test
+    void importNdjson_DatabaseRejectsChunk_ReportsEveryRowOfChunk() {
+        // given
+        doThrow(new DataIntegrityViolationException("constraint violated")).when(productBatchWriter).insert(anyList());
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(VALID_LINE + "\n" + VALID_LINE));
+
+        // then
+        assertEquals(0, report.imported());
+        assertEquals(2, report.rejected());
+        assertEquals(List.of(1L, 2L), report.errors().stream().map(ImportReport.RowError::row).toList());
+    }
+
+    @Test
+    void importNdjson_DatabaseRejectsOneRowOfChunk_RetriesRowsAndReportsOnlyThatRow() {
+        // given
+        doAnswer(inv -> {
+            List<ProductDto> products = inv.getArgument(0);
+            if (products.size() > 1 || "Broken".equals(products.getFirst().getName())) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            writtenChunks.add(List.copyOf(products));
+            return null;
+        }).when(productBatchWriter).insert(anyList());
+        String content = String.join("\n",
+                VALID_LINE,
+                "{\"name\":\"Broken\",\"price\":1,\"categoryId\":1}",
+                VALID_LINE);
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(2, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals(List.of(2L), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertEquals("Rejected by the database: value too long", report.errors().getFirst().message());
+        assertEquals(2, writtenChunks.size());
+    }
+
+    @Test
+    void importNdjson_DatabaseUnavailable_ChunkNotRetried() {
+        // given
+        doThrow(new DataAccessResourceFailureException("connection refused")).when(productBatchWriter).insert(anyList());
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(VALID_LINE + "\n" + VALID_LINE));
+
+        // then
+        assertEquals(2, report.rejected());
+        verify(productBatchWriter, times(1)).insert(anyList());
+    }
+
+    @Test
+    void importNdjson_LineTooLong_RowRejectedWithoutStoppingImport() {
+        // given
+        String longLine = "{\"name\":\"" + "x".repeat(ProductImportService.MAX_LINE_LENGTH) + "\"}";
+        String content = String.join("\r\n", VALID_LINE, longLine, VALID_LINE);
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(3, report.rowsRead());
+        assertEquals(2, report.imported());
+        assertEquals(List.of(2L), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertEquals("Line longer than " + ProductImportService.MAX_LINE_LENGTH + " characters", report.errors().getFirst().message());
+    }
+
+    @Test
+    void importNdjson_ManyInvalidRows_ReportCapped() {
+        // given
+        String content = "{}\n".repeat(ProductImportService.MAX_REPORTED_ERRORS + 5);
+
+        // when
+        ImportReport report = productImportService.importNdjson(body(content));
+
+        // then
+        assertEquals(ProductImportService.MAX_REPORTED_ERRORS + 5, report.rejected());
+        assertEquals(ProductImportService.MAX_REPORTED_ERRORS, report.errors().size());
+        assertTrue(report.errorsTruncated());
+    }
+
+    @Test
+    void importNdjson_NotAuthenticated_ThrowsBadTokenException() {
+        // given
+        when(authenticationFacade.getPrincipal()).thenReturn(null);
+        InputStream content = body(VALID_LINE);
+
+        // when & then
+        assertThrows(BadTokenException.class, () -> productImportService.importNdjson(content));
+        verifyNoInteractions(productBatchWriter);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // importCsv
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void importCsv_HeaderAndRows_ImportsRows() {
+        // given
+        String content = """
+                name,description,price,stockQuantity,categoryId,imageUrl
+                Lamp,"Warm light, dimmable",12.5,3,1,
+                Chair,,40,,1,https://example.com/chair.png
+                """;
+
+        // when
+        ImportReport report = productImportService.importCsv(body(content));
+
+        // then
+        assertEquals(2, report.imported());
+        ProductDto lamp = writtenChunks.getFirst().get(0);
+        assertEquals("Warm light, dimmable", lamp.getDescription());
+        assertNull(lamp.getImageUrl());
+        ProductDto chair = writtenChunks.getFirst().get(1);
+        assertNull(chair.getStockQuantity());
+        assertEquals(40.0, chair.getPrice());
+    }
+
+    @Test
+    void importCsv_UnparsableNumber_RowReportedAndOthersImported() {
+        // given
+        String content = """
+                name,price,categoryId
+                Lamp,cheap,1
+                Chair,40,1
+                """;
+
+        // when
+        ImportReport report = productImportService.importCsv(body(content));
+
+        // then
+        assertEquals(2, report.rowsRead());
+        assertEquals(1, report.imported());
+        assertEquals(1, report.errors().getFirst().row());
+        assertTrue(report.errors().getFirst().message().startsWith("Invalid value"));
+    }
+}
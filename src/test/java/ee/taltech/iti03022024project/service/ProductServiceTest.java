@@ -1,20 +1,27 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.criteria.ProductCursor;
 import ee.taltech.iti03022024project.criteria.ProductSearchCriteria;
 import ee.taltech.iti03022024project.domain.CategoryEntity;
 import ee.taltech.iti03022024project.domain.ProductEntity;
 import ee.taltech.iti03022024project.domain.UserEntity;
 import ee.taltech.iti03022024project.dto.ProductDto;
+import ee.taltech.iti03022024project.dto.ProductSearchHitDto;
 import ee.taltech.iti03022024project.exception.BadTokenException;
+import ee.taltech.iti03022024project.exception.InvalidCursorException;
 import ee.taltech.iti03022024project.exception.ObjectCreationException;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
 import ee.taltech.iti03022024project.mapstruct.ProductMapper;
 import ee.taltech.iti03022024project.repository.CategoryRepository;
 import ee.taltech.iti03022024project.repository.ProductRepository;
+import ee.taltech.iti03022024project.repository.ProductSearchRow;
+import ee.taltech.iti03022024project.repository.RowCountEstimator;
 import ee.taltech.iti03022024project.repository.UsersRepository;
+import ee.taltech.iti03022024project.responses.CursorPageResponse;
+import ee.taltech.iti03022024project.responses.ExportFormat;
 import ee.taltech.iti03022024project.responses.PageResponse;
-import ee.taltech.iti03022024project.security.JwtRequestFilter;
-import io.jsonwebtoken.Claims;
+import ee.taltech.iti03022024project.responses.TotalCount;
+import ee.taltech.iti03022024project.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,8 +30,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.io.ByteArrayOutputStream;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,8 +43,6 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class ProductServiceTest {
 
-    @Mock
-    private JwtRequestFilter jwtRequestFilter;
     @Mock
     private ProductRepository productRepository;
     @Mock
@@ -43,14 +51,18 @@ class ProductServiceTest {
     private ProductMapper productMapper;
     @Mock
     private UsersRepository usersRepository;
+    @Mock
+    private ExportWriter exportWriter;
+    @Mock
+    private RowCountEstimator rowCountEstimator;
 
     @InjectMocks
     private ProductService productService;
 
     private ProductDto sampleProductDto;
     private ProductEntity sampleProductEntity;
-    private final String validToken = "Bearer validTokenString";
-    private final Claims validClaims = mock(Claims.class);
+    private final UserPrincipal seller = new UserPrincipal(123, "seller@example.com", List.of("ROLE_USER"));
+    private final UserPrincipal admin = new UserPrincipal(999, "admin@example.com", List.of(UserPrincipal.ROLE_ADMIN));
 
     @BeforeEach
     void setUp() {
@@ -78,75 +90,57 @@ class ProductServiceTest {
         UserEntity userEntity = new UserEntity();
         userEntity.setUserId(123);
         sampleProductEntity.setSeller(userEntity);
-
-        // Set up valid token claims: userId = 123
-        when(validClaims.get("userId")).thenReturn(123);
-
-        // By default, parseToken(...) returns validClaims
-        lenient().when(jwtRequestFilter.parseToken("validTokenString")).thenReturn(validClaims);
-        lenient().when(validClaims.get("roles")).thenReturn(new ArrayList<>(List.of(new LinkedHashMap<>(Map.of("authority", "ROLE_USER")))));
     }
 
     // ---------------------------------------------------------------------------------------------
-    // tokenValidation coverage (indirectly tested via create/update/delete), plus direct scenarios
+    // seller authorization (via create/update/delete)
     // ---------------------------------------------------------------------------------------------
     @Test
-    void createProduct_TokenIsNull_ThrowsBadTokenException() {
-        // given
-        String nullToken = null;
-
+    void createProduct_NotAuthenticated_ThrowsBadTokenException() {
         // when & then
         BadTokenException thrown = assertThrows(
                 BadTokenException.class,
-                () -> productService.createProduct(sampleProductDto, nullToken)
+                () -> productService.createProduct(sampleProductDto, null)
         );
 
-        assertTrue(thrown.getMessage().contains("Token is null or empty"));
-        verifyNoInteractions(jwtRequestFilter); // no parse attempt
+        assertTrue(thrown.getMessage().contains("User not authorized"));
+        verifyNoInteractions(productRepository);
     }
 
     @Test
-    void createProduct_TokenIsEmpty_ThrowsBadTokenException() {
+    void createProduct_UserIdMismatch_ThrowsBadTokenException() {
         // given
-        String emptyToken = "";
+        UserPrincipal otherUser = new UserPrincipal(999, "other@example.com", List.of("ROLE_USER"));
 
         // when & then
         BadTokenException thrown = assertThrows(
                 BadTokenException.class,
-                () -> productService.createProduct(sampleProductDto, emptyToken)
+                () -> productService.createProduct(sampleProductDto, otherUser)
         );
-
-        assertTrue(thrown.getMessage().contains("Token is null or empty"));
-        verifyNoInteractions(jwtRequestFilter); // no parse attempt
+        assertTrue(thrown.getMessage().contains("User and seller id not match"));
+        verifyNoInteractions(productRepository);
     }
 
     @Test
-    void createProduct_ParseTokenReturnsNullClaims_ThrowsBadTokenException() {
+    void updateProduct_UserIdMismatch_ThrowsBadTokenException() {
         // given
-        when(jwtRequestFilter.parseToken("validTokenString")).thenReturn(null);
+        UserPrincipal otherUser = new UserPrincipal(999, "other@example.com", List.of("ROLE_USER"));
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProductEntity));
 
         // when & then
-        BadTokenException thrown = assertThrows(
-                BadTokenException.class,
-                () -> productService.createProduct(sampleProductDto, validToken)
-        );
-
-        assertTrue(thrown.getMessage().contains("Invalid token"));
-        verify(jwtRequestFilter).parseToken("validTokenString");
+        assertThrows(BadTokenException.class, () -> productService.updateProduct(1, sampleProductDto, otherUser));
+        verify(productRepository, never()).save(any());
     }
 
     @Test
-    void createProduct_UserIdMismatch_ThrowsBadTokenException() {
+    void updateProduct_TokenWithoutUserId_ThrowsBadTokenException() {
         // given
-        when(validClaims.get("userId")).thenReturn(999); // mismatch
-        when(jwtRequestFilter.parseToken("validTokenString")).thenReturn(validClaims);
+        UserPrincipal noUserId = new UserPrincipal(null, "user@example.com", List.of("ROLE_USER"));
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProductEntity));
 
         // when & then
-        BadTokenException thrown = assertThrows(
-                BadTokenException.class,
-                () -> productService.createProduct(sampleProductDto, validToken)
-        );
-        assertTrue(thrown.getMessage().contains("User and seller id not match"));
+        assertThrows(BadTokenException.class, () -> productService.updateProduct(1, sampleProductDto, noUserId));
+        verify(productRepository, never()).save(any());
     }
     // ---------------------------------------------------------------------------------------------
     // getProducts
@@ -161,10 +155,9 @@ class ProductServiceTest {
                 .build();
 
         Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.ASC, "name"));
-        Page<ProductEntity> pageResult = new PageImpl<>(List.of(sampleProductEntity), pageable, 1);
+        Page<ProductDto> pageResult = new PageImpl<>(List.of(sampleProductDto), pageable, 1);
 
-        when(productRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(pageResult);
-        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+        when(productRepository.findAllProjected(any(Specification.class), any(Pageable.class), eq(ProductRepository.DTO_PROJECTION))).thenReturn(pageResult);
 
         // when
         PageResponse<ProductDto> response = productService.getProducts(criteria, 0, 5);
@@ -173,8 +166,8 @@ class ProductServiceTest {
         assertNotNull(response);
         assertEquals(1, response.content().size());
         assertEquals("Sample Product", response.content().getFirst().getName());
-        verify(productRepository, times(1)).findAll(any(Specification.class), eq(pageable));
-        verify(productMapper, times(1)).toDto(sampleProductEntity);
+        verify(productRepository, times(1)).findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION));
+        verifyNoInteractions(productMapper);
     }
 
     @Test
@@ -183,14 +176,14 @@ class ProductServiceTest {
         ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
         Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "productId"));
 
-        when(productRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(Page.empty());
+        when(productRepository.findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION))).thenReturn(Page.empty());
 
         // when
         PageResponse<ProductDto> page = productService.getProducts(criteria, -1, 5);
 
         // then
         assertNotNull(page);
-        verify(productRepository, times(1)).findAll(any(Specification.class), eq(pageable));
+        verify(productRepository, times(1)).findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -199,14 +192,14 @@ class ProductServiceTest {
         ProductSearchCriteria criteria = new ProductSearchCriteria(null, null, null, null, null, null, null, null, null, null);
         Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "productId"));
 
-        when(productRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(Page.empty());
+        when(productRepository.findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION))).thenReturn(Page.empty());
 
         // when
         PageResponse<ProductDto> page = productService.getProducts(criteria, 0, 0);
 
         // then
         assertNotNull(page);
-        verify(productRepository, times(1)).findAll(any(Specification.class), eq(pageable));
+        verify(productRepository, times(1)).findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -215,17 +208,16 @@ class ProductServiceTest {
         ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
 
         Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "productId"));
-        Page<ProductEntity> pageResult = new PageImpl<>(List.of(sampleProductEntity), pageable, 1);
+        Page<ProductDto> pageResult = new PageImpl<>(List.of(sampleProductDto), pageable, 1);
 
-        when(productRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(pageResult);
-        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+        when(productRepository.findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION))).thenReturn(pageResult);
 
         // when
         PageResponse<ProductDto> result = productService.getProducts(criteria, 0, 5);
 
         // then
         assertFalse(result.content().isEmpty());
-        verify(productRepository).findAll(any(Specification.class), any(Pageable.class));
+        verify(productRepository).findAllProjected(any(Specification.class), any(Pageable.class), eq(ProductRepository.DTO_PROJECTION));
     }
 
     @Test
@@ -250,16 +242,14 @@ class ProductServiceTest {
                 .imageUrl("http://example.com/image.jpg")
                 .build();
 
-        Page<ProductEntity> pageResult = new PageImpl<>(
-                List.of(sampleProductEntity),
+        Page<ProductDto> pageResult = new PageImpl<>(
+                List.of(sampleProductDto),
                 PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "price")),
                 1
         );
 
-        when(productRepository.findAll(any(Specification.class), any(Pageable.class)))
+        when(productRepository.findAllProjected(any(Specification.class), any(Pageable.class), eq(ProductRepository.DTO_PROJECTION)))
                 .thenReturn(pageResult);
-        when(productMapper.toDto(sampleProductEntity))
-                .thenReturn(sampleProductDto);
 
         // when
         PageResponse<ProductDto> response = productService.getProducts(criteria, 0, 5);
@@ -267,7 +257,207 @@ class ProductServiceTest {
         // then
         assertEquals(1, response.content().size());
         assertEquals("Sample Product", response.content().getFirst().getName());
-        verify(productRepository).findAll(any(Specification.class), any(Pageable.class));
+        verify(productRepository).findAllProjected(any(Specification.class), any(Pageable.class), eq(ProductRepository.DTO_PROJECTION));
+    }
+
+    @Test
+    void getProducts_TotalNone_UsesSliceWithoutCount() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
+        Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "productId"));
+
+        when(productRepository.findAllProjectedSliced(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION)))
+                .thenReturn(new SliceImpl<>(List.of(sampleProductDto), pageable, false));
+
+        // when
+        PageResponse<ProductDto> response = productService.getProducts(criteria, 0, 5, TotalCount.NONE);
+
+        // then
+        assertEquals(1, response.content().size());
+        assertFalse(response.hasNext());
+        assertNull(response.totalElements());
+        verify(productRepository, never()).findAllProjected(any(Specification.class), any(Pageable.class), eq(ProductRepository.DTO_PROJECTION));
+    }
+
+    @Test
+    void getProducts_TotalEstimateWithFilter_CountsExactly() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().name("Sample Product").build();
+        Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "productId"));
+
+        when(productRepository.findAllProjected(any(Specification.class), eq(pageable), eq(ProductRepository.DTO_PROJECTION)))
+                .thenReturn(new PageImpl<>(List.of(sampleProductDto), pageable, 1));
+
+        // when
+        PageResponse<ProductDto> response = productService.getProducts(criteria, 0, 5, TotalCount.ESTIMATE);
+
+        // then
+        assertEquals(1L, response.totalElements());
+        verifyNoInteractions(rowCountEstimator);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // searchProducts
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void searchProducts_MoreRowsThanPageSize_ReturnsPageWithNext() {
+        // given
+        ProductSearchRow first = mock(ProductSearchRow.class);
+        ProductSearchRow second = mock(ProductSearchRow.class);
+        ProductSearchHitDto hit = new ProductSearchHitDto(sampleProductDto, 0.6, "<mark>Sample</mark> Product", "");
+
+        when(productRepository.searchByText("sample:* & pro:*", 2, 0L)).thenReturn(List.of(first, second));
+        when(productMapper.toSearchHitDto(first)).thenReturn(hit);
+
+        // when
+        PageResponse<ProductSearchHitDto> response = productService.searchProducts("Sample pro", 0, 1);
+
+        // then
+        assertEquals(List.of(hit), response.content());
+        assertTrue(response.hasNext());
+        assertNull(response.totalElements());
+        verify(productMapper, never()).toSearchHitDto(second);
+    }
+
+    @Test
+    void searchProducts_NoWordCharacters_SkipsQuery() {
+        // when
+        PageResponse<ProductSearchHitDto> response = productService.searchProducts(" &|!:* ", 0, 5);
+
+        // then
+        assertTrue(response.content().isEmpty());
+        assertFalse(response.hasNext());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void toPrefixQuery_OperatorsAndRepeats_KeepsOnlyDistinctWords() {
+        assertEquals("laptop:* & 15:*", ProductService.toPrefixQuery("Laptop | 15\" laptop!"));
+        assertEquals("", ProductService.toPrefixQuery(null));
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // getProductsAfter
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void getProductsAfter_FullSlice_ReturnsNextCursor() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder()
+                .sortBy("price")
+                .sortDirection("ASC")
+                .build();
+        Pageable pageable = PageRequest.of(0, 1);
+        Slice<ProductEntity> slice = new SliceImpl<>(List.of(sampleProductEntity), pageable, true);
+
+        when(productRepository.findAllSliced(any(Specification.class), eq(pageable))).thenReturn(slice);
+        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+
+        // when
+        CursorPageResponse<ProductDto> response = productService.getProductsAfter(criteria, "", 1);
+
+        // then
+        assertEquals(1, response.content().size());
+        assertNotNull(response.nextCursor());
+        ProductCursor next = ProductCursor.decode(response.nextCursor());
+        assertEquals("price", next.sortBy());
+        assertEquals(1, next.productId());
+        assertEquals("10.0", next.value());
+        verify(productRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void getProductsAfter_LastSlice_ReturnsNoCursor() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
+        String cursor = new ProductCursor("productId", Sort.Direction.DESC, 2, "2").encode();
+        Pageable pageable = PageRequest.of(0, 5);
+
+        when(productRepository.findAllSliced(any(Specification.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(sampleProductEntity), pageable, false));
+        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+
+        // when
+        CursorPageResponse<ProductDto> response = productService.getProductsAfter(criteria, cursor, 5);
+
+        // then
+        assertEquals(1, response.content().size());
+        assertNull(response.nextCursor());
+    }
+
+    @Test
+    void getProductsAfter_LastProductWithoutName_CursorCarriesEmptyName() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder()
+                .sortBy("name")
+                .sortDirection("ASC")
+                .build();
+        sampleProductEntity.setName(null);
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(productRepository.findAllSliced(any(Specification.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(sampleProductEntity), pageable, true));
+        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+
+        // when
+        CursorPageResponse<ProductDto> response = productService.getProductsAfter(criteria, "", 1);
+
+        // then
+        ProductCursor next = ProductCursor.decode(response.nextCursor());
+        assertEquals("name", next.sortBy());
+        assertEquals(1, next.productId());
+        assertEquals("", next.value());
+    }
+
+    @Test
+    void getProductsAfter_CursorForOtherSort_ThrowsInvalidCursorException() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().sortBy("name").build();
+        String cursor = new ProductCursor("price", Sort.Direction.DESC, 1, "10.0").encode();
+
+        // when & then
+        assertThrows(InvalidCursorException.class, () -> productService.getProductsAfter(criteria, cursor, 5));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getProductsAfter_MalformedCursor_ThrowsInvalidCursorException() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().build();
+
+        // when & then
+        assertThrows(InvalidCursorException.class, () -> productService.getProductsAfter(criteria, "not a cursor", 5));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getProductsAfter_UnsupportedSortKey_ThrowsInvalidCursorException() {
+        // given
+        ProductSearchCriteria criteria = ProductSearchCriteria.builder().sortBy("quantityInStock").build();
+
+        // when & then
+        assertThrows(InvalidCursorException.class, () -> productService.getProductsAfter(criteria, "", 5));
+        verifyNoInteractions(productRepository);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // exportProducts
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void exportProducts_WritesStreamAndClosesIt() throws Exception {
+        // given
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<ProductDto> rows = Stream.of(sampleProductDto).onClose(() -> closed.set(true));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(productRepository.streamProjected(any(Specification.class), eq(Sort.by(Sort.Direction.DESC, "productId")),
+                eq(ProductRepository.DTO_PROJECTION), anyInt())).thenReturn(rows);
+        when(exportWriter.write(rows, ProductDto.class, ExportFormat.CSV, out)).thenReturn(1L);
+
+        // when
+        long exported = productService.exportProducts(ProductSearchCriteria.builder().build(), ExportFormat.CSV, out);
+
+        // then
+        assertEquals(1, exported);
+        assertTrue(closed.get());
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -304,6 +494,31 @@ class ProductServiceTest {
         assertTrue(thrown.getMessage().contains("Product with id 999 not found"));
     }
 
+    // ---------------------------------------------------------------------------------------------
+    // getProductVersion
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void getProductVersion_ExistingId_ReturnsVersionWithoutLoadingProduct() {
+        // given
+        when(productRepository.findVersionById(1)).thenReturn(Optional.of(3L));
+
+        // when
+        long version = productService.getProductVersion(1);
+
+        // then
+        assertEquals(3L, version);
+        verify(productRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void getProductVersion_NonExistingId_ThrowsResourceNotFoundException() {
+        // given
+        when(productRepository.findVersionById(999)).thenReturn(Optional.empty());
+
+        // when & then
+        assertThrows(ResourceNotFoundException.class, () -> productService.getProductVersion(999));
+    }
+
     // ---------------------------------------------------------------------------------------------
     // getProductsByUserId
     // ---------------------------------------------------------------------------------------------
@@ -312,10 +527,10 @@ class ProductServiceTest {
         // given
         int userId = 123;
         when(usersRepository.findById(userId)).thenReturn(Optional.of(new UserEntity()));
-        Page<ProductEntity> pageResult = new PageImpl<>(List.of(sampleProductEntity), PageRequest.of(0,5), 1);
+        Page<ProductDto> pageResult = new PageImpl<>(List.of(sampleProductDto), PageRequest.of(0,5), 1);
 
-        when(productRepository.findAllBySeller_UserId(userId, PageRequest.of(0,5))).thenReturn(pageResult);
-        when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
+        when(productRepository.findAllProjected(any(Specification.class), eq(PageRequest.of(0,5)), eq(ProductRepository.DTO_PROJECTION)))
+                .thenReturn(pageResult);
 
         // when
         PageResponse<ProductDto> response = productService.getProductsByUserId(userId, 0, 5);
@@ -351,7 +566,7 @@ class ProductServiceTest {
         when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
 
         // when
-        ProductDto result = productService.createProduct(sampleProductDto, validToken);
+        ProductDto result = productService.createProduct(sampleProductDto, seller);
 
         // then
         assertNotNull(result);
@@ -368,7 +583,7 @@ class ProductServiceTest {
         // when & then
         ObjectCreationException thrown = assertThrows(
                 ObjectCreationException.class,
-                () -> productService.createProduct(sampleProductDto, validToken)
+                () -> productService.createProduct(sampleProductDto, seller)
         );
         assertTrue(thrown.getMessage().contains("Failed to create product"));
         verify(productRepository).save(sampleProductEntity);
@@ -380,11 +595,9 @@ class ProductServiceTest {
         when(productMapper.toEntity(sampleProductDto)).thenReturn(sampleProductEntity);
         when(productRepository.save(sampleProductEntity)).thenReturn(sampleProductEntity);
         when(productMapper.toDto(sampleProductEntity)).thenReturn(sampleProductDto);
-        when(validClaims.get("userId")).thenReturn(999);
-        when(validClaims.get("roles")).thenReturn(new ArrayList<>(List.of(new LinkedHashMap<>(Map.of("authority", "ROLE_ADMIN")))));
 
         // when
-        ProductDto result = productService.createProduct(sampleProductDto, validToken);
+        ProductDto result = productService.createProduct(sampleProductDto, admin);
 
         // then
         assertNotNull(result);
@@ -420,7 +633,7 @@ class ProductServiceTest {
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
         // when
-        ProductDto result = productService.updateProduct(productId, updateDto, validToken);
+        ProductDto result = productService.updateProduct(productId, updateDto, seller);
 
         // then
         assertNotNull(result);
@@ -456,13 +669,11 @@ class ProductServiceTest {
 
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
         when(categoryRepository.findById(999)).thenReturn(Optional.of(newCategory));
-        when(validClaims.get("userId")).thenReturn(999);
-        when(validClaims.get("roles")).thenReturn(new ArrayList<>(List.of(new LinkedHashMap<>(Map.of("authority", "ROLE_ADMIN")))));
 
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
         // when
-        ProductDto result = productService.updateProduct(productId, updateDto, validToken);
+        ProductDto result = productService.updateProduct(productId, updateDto, admin);
 
         // then
         assertNotNull(result);
@@ -483,7 +694,7 @@ class ProductServiceTest {
         // when & then
         ResourceNotFoundException thrown = assertThrows(
                 ResourceNotFoundException.class,
-                () -> productService.updateProduct(productId, sampleProductDto, validToken)
+                () -> productService.updateProduct(productId, sampleProductDto, seller)
         );
         assertTrue(thrown.getMessage().contains("Product with id 999 not found"));
     }
@@ -500,7 +711,7 @@ class ProductServiceTest {
         // when & then
         ResourceNotFoundException thrown = assertThrows(
                 ResourceNotFoundException.class,
-                () -> productService.updateProduct(productId, sampleProductDto, validToken)
+                () -> productService.updateProduct(productId, sampleProductDto, seller)
         );
         assertTrue(thrown.getMessage().contains("Category with id 1111 not found"));
     }
@@ -524,7 +735,7 @@ class ProductServiceTest {
                 .thenReturn(Optional.of(sampleProductEntity));
 
         // when
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         // then
         // All fields should remain the same as in sampleProductEntity
@@ -564,7 +775,7 @@ class ProductServiceTest {
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
         // when
-        ProductDto result = productService.updateProduct(productId, updateDto, validToken);
+        ProductDto result = productService.updateProduct(productId, updateDto, seller);
 
         // then
         assertEquals("New Name", sampleProductEntity.getName());
@@ -596,7 +807,7 @@ class ProductServiceTest {
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
         // when
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         // then
         assertEquals("Updated Name", sampleProductEntity.getName());
@@ -621,7 +832,7 @@ class ProductServiceTest {
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         assertEquals("Sample Product", sampleProductEntity.getName()); // unchanged
         assertEquals("Updated Desc", sampleProductEntity.getDescription());
@@ -645,7 +856,7 @@ class ProductServiceTest {
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         assertEquals(1234.56, sampleProductEntity.getPrice());
         assertEquals(5, sampleProductEntity.getQuantityInStock()); // unchanged
@@ -669,7 +880,7 @@ class ProductServiceTest {
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         assertEquals(999, sampleProductEntity.getQuantityInStock());
         assertEquals(10.0, sampleProductEntity.getPrice()); // unchanged
@@ -698,7 +909,7 @@ class ProductServiceTest {
         when(categoryRepository.findById(999)).thenReturn(Optional.of(newCategory));
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         assertEquals(999, sampleProductEntity.getCategory().getCategoryId());
         assertEquals(10.0, sampleProductEntity.getPrice()); // unchanged
@@ -723,7 +934,7 @@ class ProductServiceTest {
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
         when(productMapper.toDto(sampleProductEntity)).thenReturn(updateDto);
 
-        productService.updateProduct(productId, updateDto, validToken);
+        productService.updateProduct(productId, updateDto, seller);
 
         assertEquals("http://example.com/new.png", sampleProductEntity.getImageUrl());
         assertEquals(10.0, sampleProductEntity.getPrice()); // unchanged
@@ -738,11 +949,10 @@ class ProductServiceTest {
         // given
         int productId = 1;
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
-        when(validClaims.get("roles")).thenReturn(new ArrayList<>(List.of(new LinkedHashMap<>(Map.of("authority", "ROLE_USER")))));
 
 
         // when
-        productService.deleteProduct(productId, validToken);
+        productService.deleteProduct(productId, seller);
 
         // then
         verify(productRepository).delete(sampleProductEntity);
@@ -758,7 +968,7 @@ class ProductServiceTest {
 
         ResourceNotFoundException thrown = assertThrows(
                 ResourceNotFoundException.class,
-                () -> productService.deleteProduct(productId, validToken)
+                () -> productService.deleteProduct(productId, seller)
         );
 
         assertTrue(thrown.getMessage().contains("Product with id 999 not found"));
@@ -770,11 +980,9 @@ class ProductServiceTest {
         // given
         int productId = 1;
         when(productRepository.findById(productId)).thenReturn(Optional.of(sampleProductEntity));
-        when(validClaims.get("userId")).thenReturn(999);
-        when(validClaims.get("roles")).thenReturn(new ArrayList<>(List.of(new LinkedHashMap<>(Map.of("authority", "ROLE_ADMIN")))));
 
         // when
-        productService.deleteProduct(productId, validToken);
+        productService.deleteProduct(productId, admin);
 
         // then
         verify(productRepository).delete(sampleProductEntity);
@@ -0,0 +1,150 @@
+package ee.taltech.iti03022024project.service;
+
+import ee.taltech.iti03022024project.domain.RefreshTokenEntity;
+import ee.taltech.iti03022024project.domain.UserEntity;
+import ee.taltech.iti03022024project.exception.LoginException;
+import ee.taltech.iti03022024project.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-12-20T00:00:00Z");
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenService refreshTokenService;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, Duration.ofDays(30), Clock.fixed(NOW, ZoneOffset.UTC));
+        user = new UserEntity();
+        user.setUserId(1);
+    }
+
+    private RefreshTokenEntity stored(String token, Instant expiresAt, Instant revokedAt) {
+        RefreshTokenEntity entity = new RefreshTokenEntity();
+        entity.setRefreshTokenId(5);
+        entity.setUser(user);
+        entity.setTokenHash(RefreshTokenService.hash(token));
+        entity.setExpiresAt(expiresAt);
+        entity.setRevokedAt(revokedAt);
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash(token))).thenReturn(Optional.of(entity));
+        return entity;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // issue
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void issue_NewToken_OnlyHashStored() {
+        // when
+        String token = refreshTokenService.issue(user);
+
+        // then
+        ArgumentCaptor<RefreshTokenEntity> saved = ArgumentCaptor.forClass(RefreshTokenEntity.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(RefreshTokenService.hash(token), saved.getValue().getTokenHash());
+        assertNotEquals(token, saved.getValue().getTokenHash());
+        assertEquals(NOW.plus(Duration.ofDays(30)), saved.getValue().getExpiresAt());
+        assertSame(user, saved.getValue().getUser());
+        verify(refreshTokenRepository).deleteExpiredForUser(1, NOW);
+    }
+
+    @Test
+    void issue_TwoTokens_Differ() {
+        // when & then
+        assertNotEquals(refreshTokenService.issue(user), refreshTokenService.issue(user));
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // consume
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void consume_ValidToken_RevokesItAndReturnsUser() {
+        // given
+        stored("token", NOW.plusSeconds(60), null);
+        when(refreshTokenRepository.revoke(5, NOW)).thenReturn(1);
+
+        // when
+        UserEntity result = refreshTokenService.consume("token");
+
+        // then
+        assertSame(user, result);
+        verify(refreshTokenRepository, never()).revokeAllForUser(anyInt(), any());
+    }
+
+    @Test
+    void consume_UnknownToken_ThrowsLoginException() {
+        // given
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        // when & then
+        assertThrows(LoginException.class, () -> refreshTokenService.consume("token"));
+    }
+
+    @Test
+    void consume_AlreadyUsedToken_RevokesAllTokensOfUser() {
+        // given
+        stored("token", NOW.plusSeconds(60), NOW.minusSeconds(10));
+
+        // when & then
+        assertThrows(LoginException.class, () -> refreshTokenService.consume("token"));
+        verify(refreshTokenRepository).revokeAllForUser(1, NOW);
+        verify(refreshTokenRepository, never()).revoke(anyLong(), any());
+    }
+
+    @Test
+    void consume_ConcurrentUseLost_RevokesAllTokensOfUser() {
+        // given
+        stored("token", NOW.plusSeconds(60), null);
+        when(refreshTokenRepository.revoke(5, NOW)).thenReturn(0);
+
+        // when & then
+        assertThrows(LoginException.class, () -> refreshTokenService.consume("token"));
+        verify(refreshTokenRepository).revokeAllForUser(1, NOW);
+    }
+
+    @Test
+    void consume_ExpiredToken_ThrowsLoginException() {
+        // given
+        stored("token", NOW.minusSeconds(1), null);
+        when(refreshTokenRepository.revoke(5, NOW)).thenReturn(1);
+
+        // when & then
+        LoginException thrown = assertThrows(LoginException.class, () -> refreshTokenService.consume("token"));
+        assertEquals("Refresh token expired", thrown.getMessage());
+        verify(refreshTokenRepository, never()).revokeAllForUser(anyInt(), any());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // revoke
+    // ---------------------------------------------------------------------------------------------
+    @Test
+    void revoke_KnownToken_Revoked() {
+        // given
+        stored("token", NOW.plusSeconds(60), null);
+
+        // when
+        refreshTokenService.revoke("token");
+
+        // then
+        verify(refreshTokenRepository).revoke(5, NOW);
+    }
+}
@@ -1,5 +1,6 @@
 package ee.taltech.iti03022024project.service;
 
+import ee.taltech.iti03022024project.cache.StatusCache;
 import ee.taltech.iti03022024project.domain.StatusEntity;
 import ee.taltech.iti03022024project.dto.StatusDto;
 import ee.taltech.iti03022024project.exception.ResourceNotFoundException;
@@ -12,7 +13,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.*;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +29,9 @@ class StatusServiceTest {
     @Mock
     private StatusMapper statusMapper;
 
+    @Mock
+    private StatusCache statusCache;
+
     @InjectMocks
     private StatusService statusService;
 
@@ -48,60 +51,31 @@ class StatusServiceTest {
     // getStatuses
     // ---------------------------------------------------------------------------------------------
     @Test
-    void getStatuses_SearchTerm_ReturnsPageResponse() {
+    void getStatuses_SearchTerm_ReturnsMatchingFromCache() {
         // given
-        String searchTerm = "Sample";
-        int pageNo = 0;
-        int pageSize = 5;
-
-        Page<StatusEntity> mockPage = new PageImpl<>(
-                List.of(sampleStatusEntity),
-                PageRequest.of(pageNo, pageSize),
-                1
-        );
-
-        when(statusRepository.findAllByStatusNameContaining(eq(searchTerm), any(PageRequest.class)))
-                .thenReturn(mockPage);
-        when(statusMapper.toDto(sampleStatusEntity)).thenReturn(sampleStatusDto);
+        when(statusCache.findAll()).thenReturn(List.of(new StatusDto(0, "CART"), sampleStatusDto));
 
         // when
-        PageResponse<StatusDto> result = statusService.getStatuses(searchTerm, pageNo, pageSize);
+        PageResponse<StatusDto> result = statusService.getStatuses("Sample", 0, 5);
 
         // then
-        assertNotNull(result);
-        assertEquals(1, result.content().size());
-        assertEquals("SampleStatus", result.content().getFirst().getName());
-
-        verify(statusRepository, times(1))
-                .findAllByStatusNameContaining(eq(searchTerm), any(PageRequest.class));
-        verify(statusMapper, times(1)).toDto(sampleStatusEntity);
+        assertEquals(List.of(sampleStatusDto), result.content());
+        assertEquals(1L, result.totalElements());
+        verifyNoInteractions(statusRepository);
     }
 
     @Test
     void getStatuses_EmptySearchTerm_ReturnsAllStatuses() {
         // given
-        String searchTerm = "";
-        int pageNo = 0;
-        int pageSize = 5;
-
-        Page<StatusEntity> mockPage = new PageImpl<>(
-                List.of(sampleStatusEntity),
-                PageRequest.of(pageNo, pageSize),
-                0
-        );
-
-        when(statusRepository.findAllByStatusNameContaining(eq(searchTerm), any(PageRequest.class)))
-                .thenReturn(mockPage);
+        List<StatusDto> statuses = List.of(new StatusDto(0, "CART"), sampleStatusDto);
+        when(statusCache.findAll()).thenReturn(statuses);
 
         // when
-        PageResponse<StatusDto> result = statusService.getStatuses(searchTerm, pageNo, pageSize);
+        PageResponse<StatusDto> result = statusService.getStatuses("", 0, 5);
 
         // then
-        assertNotNull(result);
-        assertEquals(1, result.content().size());
-        verify(statusRepository, times(1))
-                .findAllByStatusNameContaining(eq(searchTerm), any(PageRequest.class));
-        verify(statusMapper, times(1)).toDto(sampleStatusEntity);
+        assertEquals(statuses, result.content());
+        verifyNoInteractions(statusRepository, statusMapper);
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -111,8 +85,7 @@ class StatusServiceTest {
     void getStatusById_ExistingId_ReturnsStatusDto() {
         // given
         int statusId = 1;
-        when(statusRepository.findById(statusId)).thenReturn(Optional.of(sampleStatusEntity));
-        when(statusMapper.toDto(sampleStatusEntity)).thenReturn(sampleStatusDto);
+        when(statusCache.findById(statusId)).thenReturn(Optional.of(sampleStatusDto));
 
         // when
         StatusDto result = statusService.getStatusById(statusId);
@@ -122,15 +95,14 @@ class StatusServiceTest {
         assertEquals(1, result.getId());
         assertEquals("SampleStatus", result.getName());
 
-        verify(statusRepository, times(1)).findById(statusId);
-        verify(statusMapper, times(1)).toDto(sampleStatusEntity);
+        verifyNoInteractions(statusRepository);
     }
 
     @Test
     void getStatusById_NonExistingId_ThrowsResourceNotFoundException() {
         // given
         int statusId = 999;
-        when(statusRepository.findById(statusId)).thenReturn(Optional.empty());
+        when(statusCache.findById(statusId)).thenReturn(Optional.empty());
 
         // when & then
         ResourceNotFoundException thrown = assertThrows(
@@ -139,8 +111,7 @@ class StatusServiceTest {
         );
 
         assertTrue(thrown.getMessage().contains(String.valueOf(statusId)));
-        verify(statusRepository, times(1)).findById(statusId);
-        verifyNoInteractions(statusMapper);
+        verifyNoInteractions(statusRepository, statusMapper);
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -163,6 +134,7 @@ class StatusServiceTest {
         verify(statusMapper, times(1)).toEntity(sampleStatusDto);
         verify(statusRepository, times(1)).save(any(StatusEntity.class));
         verify(statusMapper, times(1)).toDto(sampleStatusEntity);
+        verify(statusCache).invalidate();
     }
 
     @Test
@@ -211,6 +183,7 @@ class StatusServiceTest {
         verify(statusRepository, times(1)).findById(statusId);
         verify(statusRepository, times(1)).save(existingStatus);
         verify(statusMapper, times(1)).toDto(sampleStatusEntity);
+        verify(statusCache).invalidate();
     }
 
     @Test
@@ -278,6 +251,7 @@ class StatusServiceTest {
         // then
         verify(statusRepository, times(1)).findById(statusId);
         verify(statusRepository, times(1)).delete(sampleStatusEntity);
+        verify(statusCache).invalidate();
     }
 
     @Test
@@ -182,7 +182,8 @@ class UserServiceTest {
     @Test
     void patchAuthorizedUser_UserIsAuthorized_UpdatesAndReturnsUser() {
         // given
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(userEntity);
+        when(authenticationFacade.getAuthenticatedUserId()).thenReturn(100);
+        when(usersRepository.findById(100)).thenReturn(Optional.of(userEntity));
         when(userMapper.toDto(any(UserEntity.class))).thenReturn(userDto);
         when(usersRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -194,20 +195,39 @@ class UserServiceTest {
         // then
         assertThat(patchedUser).isNotNull();
         assertThat(patchedUser.getFirstName()).isEqualTo("NewName");
-        verify(authenticationFacade, times(1)).getAuthenticatedUser();
-        verify(usersRepository, times(1)).save(any(UserEntity.class));
+        verify(usersRepository, times(1)).findById(100);
+        verify(usersRepository, times(1)).save(userEntity);
+    }
+
+    @Test
+    void patchAuthorizedUser_UserIsCached_CachedInstanceNotChanged() {
+        // given
+        UserEntity cachedUser = new UserEntity();
+        cachedUser.setUserId(100);
+        cachedUser.setFirstName("OldName");
+        lenient().when(authenticationFacade.getAuthenticatedUser()).thenReturn(cachedUser);
+        when(authenticationFacade.getAuthenticatedUserId()).thenReturn(100);
+        when(usersRepository.findById(100)).thenReturn(Optional.of(userEntity));
+        when(usersRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        userDto.setFirstName("NewName");
+
+        // when
+        userService.patchAuthorizedUser(userDto);
+
+        // then
+        assertThat(cachedUser.getFirstName()).isEqualTo("OldName");
+        assertThat(userEntity.getFirstName()).isEqualTo("NewName");
     }
 
     @Test
     void patchAuthorizedUser_AuthenticationIsNull_ThrowsBadTokenException() {
         // given
-        when(authenticationFacade.getAuthenticatedUser()).thenReturn(null);
+        when(authenticationFacade.getAuthenticatedUserId()).thenReturn(null);
 
         // when / then
         assertThatThrownBy(() -> userService.patchAuthorizedUser(userDto))
                 .isInstanceOf(BadTokenException.class)
                 .hasMessageContaining("User not authorized");
-        verify(authenticationFacade, times(1)).getAuthenticatedUser();
         verify(usersRepository, never()).save(any(UserEntity.class));
     }
 